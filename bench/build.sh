@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Build and run the JMH benchmarks.
+#
+# Usage: bench/build.sh [JMH options]
+#   bench/build.sh                               run every benchmark
+#   bench/build.sh GraphBenchmark -p edges=1000  run a subset
+#   bench/build.sh -l                            list benchmarks
+#
+# Results are written as JSON to bench/results.json, or to $RESULTS if set,
+# so that runs can be compared to catch regressions.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+JMH_VERSION=1.37
+LIB=bench/lib
+CLASSES=bench/classes
+RESULTS=${RESULTS:-bench/results.json}
+MAVEN=https://repo1.maven.org/maven2
+
+# Pinned SHA-256 sums of the jars, so a tampered or corrupt download fails
+# the build
+JARS=(
+    "org/openjdk/jmh/jmh-core/$JMH_VERSION/jmh-core-$JMH_VERSION.jar dc0eaf2bbf0036a70b60798c785d6e03a9daf06b68b8edb0f1ba9eb3421baeb3"
+    "org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION/jmh-generator-annprocess-$JMH_VERSION.jar 6a5604b5b804e0daca1145df1077609321687734a8b49387e49f10557c186c77"
+    "net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar df26cc58f235f477db07f753ba5a3ab243ebe5789d9f89ecf68dd62ea9a66c28"
+    "org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar 1e56d7b058d28b65abd256b8458e3885b674c1d588fa43cd7d1cbb9c7ef2b308"
+)
+
+sha256() {
+    if command -v sha256sum > /dev/null; then
+        sha256sum "$1" | cut -d' ' -f1
+    else
+        shasum -a 256 "$1" | cut -d' ' -f1
+    fi
+}
+
+echo "Step 1: Downloading JMH..."
+mkdir -p "$LIB"
+for entry in "${JARS[@]}"; do
+    read -r jar sum <<< "$entry"
+    file="$LIB/$(basename "$jar")"
+    if [ ! -f "$file" ]; then
+        echo "Downloading $(basename "$jar")..."
+        curl -fsSL -o "$file.part" "$MAVEN/$jar"
+        mv "$file.part" "$file"
+    fi
+    actual=$(sha256 "$file")
+    if [ "$actual" != "$sum" ]; then
+        echo "Checksum mismatch for $(basename "$jar"): expected $sum, got $actual" >&2
+        rm -f "$file"
+        exit 1
+    fi
+done
+CP=$(find "$LIB" -name '*.jar' | sort | tr '\n' ':')
+
+echo "Step 2: Compiling sources and benchmarks..."
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES"
+# The sources are compiled without the JMH annotation processor, which would
+# warn that nothing claims their JFR annotations
+javac -Xlint:all -proc:none -d "$CLASSES" $(find src -name '*.java')
+javac -Xlint:all -cp "$CLASSES:$CP" -processorpath "$CP" -d "$CLASSES" \
+    $(find bench/src -name '*.java')
+
+echo "Step 3: Running benchmarks..."
+java -cp "$CLASSES:$CP" org.openjdk.jmh.Main -rf json -rff "$RESULTS" "$@"
@@ -0,0 +1,146 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seeded generators of benchmark inputs, so that every run of a benchmark
+ * with the same parameters sees the same graph, corpus and poems.
+ */
+public final class Generators {
+
+    /** Seed used by the benchmarks unless a parameter overrides it. */
+    public static final long SEED = 6005;
+
+    private Generators() {
+        throw new AssertionError("uninstantiable");
+    }
+
+    /**
+     * @param i a vertex number
+     * @return the label of vertex i
+     */
+    public static String label(int i) {
+        return "v" + i;
+    }
+
+    /**
+     * Generate a random directed graph as an edge list. Sources and targets
+     * are uniform over the vertices; weights are uniform in [1, 100]. Pairs
+     * may repeat, so the graph may have fewer distinct edges than requested.
+     *
+     * @param vertices number of vertices, positive
+     * @param edges number of edges to generate
+     * @param seed random seed
+     * @return array of {source, target, weight} triples, vertices numbered
+     *         from 0
+     */
+    public static int[][] edges(int vertices, int edges, long seed) {
+        Random random = new Random(seed);
+        int[][] list = new int[edges][];
+        for (int i = 0; i < edges; i++) {
+            list[i] = new int[] { random.nextInt(vertices), random.nextInt(vertices),
+                1 + random.nextInt(100) };
+        }
+        return list;
+    }
+
+    /**
+     * Generate vocabulary words whose frequencies roughly follow Zipf's law,
+     * as words in natural text do.
+     */
+    private static final class Zipf {
+        private final String[] vocabulary;
+        private final double[] cumulative;
+        private final Random random;
+
+        /**
+         * @param size number of distinct words
+         * @param seed random seed of the vocabulary
+         * @param sampleSeed random seed of the sequence of words drawn
+         */
+        Zipf(int size, long seed, long sampleSeed) {
+            Random words = new Random(seed);
+            random = new Random(sampleSeed);
+            vocabulary = new String[size];
+            cumulative = new double[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                vocabulary[i] = word(words);
+                total += 1.0 / (i + 1);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < size; i++) {
+                cumulative[i] /= total;
+            }
+        }
+
+        private static String word(Random random) {
+            char[] letters = new char[2 + random.nextInt(8)];
+            for (int i = 0; i < letters.length; i++) {
+                letters[i] = (char) ('a' + random.nextInt(26));
+            }
+            if (random.nextInt(4) == 0) {
+                letters[0] = Character.toUpperCase(letters[0]);
+            }
+            return new String(letters);
+        }
+
+        String next() {
+            int i = Arrays.binarySearch(cumulative, random.nextDouble());
+            return vocabulary[i >= 0 ? i : Math.min(-i - 1, vocabulary.length - 1)];
+        }
+    }
+
+    /**
+     * Write a random corpus of words drawn from a Zipf-distributed
+     * vocabulary, separated by spaces with a newline every 12 words.
+     *
+     * @param file file to write, replaced if it exists
+     * @param words number of words to write
+     * @param vocabulary number of distinct words to draw from, positive
+     * @param seed random seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void corpus(Path file, int words, int vocabulary, long seed)
+            throws IOException {
+        Zipf zipf = new Zipf(vocabulary, seed, seed);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < words; i++) {
+                out.write(zipf.next());
+                out.write(i % 12 == 11 ? '\n' : ' ');
+            }
+        }
+    }
+
+    /**
+     * Generate random poem inputs from the same vocabulary as
+     * {@link #corpus(Path, int, int, long) corpus}.
+     *
+     * @param count number of inputs
+     * @param words number of words in each input
+     * @param vocabulary number of distinct words to draw from, positive
+     * @param seed random seed of the corpus whose vocabulary to use
+     * @return the inputs
+     */
+    public static String[] inputs(int count, int words, int vocabulary, long seed) {
+        Zipf zipf = new Zipf(vocabulary, seed, ~seed);
+        String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int j = 0; j < words; j++) {
+                input.append(j == 0 ? "" : " ").append(zipf.next());
+            }
+            inputs[i] = input.toString();
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,198 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graph.ConcreteEdgesGraph;
+import graph.ConcreteVerticesGraph;
+import graph.Graph;
+import graph.RepCheck;
+
+/**
+ * Benchmarks of the Graph operations of ConcreteEdgesGraph and
+ * ConcreteVerticesGraph, on seeded random graphs of 10^3 to 10^6 edges with
+ * ten edges per vertex on average.
+ *
+ * <p>Graphs are built with {@link RepCheck#OFF}, so the numbers are the same
+ * whether or not assertions are enabled. Each operation picks its vertex or
+ * edge from a precomputed seeded sequence, so runs are repeatable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphBenchmark {
+
+    // Number of precomputed operands to cycle through
+    private static final int OPERANDS = 1 << 12;
+
+    @Param({ "edges", "vertices" })
+    public String implementation;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int edges;
+
+    @Param({ "6005" })
+    public long seed;
+
+    private int[][] edgeList;
+    private Graph<String> graph;
+    private String[] labels;
+    private int[][] picks;
+    private List<Map<String, Integer>> savedSources;
+    private List<Map<String, Integer>> savedTargets;
+    private int next = 0;
+
+    /**
+     * @return an empty graph of the implementation under test
+     */
+    private Graph<String> emptyGraph() {
+        switch (implementation) {
+        case "edges":
+            return new ConcreteEdgesGraph(RepCheck.OFF);
+        case "vertices":
+            return new ConcreteVerticesGraph(RepCheck.OFF);
+        default:
+            throw new IllegalArgumentException("unknown implementation: " + implementation);
+        }
+    }
+
+    private Graph<String> build() {
+        Graph<String> built = emptyGraph();
+        for (int[] edge : edgeList) {
+            built.set(labels[edge[0]], labels[edge[1]], edge[2]);
+        }
+        return built;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int vertices = Math.max(1, edges / 10);
+        labels = new String[vertices];
+        for (int i = 0; i < vertices; i++) {
+            labels[i] = Generators.label(i);
+        }
+        edgeList = Generators.edges(vertices, edges, seed);
+        graph = build();
+
+        Random random = new Random(seed + 1);
+        picks = new int[OPERANDS][];
+        for (int i = 0; i < OPERANDS; i++) {
+            picks[i] = edgeList[random.nextInt(edgeList.length)];
+        }
+        savedSources = new ArrayList<>(OPERANDS);
+        savedTargets = new ArrayList<>(OPERANDS);
+        for (int i = 0; i < OPERANDS; i++) {
+            String vertex = labels[picks[i][0]];
+            savedSources.add(new HashMap<>(graph.sources(vertex)));
+            savedTargets.add(new HashMap<>(graph.targets(vertex)));
+        }
+    }
+
+    private int nextPick() {
+        int pick = next;
+        next = (next + 1) & (OPERANDS - 1);
+        return pick;
+    }
+
+    /** Build the whole graph from its edge list. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Graph<String> buildGraph() {
+        return build();
+    }
+
+    /** Add a new vertex, then remove it again. */
+    @Benchmark
+    public boolean addVertex() {
+        return graph.add("new") & graph.remove("new");
+    }
+
+    /** Change the weight of an existing edge. */
+    @Benchmark
+    public int setExistingEdge() {
+        int[] edge = picks[nextPick()];
+        return graph.set(labels[edge[0]], labels[edge[1]], 1 + (edge[2] ^ 1));
+    }
+
+    /** Add a new edge between existing vertices, then remove it again. */
+    @Benchmark
+    public int setNewEdge() {
+        int[] edge = picks[nextPick()];
+        String source = labels[edge[0]];
+        graph.set(source, "new", 1);
+        int removed = graph.set(source, "new", 0);
+        graph.remove("new");
+        return removed;
+    }
+
+    /**
+     * Remove a vertex with its edges, then restore them, so that the graph is
+     * the same for the next operation.
+     */
+    @Benchmark
+    public boolean removeVertex() {
+        int pick = nextPick();
+        String vertex = labels[picks[pick][0]];
+        boolean removed = graph.remove(vertex);
+        graph.add(vertex);
+        for (Map.Entry<String, Integer> edge : savedSources.get(pick).entrySet()) {
+            graph.set(edge.getKey(), vertex, edge.getValue());
+        }
+        for (Map.Entry<String, Integer> edge : savedTargets.get(pick).entrySet()) {
+            graph.set(vertex, edge.getKey(), edge.getValue());
+        }
+        return removed;
+    }
+
+    /** Read the incoming edges of a vertex and sum their weights. */
+    @Benchmark
+    public long sources() {
+        long total = 0;
+        for (int weight : graph.sources(labels[picks[nextPick()][1]]).values()) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /** Read the outgoing edges of a vertex and sum their weights. */
+    @Benchmark
+    public long targets() {
+        long total = 0;
+        for (int weight : graph.targets(labels[picks[nextPick()][0]]).values()) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /** Test whether a vertex is in the graph. */
+    @Benchmark
+    public boolean vertices() {
+        return graph.vertices().contains(labels[picks[nextPick()][0]]);
+    }
+}
@@ -0,0 +1,148 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import poet.GraphPoet;
+
+/**
+ * Benchmarks of GraphPoet: building a poet from a corpus, sequentially, in
+ * parallel and from a snapshot, and generating poems one at a time, from
+ * several threads and in batches.
+ *
+ * <p>The corpus is written once per trial by
+ * {@link Generators#corpus(java.nio.file.Path, int, int, long)}, with a
+ * vocabulary of a tenth as many words as the corpus, at most 50000.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class PoetBenchmark {
+
+    // Number of poem inputs to cycle through, and words in each
+    private static final int INPUTS = 1 << 10;
+    private static final int INPUT_WORDS = 20;
+
+    @Param({ "100000", "1000000" })
+    public int corpusWords;
+
+    @Param({ "6005" })
+    public long seed;
+
+    private File corpus;
+    private File snapshot;
+    private GraphPoet poet;
+    private String[] inputs;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int vocabulary = Math.max(1, Math.min(50000, corpusWords / 10));
+        corpus = Files.createTempFile("poet-bench", ".txt").toFile();
+        Generators.corpus(corpus.toPath(), corpusWords, vocabulary, seed);
+        poet = new GraphPoet(corpus);
+        snapshot = Files.createTempFile("poet-bench", ".snap").toFile();
+        poet.save(snapshot);
+        inputs = Generators.inputs(INPUTS, INPUT_WORDS, vocabulary, seed);
+        batch = Arrays.asList(inputs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(corpus.toPath());
+        Files.deleteIfExists(snapshot.toPath());
+    }
+
+    /** Per-thread position in the inputs. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = 0;
+
+        int next() {
+            int current = next;
+            next = (next + 1) & (INPUTS - 1);
+            return current;
+        }
+    }
+
+    /** Build a poet by reading the corpus in one pass. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public GraphPoet ingest() throws IOException {
+        return new GraphPoet(corpus);
+    }
+
+    /** Build a poet by reading the corpus in parallel on the common pool. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public GraphPoet ingestParallel() throws IOException {
+        return new GraphPoet(corpus, ForkJoinPool.commonPool());
+    }
+
+    /** Build a poet from a snapshot of the corpus's graph. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public GraphPoet loadSnapshot() throws IOException {
+        return GraphPoet.load(snapshot);
+    }
+
+    /** Generate one poem of {@value #INPUT_WORDS} words. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String poem(Cursor cursor) {
+        return poet.poem(inputs[cursor.next()]);
+    }
+
+    /** Generate poems from four threads at once. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public String poemContended(Cursor cursor) {
+        return poet.poem(inputs[cursor.next()]);
+    }
+
+    /** Generate a batch of poems in parallel on the common pool. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(INPUTS)
+    public List<String> poems() {
+        return poet.poems(batch);
+    }
+}
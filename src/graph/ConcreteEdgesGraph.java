@@ -3,10 +3,13 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,6 +17,11 @@ import java.util.Set;
 /**
  * An implementation of Graph using edges list representation.
  * 
+ * <p>sources() and targets() return unmodifiable live views, without copying:
+ * a view reflects later changes to the edges at its vertex, until that vertex
+ * is removed. Callers that need a snapshot should copy the view, for example
+ * with {@link Map#copyOf(Map)}.
+ * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
 public class ConcreteEdgesGraph implements Graph<String> {
@@ -21,34 +29,121 @@ public class ConcreteEdgesGraph implements Graph<String> {
     private final Set<String> vertices = new HashSet<>();
     private final List<Edge> edges = new ArrayList<>();
     
+    // Secondary indexes over edges, keyed on edge endpoints:
+    //   outIndex: source -> (target -> position of that edge in edges)
+    //   inIndex:  target -> (source -> position of that edge in edges)
+    // Each Adjacency is also the live view returned by targets() or sources()
+    private final Map<String, Adjacency> outIndex = new HashMap<>();
+    private final Map<String, Adjacency> inIndex = new HashMap<>();
+    
+    private final RepCheck repCheck;
+    private long mutations = 0;
+    private long fullChecks = 0;
+    private boolean bulk = false;
+    
     // Abstraction function:
     //   Represents a directed weighted graph where:
     //   - vertices set contains all vertex labels in the graph
     //   - edges list contains all directed edges with positive weights
+    //   - outIndex and inIndex only locate edges; they add no information
     // Representation invariant:
     //   - vertices != null, edges != null
     //   - All vertices in edges exist in vertices set
     //   - All edge weights > 0
     //   - No duplicate edges (same source and target)
+    //   - outIndex and inIndex both have exactly the vertices as keys
+    //   - For every i, edges.get(i) is indexed exactly as
+    //     outIndex[source][target] == i and inIndex[target][source] == i,
+    //     and the indexes contain no other entries
+    //   - repCheck != null, mutations >= 0, fullChecks >= 0
+    //   - bulk is true only between beginBulk() and endBulk()
     // Safety from rep exposure:
     //   - All fields are private and final
     //   - vertices() returns unmodifiable set
-    //   - sources() and targets() return unmodifiable maps
+    //   - sources() and targets() return Adjacency views, which are
+    //     unmodifiable
     //   - Edge class is immutable
     
     /**
-     * Construct an empty ConcreteEdgesGraph.
+     * Construct an empty ConcreteEdgesGraph that checks its rep incrementally.
      */
     public ConcreteEdgesGraph() {
+        this(RepCheck.INCREMENTAL);
+    }
+    
+    /**
+     * Construct an empty ConcreteEdgesGraph.
+     * 
+     * @param repCheck how much of the rep to check after each mutation
+     */
+    public ConcreteEdgesGraph(RepCheck repCheck) {
+        if (repCheck == null) {
+            throw new IllegalArgumentException("repCheck cannot be null");
+        }
+        this.repCheck = repCheck;
         checkRep();
     }
     
     /**
-     * Check the representation invariant.
+     * Count a mutation and check the whole rep if repCheck says it is due;
+     * during a bulk load, leave whole-rep checks to endBulk().
+     * 
+     * @return true iff the caller should check the parts of the rep it touched
+     */
+    private boolean checkRepAfterMutation() {
+        if (bulk) {
+            return repCheck.incremental();
+        }
+        mutations++;
+        if (repCheck.fullCheckDue(mutations)) {
+            fullChecks++;
+            checkRep();
+            return false;
+        }
+        return repCheck.incremental();
+    }
+    
+    /**
+     * @return number of whole-rep checks made because repCheck said one was
+     *         due after a mutation or a bulk load; for testing the checking
+     *         levels
+     */
+    long fullChecks() {
+        return fullChecks;
+    }
+    
+    /**
+     * Stop counting mutations and making whole-rep checks until endBulk(); for
+     * GraphLoader, which makes many mutations at once. The parts of the rep
+     * each mutation touches are still checked if repCheck is incremental.
+     */
+    void beginBulk() {
+        bulk = true;
+    }
+    
+    /**
+     * Resume counting mutations, after checking the whole rep once if
+     * repCheck is sampled.
+     */
+    void endBulk() {
+        bulk = false;
+        if (RepCheck.ASSERTIONS_ENABLED && repCheck.level() == RepCheck.Level.SAMPLED) {
+            fullChecks++;
+            checkRep();
+        }
+    }
+    
+    /**
+     * Check the representation invariant, in time linear in the size of the
+     * graph, if assertions are enabled.
      */
     private void checkRep() {
+        if (!RepCheck.ASSERTIONS_ENABLED) {
+            return;
+        }
         assert vertices != null : "vertices should not be null";
         assert edges != null : "edges should not be null";
+        assert repCheck != null : "repCheck should not be null";
         
         // Check all edges have valid vertices and weights
         for (Edge edge : edges) {
@@ -59,22 +154,143 @@ public class ConcreteEdgesGraph implements Graph<String> {
             assert edge.getWeight() > 0 : "edge weight must be positive: " + edge.getWeight();
         }
         
-        // Check for duplicate edges
-        Set<String> edgeSet = new HashSet<>();
-        for (Edge edge : edges) {
-            String edgeKey = edge.getSource() + "->" + edge.getTarget();
-            assert !edgeSet.contains(edgeKey) : "duplicate edge: " + edgeKey;
-            edgeSet.add(edgeKey);
+        // Check the indexes agree with the edges list; since each endpoint
+        // pair is indexed once, this also rules out duplicate edges
+        for (int i = 0; i < edges.size(); i++) {
+            checkIndexed(edges.get(i), i);
+        }
+        assert outIndex.keySet().equals(vertices) : "out index has wrong vertices";
+        assert inIndex.keySet().equals(vertices) : "in index has wrong vertices";
+        assert indexSize(outIndex) == edges.size() : "out index has stale entries";
+        assert indexSize(inIndex) == edges.size() : "in index has stale entries";
+    }
+    
+    /**
+     * Check the part of the representation invariant about one endpoint pair.
+     * 
+     * @param source source label
+     * @param target target label
+     */
+    private void checkEdgeRep(String source, String target) {
+        assert vertices.contains(source) : "edge source must be in vertices: " + source;
+        assert vertices.contains(target) : "edge target must be in vertices: " + target;
+        Integer position = position(source, target);
+        if (position == null) {
+            assert inIndex.get(target).positions.get(source) == null :
+                "in index has stale entry: " + source + " -> " + target;
+        } else {
+            Edge edge = edges.get(position);
+            assert edge.getSource().equals(source) && edge.getTarget().equals(target) :
+                "out index points at wrong edge: " + edge;
+            assert edge.getWeight() > 0 : "edge weight must be positive: " + edge.getWeight();
+            checkIndexed(edge, position);
         }
     }
     
+    /**
+     * Check the part of the representation invariant about a removed vertex.
+     * 
+     * @param vertex label that is no longer in this graph
+     */
+    private void checkRemovedRep(String vertex) {
+        assert !vertices.contains(vertex) : "removed vertex still in vertices: " + vertex;
+        assert !outIndex.containsKey(vertex) : "removed vertex still has edges: " + vertex;
+        assert !inIndex.containsKey(vertex) : "removed vertex still has edges: " + vertex;
+    }
+    
+    /**
+     * Check that both indexes locate edge at position.
+     */
+    private void checkIndexed(Edge edge, int position) {
+        Integer out = position(edge.getSource(), edge.getTarget());
+        assert out != null && out == position : "out index out of date for edge: " + edge;
+        Integer in = inIndex.get(edge.getTarget()).positions.get(edge.getSource());
+        assert in != null && in == position : "in index out of date for edge: " + edge;
+    }
+    
+    /**
+     * Count the entries of an edge index.
+     * 
+     * @param index outIndex or inIndex
+     * @return total number of edges located by index
+     */
+    private static int indexSize(Map<String, Adjacency> index) {
+        int size = 0;
+        for (Adjacency adjacency : index.values()) {
+            size += adjacency.positions.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Find where the edge from source to target is stored.
+     * 
+     * @param source source label
+     * @param target target label
+     * @return index of that edge in edges, or null if there is no such edge
+     */
+    private Integer position(String source, String target) {
+        Adjacency targets = outIndex.get(source);
+        return targets == null ? null : targets.positions.get(target);
+    }
+    
+    /**
+     * Add vertex to this graph if it is not already in it.
+     * 
+     * @return true iff vertex was added
+     */
+    private boolean addVertex(String vertex) {
+        if (!vertices.add(vertex)) {
+            return false;
+        }
+        outIndex.put(vertex, new Adjacency());
+        inIndex.put(vertex, new Adjacency());
+        return true;
+    }
+    
+    /**
+     * Record that edges.get(position) goes from source to target.
+     */
+    private void index(String source, String target, int position) {
+        outIndex.get(source).positions.put(target, position);
+        inIndex.get(target).positions.put(source, position);
+    }
+    
+    /**
+     * Forget the index entries for the edge from source to target.
+     */
+    private void unindex(String source, String target) {
+        outIndex.get(source).positions.remove(target);
+        inIndex.get(target).positions.remove(source);
+    }
+    
+    /**
+     * Remove the edge stored at position in O(1) by moving the last edge of
+     * the list into its place.
+     * 
+     * @param position index in edges of an edge to remove
+     * @return the removed edge
+     */
+    private Edge removeEdgeAt(int position) {
+        Edge removed = edges.get(position);
+        unindex(removed.getSource(), removed.getTarget());
+        Edge last = edges.remove(edges.size() - 1);
+        if (last != removed) {
+            edges.set(position, last);
+            index(last.getSource(), last.getTarget(), position);
+        }
+        return removed;
+    }
+    
     @Override 
     public boolean add(String vertex) {
         if (vertex == null) {
             throw new IllegalArgumentException("vertex cannot be null");
         }
-        boolean added = vertices.add(vertex);
-        checkRep();
+        boolean added = addVertex(vertex);
+        if (added && checkRepAfterMutation()) {
+            assert vertices.contains(vertex) : "added vertex missing: " + vertex;
+        }
         return added;
     }
     
@@ -88,32 +304,33 @@ public class ConcreteEdgesGraph implements Graph<String> {
         }
         
         // Ensure vertices exist
-        vertices.add(source);
-        vertices.add(target);
+        addVertex(source);
+        addVertex(target);
         
         // Find existing edge and get previous weight
         int previousWeight = 0;
-        Edge existingEdge = null;
+        Integer existing = position(source, target);
         
-        for (Edge edge : edges) {
-            if (edge.getSource().equals(source) && edge.getTarget().equals(target)) {
-                existingEdge = edge;
-                previousWeight = edge.getWeight();
-                break;
+        if (existing != null) {
+            previousWeight = edges.get(existing).getWeight();
+            if (weight > 0) {
+                // Replace in place; the indexes stay valid
+                edges.set(existing, new Edge(source, target, weight));
+            } else {
+                removeEdgeAt(existing);
             }
-        }
-        
-        // Remove existing edge if found
-        if (existingEdge != null) {
-            edges.remove(existingEdge);
-        }
-        
-        // Add new edge if weight > 0
-        if (weight > 0) {
+        } else if (weight > 0) {
             edges.add(new Edge(source, target, weight));
+            index(source, target, edges.size() - 1);
         }
         
-        checkRep();
+        if (checkRepAfterMutation()) {
+            checkEdgeRep(source, target);
+            if (existing != null && weight == 0 && existing < edges.size()) {
+                // The last edge was moved into the freed slot
+                checkIndexed(edges.get(existing), existing);
+            }
+        }
         return previousWeight;
     }
     
@@ -127,14 +344,22 @@ public class ConcreteEdgesGraph implements Graph<String> {
             return false;
         }
         
+        // Remove all edges connected to this vertex
+        for (String target : new ArrayList<>(outIndex.get(vertex).positions.keySet())) {
+            removeEdgeAt(position(vertex, target));
+        }
+        for (String source : new ArrayList<>(inIndex.get(vertex).positions.keySet())) {
+            removeEdgeAt(position(source, vertex));
+        }
+        
         // Remove vertex
         vertices.remove(vertex);
+        outIndex.remove(vertex);
+        inIndex.remove(vertex);
         
-        // Remove all edges connected to this vertex
-        edges.removeIf(edge -> 
-            edge.getSource().equals(vertex) || edge.getTarget().equals(vertex));
-        
-        checkRep();
+        if (checkRepAfterMutation()) {
+            checkRemovedRep(vertex);
+        }
         return true;
     }
     
@@ -149,13 +374,8 @@ public class ConcreteEdgesGraph implements Graph<String> {
             throw new IllegalArgumentException("target cannot be null");
         }
         
-        Map<String, Integer> result = new HashMap<>();
-        for (Edge edge : edges) {
-            if (edge.getTarget().equals(target)) {
-                result.put(edge.getSource(), edge.getWeight());
-            }
-        }
-        return Collections.unmodifiableMap(result);
+        Map<String, Integer> incoming = inIndex.get(target);
+        return incoming == null ? Collections.emptyMap() : incoming;
     }
     
     @Override 
@@ -164,13 +384,8 @@ public class ConcreteEdgesGraph implements Graph<String> {
             throw new IllegalArgumentException("source cannot be null");
         }
         
-        Map<String, Integer> result = new HashMap<>();
-        for (Edge edge : edges) {
-            if (edge.getSource().equals(source)) {
-                result.put(edge.getTarget(), edge.getWeight());
-            }
-        }
-        return Collections.unmodifiableMap(result);
+        Map<String, Integer> outgoing = outIndex.get(source);
+        return outgoing == null ? Collections.emptyMap() : outgoing;
     }
     
     @Override
@@ -189,6 +404,61 @@ public class ConcreteEdgesGraph implements Graph<String> {
         }
         return sb.toString();
     }
+    
+    /**
+     * Edges at one endpoint of a vertex, and an unmodifiable live view of them
+     * as a map from the other endpoint to the edge weight.
+     */
+    private class Adjacency extends AbstractMap<String, Integer> {
+        
+        // other endpoint -> position of that edge in edges
+        final Map<String, Integer> positions = new HashMap<>();
+        private final Set<Map.Entry<String, Integer>> entries = new AbstractSet<>() {
+            @Override
+            public int size() {
+                return positions.size();
+            }
+            
+            @Override
+            public Iterator<Map.Entry<String, Integer>> iterator() {
+                Iterator<Map.Entry<String, Integer>> iterator = positions.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+                    
+                    @Override
+                    public Map.Entry<String, Integer> next() {
+                        Map.Entry<String, Integer> entry = iterator.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(
+                            entry.getKey(), edges.get(entry.getValue()).getWeight());
+                    }
+                };
+            }
+        };
+        
+        @Override
+        public int size() {
+            return positions.size();
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return positions.containsKey(key);
+        }
+        
+        @Override
+        public Integer get(Object key) {
+            Integer position = positions.get(key);
+            return position == null ? null : edges.get(position).getWeight();
+        }
+        
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return entries;
+        }
+    }
 }
 
 /**
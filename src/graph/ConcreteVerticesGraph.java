@@ -9,56 +9,204 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * An implementation of Graph using vertices list representation.
  * 
+ * <p>vertices(), sources() and targets() return unmodifiable live views,
+ * without copying: the vertex set reflects later changes to the vertices, and
+ * a map reflects later changes to the edges at its vertex, until that vertex
+ * is removed. Callers that need a snapshot should copy the view, for example
+ * with {@link Set#copyOf(java.util.Collection)} or {@link Map#copyOf(Map)}.
+ * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
 public class ConcreteVerticesGraph implements Graph<String> {
     
     private final List<Vertex> vertices = new ArrayList<>();
     
+    // Secondary index over vertices: label -> position of that Vertex in vertices
+    private final Map<String, Integer> positions = new HashMap<>();
+    
+    // Live unmodifiable view of the vertex labels, kept in step with vertices
+    // by positions
+    private final Set<String> labels = Collections.unmodifiableSet(positions.keySet());
+    
+    private final RepCheck repCheck;
+    private long mutations = 0;
+    private long fullChecks = 0;
+    private boolean bulk = false;
+    
     // Abstraction function:
     //   Represents a directed weighted graph where:
     //   - vertices list contains all Vertex objects in the graph
     //   - Each Vertex maintains its incoming and outgoing edges
+    //   - positions only locates vertices; it adds no information
     // Representation invariant:
     //   - vertices != null
     //   - All Vertex objects in vertices are valid (non-null, consistent state)
     //   - No duplicate vertex labels
     //   - All edge weights > 0
+    //   - positions.get(vertices.get(i).getLabel()) == i for every i, and
+    //     positions.size() == vertices.size()
+    //   - Every edge is recorded by both endpoints with the same weight
+    //   - repCheck != null, mutations >= 0, fullChecks >= 0
+    //   - bulk is true only between beginBulk() and endBulk()
     // Safety from rep exposure:
     //   - All fields are private and final
-    //   - vertices() returns an unmodifiable set
-    //   - sources() and targets() return unmodifiable maps
+    //   - vertices() returns labels, an unmodifiable view
+    //   - sources() and targets() return the unmodifiable views kept by each
+    //     Vertex
     //   - Vertex objects are not exposed directly
     
     /**
-     * Construct an empty ConcreteVerticesGraph.
+     * Construct an empty ConcreteVerticesGraph that checks its rep
+     * incrementally.
      */
     public ConcreteVerticesGraph() {
+        this(RepCheck.INCREMENTAL);
+    }
+    
+    /**
+     * Construct an empty ConcreteVerticesGraph.
+     * 
+     * @param repCheck how much of the rep to check after each mutation
+     */
+    public ConcreteVerticesGraph(RepCheck repCheck) {
+        if (repCheck == null) {
+            throw new IllegalArgumentException("repCheck cannot be null");
+        }
+        this.repCheck = repCheck;
         checkRep();
     }
     
     /**
-     * Check the representation invariant.
+     * Count a mutation and check the whole rep if repCheck says it is due;
+     * during a bulk load, leave whole-rep checks to endBulk().
+     * 
+     * @return true iff the caller should check the parts of the rep it touched
+     */
+    private boolean checkRepAfterMutation() {
+        if (bulk) {
+            return repCheck.incremental();
+        }
+        mutations++;
+        if (repCheck.fullCheckDue(mutations)) {
+            fullChecks++;
+            checkRep();
+            return false;
+        }
+        return repCheck.incremental();
+    }
+    
+    /**
+     * @return number of whole-rep checks made because repCheck said one was
+     *         due after a mutation or a bulk load; for testing the checking
+     *         levels
+     */
+    long fullChecks() {
+        return fullChecks;
+    }
+    
+    /**
+     * Stop counting mutations and making whole-rep checks until endBulk(); for
+     * GraphLoader, which makes many mutations at once. The parts of the rep
+     * each mutation touches are still checked if repCheck is incremental.
+     */
+    void beginBulk() {
+        bulk = true;
+    }
+    
+    /**
+     * Resume counting mutations, after checking the whole rep once if
+     * repCheck is sampled.
+     */
+    void endBulk() {
+        bulk = false;
+        if (RepCheck.ASSERTIONS_ENABLED && repCheck.level() == RepCheck.Level.SAMPLED) {
+            fullChecks++;
+            checkRep();
+        }
+    }
+    
+    /**
+     * Check the representation invariant, in time linear in the size of the
+     * graph, if assertions are enabled.
      */
     private void checkRep() {
+        if (!RepCheck.ASSERTIONS_ENABLED) {
+            return;
+        }
         assert vertices != null : "vertices should not be null";
+        assert repCheck != null : "repCheck should not be null";
         
-        // Check for duplicate vertex labels
-        Set<String> labels = vertices.stream()
-            .map(Vertex::getLabel)
-            .collect(Collectors.toSet());
-        assert labels.size() == vertices.size() : "duplicate vertex labels found";
+        // Check the index agrees with the vertices list; since each label is
+        // indexed once, this also rules out duplicate vertex labels
+        assert positions.size() == vertices.size() : "label index has stale entries";
+        for (int i = 0; i < vertices.size(); i++) {
+            assert vertices.get(i) != null : "vertex should not be null";
+            checkVertexRep(vertices.get(i).getLabel());
+        }
+    }
+    
+    /**
+     * Check the part of the representation invariant about one vertex and the
+     * edges incident to it.
+     * 
+     * @param label label of a vertex in this graph
+     */
+    private void checkVertexRep(String label) {
+        Integer position = positions.get(label);
+        assert position != null : "vertex missing from label index: " + label;
+        Vertex vertex = vertices.get(position);
+        assert vertex.getLabel().equals(label) : "label index out of date for vertex: " + label;
+        vertex.checkRep();
         
-        // Check all vertices are valid
-        for (Vertex vertex : vertices) {
-            assert vertex != null : "vertex should not be null";
-            vertex.checkRep();
+        for (Map.Entry<String, Integer> edge : vertex.getTargets().entrySet()) {
+            Vertex target = findVertex(edge.getKey());
+            assert target != null : "edge target must be a vertex: " + edge.getKey();
+            assert edge.getValue().equals(target.getSources().get(label)) :
+                "edge recorded inconsistently: " + label + " -> " + edge.getKey();
+        }
+        for (Map.Entry<String, Integer> edge : vertex.getSources().entrySet()) {
+            Vertex source = findVertex(edge.getKey());
+            assert source != null : "edge source must be a vertex: " + edge.getKey();
+            assert edge.getValue().equals(source.getTargets().get(label)) :
+                "edge recorded inconsistently: " + edge.getKey() + " -> " + label;
+        }
+    }
+    
+    /**
+     * Check the part of the representation invariant about one edge.
+     * 
+     * @param source label of a vertex in this graph
+     * @param target label of a vertex in this graph
+     */
+    private void checkEdgeRep(String source, String target) {
+        Vertex sourceVertex = findVertex(source);
+        Vertex targetVertex = findVertex(target);
+        assert sourceVertex != null && sourceVertex.getLabel().equals(source) :
+            "label index out of date for vertex: " + source;
+        assert targetVertex != null && targetVertex.getLabel().equals(target) :
+            "label index out of date for vertex: " + target;
+        assert sourceVertex.getTargetWeight(target)
+                == targetVertex.getSources().getOrDefault(source, 0) :
+            "edge recorded inconsistently: " + source + " -> " + target;
+    }
+    
+    /**
+     * Add vertex to this graph if it is not already in it, without counting
+     * a mutation.
+     * 
+     * @return true iff vertex was added
+     */
+    private boolean addVertex(String vertex) {
+        if (positions.containsKey(vertex)) {
+            return false;
         }
+        positions.put(vertex, vertices.size());
+        vertices.add(new Vertex(vertex));
+        return true;
     }
     
     @Override 
@@ -66,17 +214,11 @@ public class ConcreteVerticesGraph implements Graph<String> {
         if (vertex == null) {
             throw new IllegalArgumentException("vertex cannot be null");
         }
-        
-        // Check if vertex already exists
-        for (Vertex v : vertices) {
-            if (v.getLabel().equals(vertex)) {
-                return false;
-            }
+        boolean added = addVertex(vertex);
+        if (added && checkRepAfterMutation()) {
+            checkVertexRep(vertex);
         }
-        
-        vertices.add(new Vertex(vertex));
-        checkRep();
-        return true;
+        return added;
     }
     
     @Override 
@@ -88,9 +230,10 @@ public class ConcreteVerticesGraph implements Graph<String> {
             throw new IllegalArgumentException("weight cannot be negative: " + weight);
         }
         
-        // Ensure vertices exist
-        add(source);
-        add(target);
+        // Ensure vertices exist; set() counts as one mutation however many
+        // vertices it adds
+        addVertex(source);
+        addVertex(target);
         
         // Find the vertices
         Vertex sourceVertex = findVertex(source);
@@ -109,7 +252,9 @@ public class ConcreteVerticesGraph implements Graph<String> {
             targetVertex.addIncomingEdge(source, weight);
         }
         
-        checkRep();
+        if (checkRepAfterMutation()) {
+            checkEdgeRep(source, target);
+        }
         return previousWeight;
     }
     
@@ -124,31 +269,49 @@ public class ConcreteVerticesGraph implements Graph<String> {
             return false;
         }
         
-        // Remove all edges to this vertex
-        for (Vertex v : vertices) {
-            boolean hadOutgoingEdge = v.removeOutgoingEdgeTo(vertex);
-            if (hadOutgoingEdge) {
-                // If we removed an outgoing edge to the vertex being removed,
-                // also remove the incoming edge from that vertex
-                vertexToRemove.removeIncomingEdge(v.getLabel());
-            }
-            v.removeIncomingEdge(vertex);
+        // Remove all edges to and from this vertex; only its neighbours
+        // can hold entries for it
+        List<String> sources = new ArrayList<>(vertexToRemove.getSources().keySet());
+        List<String> targets = new ArrayList<>(vertexToRemove.getTargets().keySet());
+        for (String source : sources) {
+            findVertex(source).removeOutgoingEdge(vertex);
+            vertexToRemove.removeIncomingEdge(source);
+        }
+        for (String target : targets) {
+            findVertex(target).removeIncomingEdge(vertex);
+            vertexToRemove.removeOutgoingEdge(target);
         }
         
-        // Remove the vertex itself
-        vertices.remove(vertexToRemove);
+        // Remove the vertex itself by moving the last vertex into its slot
+        int position = positions.remove(vertex);
+        Vertex last = vertices.remove(vertices.size() - 1);
+        if (last != vertexToRemove) {
+            vertices.set(position, last);
+            positions.put(last.getLabel(), position);
+        }
         
-        checkRep();
+        if (checkRepAfterMutation()) {
+            assert !positions.containsKey(vertex) : "removed vertex still indexed: " + vertex;
+            for (String source : sources) {
+                Vertex neighbour = findVertex(source);
+                assert neighbour == null || neighbour.getTargetWeight(vertex) == 0 :
+                    "edge to removed vertex remains: " + source + " -> " + vertex;
+            }
+            for (String target : targets) {
+                Vertex neighbour = findVertex(target);
+                assert neighbour == null || !neighbour.getSources().containsKey(vertex) :
+                    "edge from removed vertex remains: " + vertex + " -> " + target;
+            }
+            if (position < vertices.size()) {
+                checkVertexRep(vertices.get(position).getLabel());
+            }
+        }
         return true;
     }
     
     @Override 
     public Set<String> vertices() {
-        return Collections.unmodifiableSet(
-            vertices.stream()
-                .map(Vertex::getLabel)
-                .collect(Collectors.toSet())
-        );
+        return labels;
     }
     
     @Override 
@@ -162,7 +325,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
             return Collections.emptyMap();
         }
         
-        return Collections.unmodifiableMap(new HashMap<>(targetVertex.getSources()));
+        return targetVertex.getSources();
     }
     
     @Override 
@@ -176,7 +339,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
             return Collections.emptyMap();
         }
         
-        return Collections.unmodifiableMap(new HashMap<>(sourceVertex.getTargets()));
+        return sourceVertex.getTargets();
     }
     
     /**
@@ -186,12 +349,8 @@ public class ConcreteVerticesGraph implements Graph<String> {
      * @return the Vertex object with the given label, or null if not found
      */
     private Vertex findVertex(String label) {
-        for (Vertex vertex : vertices) {
-            if (vertex.getLabel().equals(label)) {
-                return vertex;
-            }
-        }
-        return null;
+        Integer position = positions.get(label);
+        return position == null ? null : vertices.get(position);
     }
     
     @Override
@@ -218,6 +377,8 @@ class Vertex {
     private final String label;
     private final Map<String, Integer> sources; // incoming edges: source -> weight
     private final Map<String, Integer> targets; // outgoing edges: target -> weight
+    private final Map<String, Integer> sourcesView;
+    private final Map<String, Integer> targetsView;
     
     // Abstraction function:
     //   Represents a vertex in a directed graph with:
@@ -230,8 +391,8 @@ class Vertex {
     //   - All weights in sources and targets > 0
     // Safety from rep exposure:
     //   - label is immutable String
-    //   - sources and targets are mutable but only exposed via unmodifiable maps
-    //   - All public methods return defensive copies or unmodifiable views
+    //   - sources and targets are mutable but only exposed via sourcesView
+    //     and targetsView, which are unmodifiable
     
     /**
      * Construct a Vertex with the given label.
@@ -247,6 +408,8 @@ class Vertex {
         this.label = label;
         this.sources = new HashMap<>();
         this.targets = new HashMap<>();
+        this.sourcesView = Collections.unmodifiableMap(sources);
+        this.targetsView = Collections.unmodifiableMap(targets);
         
         checkRep();
     }
@@ -268,6 +431,19 @@ class Vertex {
         }
     }
     
+    /**
+     * Check the part of the representation invariant about one edge, in
+     * constant time, so that mutators do not rescan every edge of the vertex.
+     * 
+     * @param edges sources or targets
+     * @param neighbour label of the other endpoint of the edge
+     */
+    private void checkEdgeRep(Map<String, Integer> edges, String neighbour) {
+        assert neighbour != null : "neighbour cannot be null";
+        Integer weight = edges.get(neighbour);
+        assert weight == null || weight > 0 : "weight must be positive: " + weight;
+    }
+    
     /**
      * @return the label of this vertex
      */
@@ -276,17 +452,17 @@ class Vertex {
     }
     
     /**
-     * @return an unmodifiable view of the incoming edges (source -> weight)
+     * @return an unmodifiable live view of the incoming edges (source -> weight)
      */
     public Map<String, Integer> getSources() {
-        return Collections.unmodifiableMap(sources);
+        return sourcesView;
     }
     
     /**
-     * @return an unmodifiable view of the outgoing edges (target -> weight)
+     * @return an unmodifiable live view of the outgoing edges (target -> weight)
      */
     public Map<String, Integer> getTargets() {
-        return Collections.unmodifiableMap(targets);
+        return targetsView;
     }
     
     /**
@@ -311,7 +487,7 @@ class Vertex {
             throw new IllegalArgumentException("weight must be positive: " + weight);
         }
         sources.put(source, weight);
-        checkRep();
+        checkEdgeRep(sources, source);
     }
     
     /**
@@ -326,7 +502,7 @@ class Vertex {
             throw new IllegalArgumentException("weight must be positive: " + weight);
         }
         targets.put(target, weight);
-        checkRep();
+        checkEdgeRep(targets, target);
     }
     
     /**
@@ -336,7 +512,7 @@ class Vertex {
      */
     public void removeIncomingEdge(String source) {
         sources.remove(source);
-        checkRep();
+        checkEdgeRep(sources, source);
     }
     
     /**
@@ -346,7 +522,7 @@ class Vertex {
      */
     public void removeOutgoingEdge(String target) {
         targets.remove(target);
-        checkRep();
+        checkEdgeRep(targets, target);
     }
     
     /**
@@ -358,7 +534,7 @@ class Vertex {
     public boolean removeOutgoingEdgeTo(String target) {
         boolean removed = targets.containsKey(target);
         targets.remove(target);
-        checkRep();
+        checkEdgeRep(targets, target);
         return removed;
     }
     
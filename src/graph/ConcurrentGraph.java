@@ -0,0 +1,303 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe implementation of Graph.
+ *
+ * <p>Mutators lock only the stripes of the vertices they touch: a fixed array
+ * of locks, each guarding the vertices whose labels hash to it. Mutations of
+ * unrelated vertices therefore run in parallel, and each mutation is atomic
+ * with respect to every other mutation; in particular {@link #remove(Object)}
+ * removes a vertex and all its edges in one step as seen by writers.
+ *
+ * <p>Observers take no locks. vertices(), sources() and targets() return
+ * unmodifiable live views whose iterators are weakly consistent, as for
+ * {@link ConcurrentHashMap}: they never throw
+ * {@link java.util.ConcurrentModificationException}, and reflect each
+ * completed mutation, but a reader running concurrently with a mutation of
+ * several edges (such as remove()) may see some of those edges changed and
+ * others not yet. Callers that need a consistent picture of several vertices
+ * must copy the views after writers have finished.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements Graph<L> {
+
+    private final ConcurrentHashMap<L, Node<L>> nodes = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final Set<L> vertices = Collections.unmodifiableSet(nodes.keySet());
+
+    // Abstraction function:
+    //   Represents the graph whose vertices are the keys of nodes, with an
+    //   edge from s to t of weight w iff nodes[s].targets[t] == w
+    // Representation invariant, whenever no mutator holds a lock:
+    //   - nodes[s].targets[t] == nodes[t].sources[s] for all vertices s, t
+    //   - every key of every targets or sources map is a vertex
+    //   - all weights > 0
+    //   - stripes.length is a power of two
+    // Thread safety argument:
+    //   - nodes and every targets and sources map are ConcurrentHashMaps, so
+    //     lock-free reads are safe and see completed writes
+    //   - every mutation of vertex v's node, or of entries keyed by v, is made
+    //     holding v's stripe; set() holds both endpoints' stripes, and
+    //     remove() holds the stripes of v and all of v's neighbours, which
+    //     cannot change while v's stripe is held
+    //   - stripes are always acquired in increasing index order, so mutators
+    //     cannot deadlock
+    // Safety from rep exposure:
+    //   - All fields are private and final
+    //   - vertices(), sources() and targets() return unmodifiable views
+
+    /**
+     * Construct an empty ConcurrentGraph with a number of lock stripes suited
+     * to the number of available processors.
+     */
+    public ConcurrentGraph() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct an empty ConcurrentGraph.
+     *
+     * @param concurrency expected number of concurrently mutating threads,
+     *        must be positive; rounded up to a power of two lock stripes
+     */
+    public ConcurrentGraph(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        int count = Integer.highestOneBit(Math.min(concurrency, 1 << 16) * 2 - 1);
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert Integer.bitCount(stripes.length) == 1 : "stripe count must be a power of two";
+    }
+
+    /**
+     * Check the part of the representation invariant about one edge; the
+     * caller must hold both endpoints' stripes.
+     */
+    private void checkEdgeRep(L source, L target) {
+        Node<L> sourceNode = nodes.get(source);
+        Node<L> targetNode = nodes.get(target);
+        assert sourceNode != null && targetNode != null : "edge endpoints must be vertices";
+        assert sourceNode.targets.getOrDefault(target, 0).equals(
+                targetNode.sources.getOrDefault(source, 0)) :
+            "edge recorded inconsistently: " + source + " -> " + target;
+    }
+
+    private int stripe(Object label) {
+        int h = label.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Lock stripes in increasing order.
+     *
+     * @param indexes sorted, distinct stripe indexes
+     */
+    private void lock(int[] indexes) {
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+    }
+
+    private void unlock(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    /**
+     * @return the node of vertex, creating it if needed; the caller must hold
+     *         vertex's stripe
+     */
+    private Node<L> node(L vertex) {
+        return nodes.computeIfAbsent(vertex, v -> new Node<>());
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        ReentrantLock lock = stripes[stripe(vertex)];
+        lock.lock();
+        try {
+            return nodes.putIfAbsent(vertex, new Node<>()) == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("source and target cannot be null");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight cannot be negative: " + weight);
+        }
+        int first = stripe(source);
+        int second = stripe(target);
+        int[] locks = first == second ? new int[] { first }
+            : new int[] { Math.min(first, second), Math.max(first, second) };
+        lock(locks);
+        try {
+            Node<L> sourceNode = node(source);
+            Node<L> targetNode = node(target);
+            Integer previous;
+            if (weight > 0) {
+                previous = sourceNode.targets.put(target, weight);
+                targetNode.sources.put(source, weight);
+            } else {
+                previous = sourceNode.targets.remove(target);
+                targetNode.sources.remove(source);
+            }
+            checkEdgeRep(source, target);
+            return previous == null ? 0 : previous;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        while (true) {
+            Node<L> guess = nodes.get(vertex);
+            if (guess == null) {
+                return false;
+            }
+            int[] locks = stripesOf(vertex, guess);
+            lock(locks);
+            try {
+                Node<L> node = nodes.get(vertex);
+                if (node == null) {
+                    return false;
+                }
+                // Holding vertex's stripe, its neighbours cannot change; if
+                // they all fall in stripes already held, remove everything
+                if (holdsNeighbours(locks, node)) {
+                    nodes.remove(vertex);
+                    for (L target : node.targets.keySet()) {
+                        if (!target.equals(vertex)) {
+                            nodes.get(target).sources.remove(vertex);
+                        }
+                    }
+                    for (L source : node.sources.keySet()) {
+                        if (!source.equals(vertex)) {
+                            nodes.get(source).targets.remove(vertex);
+                        }
+                    }
+                    return true;
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * @return sorted distinct stripes of vertex and of its neighbours in node
+     */
+    private int[] stripesOf(L vertex, Node<L> node) {
+        boolean[] needed = new boolean[stripes.length];
+        needed[stripe(vertex)] = true;
+        for (L target : node.targets.keySet()) {
+            needed[stripe(target)] = true;
+        }
+        for (L source : node.sources.keySet()) {
+            needed[stripe(source)] = true;
+        }
+        int[] indexes = new int[stripes.length];
+        int count = 0;
+        for (int i = 0; i < needed.length; i++) {
+            if (needed[i]) {
+                indexes[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    private boolean holdsNeighbours(int[] locks, Node<L> node) {
+        for (L target : node.targets.keySet()) {
+            if (Arrays.binarySearch(locks, stripe(target)) < 0) {
+                return false;
+            }
+        }
+        for (L source : node.sources.keySet()) {
+            if (Arrays.binarySearch(locks, stripe(source)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return vertices;
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target cannot be null");
+        }
+        Node<L> node = nodes.get(target);
+        return node == null ? Collections.emptyMap() : node.sourcesView;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        Node<L> node = nodes.get(source);
+        return node == null ? Collections.emptyMap() : node.targetsView;
+    }
+
+    @Override
+    public String toString() {
+        if (nodes.isEmpty()) {
+            return "Empty graph (0 vertices, 0 edges)";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Concurrent graph with ").append(nodes.size()).append(" vertices:\n");
+        for (Map.Entry<L, Node<L>> entry : nodes.entrySet()) {
+            sb.append("  ").append(entry.getKey()).append(" -> ")
+              .append(entry.getValue().targets).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Adjacency of one vertex of a ConcurrentGraph.
+     */
+    private static class Node<L> {
+        final ConcurrentHashMap<L, Integer> targets = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<L, Integer> sources = new ConcurrentHashMap<>();
+        final Map<L, Integer> targetsView = Collections.unmodifiableMap(targets);
+        final Map<L, Integer> sourcesView = Collections.unmodifiableMap(sources);
+    }
+}
@@ -0,0 +1,463 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable Graph stored in compressed sparse row (CSR) form.
+ *
+ * <p>Each vertex has a dense int ID in [0, {@link #vertexCount()}).
+ * The out-edges of vertex v are stored contiguously, sorted by target ID, at
+ * positions [{@link #outStart(int) outStart(v)}, {@link #outEnd(int) outEnd(v)})
+ * of a shared neighbour array and a parallel weight array; in-edges are stored
+ * the same way.
+ * A frozen graph therefore uses a few ints per edge instead of an edge object,
+ * map entries and boxed weights, and neighbour scans walk contiguous arrays.
+ *
+ * <p>The mutators {@link #add(Object) add}, {@link #set(Object, Object, int) set}
+ * and {@link #remove(Object) remove} throw {@link UnsupportedOperationException}.
+ * The maps and sets returned by the observers are unmodifiable views.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class FrozenGraph<L> implements Graph<L> {
+
+    private final LabelDictionary<L> labels;
+    private final int[] outOffsets;
+    private final int[] outNeighbours;
+    private final int[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inNeighbours;
+    private final int[] inWeights;
+    private final Set<L> vertices = new VertexSet();
+
+    // Abstraction function:
+    //   Represents the graph with vertices labels.label(0..n-1), where
+    //   n = labels.size(), and for each vertex v and each i in
+    //   [outOffsets[v], outOffsets[v+1]), an edge from v to outNeighbours[i]
+    //   with weight outWeights[i]
+    //   - inOffsets, inNeighbours, inWeights store the same edges grouped by
+    //     target
+    // Representation invariant:
+    //   - outOffsets.length == inOffsets.length == n + 1,
+    //     outOffsets[0] == inOffsets[0] == 0, both nondecreasing, and
+    //     outOffsets[n] == inOffsets[n] == number of edges == length of the
+    //     neighbour and weight arrays
+    //   - neighbour IDs are in [0, n) and strictly increasing within each row
+    //   - all weights > 0
+    //   - the in arrays are exactly the transpose of the out arrays
+    // Safety from rep exposure:
+    //   - All fields are private and final; arrays are never exposed
+    //   - vertices(), sources() and targets() return unmodifiable views
+
+    private FrozenGraph(LabelDictionary<L> labels,
+            int[] outOffsets, int[] outNeighbours, int[] outWeights) {
+        this.labels = labels;
+        int n = labels.size();
+        int[][] in = transpose(n, outOffsets, outNeighbours, outWeights);
+        this.inOffsets = in[0];
+        this.inNeighbours = in[1];
+        this.inWeights = in[2];
+        // Transposing twice sorts every out row by target ID
+        int[][] out = transpose(n, inOffsets, inNeighbours, inWeights);
+        this.outOffsets = out[0];
+        this.outNeighbours = out[1];
+        this.outWeights = out[2];
+        checkRep();
+    }
+
+    /**
+     * Make an immutable copy of a graph.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph graph to copy, not null
+     * @return a frozen graph with the same vertices and edges as graph;
+     *         graph itself if it is already a FrozenGraph
+     */
+    public static <L> FrozenGraph<L> of(Graph<L> graph) {
+        if (graph instanceof FrozenGraph) {
+            return (FrozenGraph<L>) graph;
+        }
+        Set<L> vertexLabels = graph.vertices();
+        LabelDictionary<L> labels = new LabelDictionary<>(vertexLabels.size());
+        for (L vertex : vertexLabels) {
+            labels.intern(vertex);
+        }
+        int n = labels.size();
+        int[] offsets = new int[n + 1];
+        int[] neighbours = new int[Math.max(n, 16)];
+        int[] weights = new int[neighbours.length];
+        int edges = 0;
+        for (int v = 0; v < n; v++) {
+            Map<L, Integer> targets = graph.targets(labels.label(v));
+            if (edges + targets.size() > neighbours.length) {
+                int capacity = Math.max(neighbours.length * 2, edges + targets.size());
+                neighbours = Arrays.copyOf(neighbours, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+                neighbours[edges] = labels.id(edge.getKey());
+                weights[edges] = edge.getValue();
+                edges++;
+            }
+            offsets[v + 1] = edges;
+        }
+        return new FrozenGraph<>(labels, offsets, neighbours, weights);
+    }
+
+    /**
+     * Transpose CSR arrays with a counting sort. Rows of the result are sorted
+     * by neighbour ID.
+     *
+     * @return {offsets, neighbours, weights} of the transposed graph
+     */
+    private static int[][] transpose(int n, int[] offsets, int[] neighbours, int[] weights) {
+        int edges = offsets[n];
+        int[] tOffsets = new int[n + 1];
+        for (int i = 0; i < edges; i++) {
+            tOffsets[neighbours[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            tOffsets[v + 1] += tOffsets[v];
+        }
+        int[] next = Arrays.copyOf(tOffsets, n);
+        int[] tNeighbours = new int[edges];
+        int[] tWeights = new int[edges];
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int slot = next[neighbours[i]]++;
+                tNeighbours[slot] = v;
+                tWeights[slot] = weights[i];
+            }
+        }
+        return new int[][] { tOffsets, tNeighbours, tWeights };
+    }
+
+    /**
+     * Check the representation invariant, in time linear in the size of the
+     * graph, if assertions are enabled.
+     */
+    private void checkRep() {
+        if (!RepCheck.ASSERTIONS_ENABLED) {
+            return;
+        }
+        int n = labels.size();
+        assert outOffsets.length == n + 1 && inOffsets.length == n + 1 : "bad offsets length";
+        assert outOffsets[n] == outNeighbours.length && outNeighbours.length == outWeights.length
+            : "bad out array lengths";
+        assert inOffsets[n] == inNeighbours.length && inNeighbours.length == inWeights.length
+            : "bad in array lengths";
+        assert outNeighbours.length == inNeighbours.length : "in and out edge counts differ";
+        checkRows(n, outOffsets, outNeighbours, outWeights);
+        checkRows(n, inOffsets, inNeighbours, inWeights);
+    }
+
+    private static void checkRows(int n, int[] offsets, int[] neighbours, int[] weights) {
+        for (int v = 0; v < n; v++) {
+            assert offsets[v] <= offsets[v + 1] : "offsets must be nondecreasing";
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                assert neighbours[i] >= 0 && neighbours[i] < n : "bad neighbour ID";
+                assert i == offsets[v] || neighbours[i - 1] < neighbours[i] : "row not sorted";
+                assert weights[i] > 0 : "weight must be positive: " + weights[i];
+            }
+        }
+    }
+
+    /**
+     * @return number of vertices in this graph
+     */
+    public int vertexCount() {
+        return labels.size();
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        return outNeighbours.length;
+    }
+
+    /**
+     * @param vertex a label
+     * @return the ID of vertex in [0, vertexCount()), or -1 if it is not a
+     *         vertex of this graph
+     */
+    public int id(L vertex) {
+        return labels.id(vertex);
+    }
+
+    /**
+     * @param id a vertex ID in [0, vertexCount())
+     * @return the label of that vertex
+     */
+    public L label(int id) {
+        return labels.label(id);
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return position of the first out-edge of that vertex
+     */
+    public int outStart(int id) {
+        return outOffsets[id];
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return position just past the last out-edge of that vertex
+     */
+    public int outEnd(int id) {
+        return outOffsets[id + 1];
+    }
+
+    /**
+     * @param position an out-edge position in [0, edgeCount())
+     * @return ID of the target of that edge
+     */
+    public int outNeighbour(int position) {
+        return outNeighbours[position];
+    }
+
+    /**
+     * @param position an out-edge position in [0, edgeCount())
+     * @return weight of that edge
+     */
+    public int outWeight(int position) {
+        return outWeights[position];
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return position of the first in-edge of that vertex
+     */
+    public int inStart(int id) {
+        return inOffsets[id];
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return position just past the last in-edge of that vertex
+     */
+    public int inEnd(int id) {
+        return inOffsets[id + 1];
+    }
+
+    /**
+     * @param position an in-edge position in [0, edgeCount())
+     * @return ID of the source of that edge
+     */
+    public int inNeighbour(int position) {
+        return inNeighbours[position];
+    }
+
+    /**
+     * @param position an in-edge position in [0, edgeCount())
+     * @return weight of that edge
+     */
+    public int inWeight(int position) {
+        return inWeights[position];
+    }
+
+    /**
+     * @param source a vertex ID
+     * @param target a vertex ID
+     * @return weight of the edge from source to target, or 0 if there is none
+     */
+    public int weight(int source, int target) {
+        int position = Arrays.binarySearch(
+                outNeighbours, outOffsets[source], outOffsets[source + 1], target);
+        return position >= 0 ? outWeights[position] : 0;
+    }
+
+    /**
+     * Unsupported: frozen graphs are immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    /**
+     * Unsupported: frozen graphs are immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    /**
+     * Unsupported: frozen graphs are immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("frozen graph cannot be modified");
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return vertices;
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        int id = labels.id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(inOffsets[id], inOffsets[id + 1], inNeighbours, inWeights);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        int id = labels.id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(outOffsets[id], outOffsets[id + 1], outNeighbours, outWeights);
+    }
+
+    @Override
+    public String toString() {
+        if (labels.size() == 0) {
+            return "Empty graph (0 vertices, 0 edges)";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Frozen graph with ").append(labels.size()).append(" vertices and ")
+          .append(edgeCount()).append(" edges:\n");
+        for (int v = 0; v < labels.size(); v++) {
+            sb.append("  ").append(labels.label(v)).append(" -> {");
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                if (i > outOffsets[v]) {
+                    sb.append(", ");
+                }
+                sb.append(labels.label(outNeighbours[i])).append('=').append(outWeights[i]);
+            }
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Unmodifiable view of the vertex labels.
+     */
+    private class VertexSet extends AbstractSet<L> {
+
+        @Override
+        public int size() {
+            return labels.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return labels.id(o) >= 0;
+        }
+
+        @Override
+        public Iterator<L> iterator() {
+            return new Iterator<L>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < labels.size();
+                }
+
+                @Override
+                public L next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return labels.label(next++);
+                }
+            };
+        }
+    }
+
+    /**
+     * Unmodifiable view of one row of CSR arrays as a map from neighbour label
+     * to edge weight.
+     */
+    private class Row extends AbstractMap<L, Integer> {
+
+        private final int start;
+        private final int end;
+        private final int[] neighbours;
+        private final int[] weights;
+
+        Row(int start, int end, int[] neighbours, int[] weights) {
+            this.start = start;
+            this.end = end;
+            this.neighbours = neighbours;
+            this.weights = weights;
+        }
+
+        private int find(Object key) {
+            int id = labels.id(key);
+            return id < 0 ? -1 : Arrays.binarySearch(neighbours, start, end, id);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int position = find(key);
+            return position >= 0 ? weights[position] : null;
+        }
+
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public int size() {
+                    return end - start;
+                }
+
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = start;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < end;
+                        }
+
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int position = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    labels.label(neighbours[position]), weights[position]);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
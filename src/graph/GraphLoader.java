@@ -0,0 +1,369 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Mutable builder that accumulates a batch of vertices and weighted edges and
+ * then applies them to a graph in one pass.
+ *
+ * <p>Edges are staged as (source, target, delta) triples; deltas for the same
+ * source and target add up, and on {@link #commit(Graph) commit} each staged
+ * edge's total is added to the weight the edge already has in the graph.
+ * Staging costs O(1) per triple with no boxing: labels are mapped to int IDs
+ * once, and totals are kept in an open-addressing table keyed on ID pairs.
+ * Commit makes one {@link Graph#set(Object, Object, int) set} call per
+ * distinct edge, however many triples were staged for it. A
+ * ConcreteEdgesGraph or ConcreteVerticesGraph checking its rep at a sampled
+ * level checks the whole rep once at the end of a commit instead of after
+ * each of those calls; at the other levels a commit costs no more checking
+ * than the same calls to set().
+ *
+ * <p>Each commit is reported to Java Flight Recorder as a
+ * {@code graph.MutationBatch} event.
+ *
+ * <p>For example, counting the bigrams of a list of words:
+ * <pre>    new GraphLoader&lt;String&gt;().addPath(words).commit(Graph.empty())</pre>
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class GraphLoader<L> {
+
+    private static final int EMPTY = -1;
+
+    private LabelDictionary<L> labels = new LabelDictionary<>(16);
+    private long[] pairs = new long[8];
+    private int[] totals = new int[8];
+    private int pairCount = 0;
+    private int[] slots = emptySlots(16);
+
+    // Abstraction function:
+    //   Represents the staged vertices labels.label(0 .. idLimit()-1), in
+    //   that order, and the staged edges
+    //   labels.label(source(pairs[i])) -> labels.label(target(pairs[i]))
+    //   with total delta totals[i], for 0 <= i < pairCount, in that order
+    // Representation invariant:
+    //   - no label has been removed from labels, so its IDs are
+    //     0 .. labels.size()-1 in the order the labels were first staged
+    //   - pairs.length == totals.length >= pairCount
+    //   - pairs[0..pairCount) are distinct, and both IDs of each are IDs of
+    //     labels
+    //   - totals[0..pairCount) > 0
+    //   - slots.length is a power of two, greater than 2 * pairCount
+    //   - each i in [0, pairCount) appears in exactly one slot, reachable by
+    //     linear probing from the home slot of pairs[i] without crossing an
+    //     EMPTY slot; other slots are EMPTY
+    // Safety from rep exposure:
+    //   - All fields are private; labels are immutable; arrays are never
+    //     exposed
+
+    /**
+     * Make a loader with nothing staged.
+     */
+    public GraphLoader() {
+        checkRep();
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert pairs.length == totals.length && pairs.length >= pairCount : "arrays too short";
+        assert Integer.bitCount(slots.length) == 1 : "table size must be a power of two";
+        assert slots.length > 2 * pairCount : "table too full";
+    }
+
+    private static int[] emptySlots(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static long pair(int source, int target) {
+        return (long) source << 32 | target;
+    }
+
+    private static int source(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int target(long pair) {
+        return (int) pair;
+    }
+
+    private static int home(long pair, int mask) {
+        long h = pair * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * Stage a vertex.
+     *
+     * @param vertex label of the vertex, not null
+     * @return this loader
+     */
+    public GraphLoader<L> add(L vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        labels.intern(vertex);
+        return this;
+    }
+
+    /**
+     * Stage an edge weight increase. Its endpoints are staged as vertices.
+     *
+     * @param source label of the source vertex, not null
+     * @param target label of the target vertex, not null
+     * @param delta amount to add to the weight of the edge, must be positive
+     * @return this loader
+     * @throws ArithmeticException if the staged total for this edge would
+     *         exceed Integer.MAX_VALUE
+     */
+    public GraphLoader<L> add(L source, L target, int delta) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("source and target cannot be null");
+        }
+        if (delta <= 0) {
+            throw new IllegalArgumentException("delta must be positive: " + delta);
+        }
+        accumulate(labels.intern(source), labels.intern(target), delta);
+        return this;
+    }
+
+    /**
+     * Stage each label of a path as a vertex, and an increase of 1 in the
+     * weight of the edge between each label and the next.
+     *
+     * @param path labels, none null
+     * @return this loader
+     * @throws ArithmeticException if the staged total for an edge would exceed
+     *         Integer.MAX_VALUE
+     */
+    public GraphLoader<L> addPath(Iterable<? extends L> path) {
+        Iterator<? extends L> iterator = path.iterator();
+        if (!iterator.hasNext()) {
+            return this;
+        }
+        L first = iterator.next();
+        if (first == null) {
+            throw new IllegalArgumentException("path labels cannot be null");
+        }
+        int previous = labels.intern(first);
+        while (iterator.hasNext()) {
+            L next = iterator.next();
+            if (next == null) {
+                throw new IllegalArgumentException("path labels cannot be null");
+            }
+            int id = labels.intern(next);
+            accumulate(previous, id, 1);
+            previous = id;
+        }
+        return this;
+    }
+
+    /**
+     * Stage everything staged in another loader, as if each of its add calls
+     * had been made on this loader in the order its vertices and edges were
+     * first staged. The other loader is unchanged.
+     *
+     * @param other loader to copy from, not this loader
+     * @return this loader
+     * @throws ArithmeticException if the staged total for an edge would exceed
+     *         Integer.MAX_VALUE
+     */
+    public GraphLoader<L> addAll(GraphLoader<? extends L> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot add a loader to itself");
+        }
+        int[] ids = new int[other.labels.idLimit()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = labels.intern(other.labels.label(id));
+        }
+        for (int i = 0; i < other.pairCount; i++) {
+            accumulate(ids[source(other.pairs[i])], ids[target(other.pairs[i])], other.totals[i]);
+        }
+        return this;
+    }
+
+    private void accumulate(int source, int target, int delta) {
+        long key = pair(source, target);
+        int mask = slots.length - 1;
+        int slot = home(key, mask);
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int i = slots[slot];
+            if (pairs[i] == key) {
+                totals[i] = Math.addExact(totals[i], delta);
+                return;
+            }
+        }
+        if (pairCount == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairCount * 2);
+            totals = Arrays.copyOf(totals, pairCount * 2);
+        }
+        pairs[pairCount] = key;
+        totals[pairCount] = delta;
+        slots[slot] = pairCount;
+        pairCount++;
+        if (slots.length <= 2 * pairCount) {
+            rehash(slots.length * 2);
+        }
+        checkRep();
+    }
+
+    private void rehash(int tableSize) {
+        slots = emptySlots(tableSize);
+        int mask = tableSize - 1;
+        for (int i = 0; i < pairCount; i++) {
+            int slot = home(pairs[i], mask);
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i;
+        }
+    }
+
+    /**
+     * @return number of distinct vertices staged
+     */
+    public int stagedVertices() {
+        return labels.size();
+    }
+
+    /**
+     * @return number of distinct edges staged
+     */
+    public int stagedEdges() {
+        return pairCount;
+    }
+
+    /**
+     * @param source label of a source vertex
+     * @param target label of a target vertex
+     * @return the total delta staged for the edge from source to target, or 0
+     *         if none is staged
+     */
+    public int staged(L source, L target) {
+        int s = labels.id(source);
+        int t = labels.id(target);
+        if (s < 0 || t < 0) {
+            return 0;
+        }
+        long key = pair(s, t);
+        int mask = slots.length - 1;
+        for (int slot = home(key, mask); slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (pairs[slots[slot]] == key) {
+                return totals[slots[slot]];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Apply everything staged to a graph, then clear this loader.
+     *
+     * <p>Adds the staged vertices in the order they were first staged, then
+     * increases the weight of each staged edge, in the order it was first
+     * staged, by its total delta. Every new weight is computed before the
+     * graph is changed, so if one would overflow, graph is left unchanged and
+     * so is this loader. The weight of each edge is written once, so a
+     * concurrent reader never sees it below its old weight; a VersionedGraph
+     * gets the whole batch as one new version.
+     *
+     * @param <G> type of graph
+     * @param graph graph to modify
+     * @return graph
+     * @throws ArithmeticException if the new weight of an edge would exceed
+     *         Integer.MAX_VALUE
+     */
+    public <G extends Graph<L>> G commit(G graph) {
+        MutationBatchEvent event = new MutationBatchEvent();
+        event.begin();
+        long mutations = labels.idLimit() + pairCount;
+        if (graph instanceof VersionedGraph) {
+            ((VersionedGraph<L>) graph).update(this::apply);
+        } else {
+            beginBulk(graph);
+            try {
+                apply(graph);
+            } finally {
+                endBulk(graph);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.operation = "GraphLoader.commit";
+            event.graphClass = graph.getClass().getName();
+            event.mutations = mutations;
+            event.vertices = graph.vertices().size();
+            event.commit();
+        }
+        clear();
+        return graph;
+    }
+
+    private void apply(Graph<L> graph) {
+        // Group the staged edges by source with a counting sort, so that each
+        // source's row is fetched once even from a graph whose targets()
+        // copies it
+        int[] starts = new int[labels.idLimit() + 1];
+        for (int i = 0; i < pairCount; i++) {
+            starts[source(pairs[i]) + 1]++;
+        }
+        for (int id = 0; id < labels.idLimit(); id++) {
+            starts[id + 1] += starts[id];
+        }
+        int[] bySource = new int[pairCount];
+        int[] next = Arrays.copyOf(starts, labels.idLimit());
+        for (int i = 0; i < pairCount; i++) {
+            bySource[next[source(pairs[i])]++] = i;
+        }
+        int[] weights = new int[pairCount];
+        for (int id = 0; id < labels.idLimit(); id++) {
+            if (starts[id] == starts[id + 1]) {
+                continue;
+            }
+            Map<L, Integer> row = graph.targets(labels.label(id));
+            for (int k = starts[id]; k < starts[id + 1]; k++) {
+                int i = bySource[k];
+                Integer previous = row.get(labels.label(target(pairs[i])));
+                weights[i] = previous == null ? totals[i] : Math.addExact(previous, totals[i]);
+            }
+        }
+        for (int id = 0; id < labels.idLimit(); id++) {
+            graph.add(labels.label(id));
+        }
+        for (int i = 0; i < pairCount; i++) {
+            graph.set(labels.label(source(pairs[i])), labels.label(target(pairs[i])), weights[i]);
+        }
+    }
+
+    private static void beginBulk(Graph<?> graph) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            ((ConcreteEdgesGraph) graph).beginBulk();
+        } else if (graph instanceof ConcreteVerticesGraph) {
+            ((ConcreteVerticesGraph) graph).beginBulk();
+        }
+    }
+
+    private static void endBulk(Graph<?> graph) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            ((ConcreteEdgesGraph) graph).endBulk();
+        } else if (graph instanceof ConcreteVerticesGraph) {
+            ((ConcreteVerticesGraph) graph).endBulk();
+        }
+    }
+
+    /**
+     * Discard everything staged.
+     */
+    public void clear() {
+        labels = new LabelDictionary<>(16);
+        pairCount = 0;
+        Arrays.fill(slots, EMPTY);
+        checkRep();
+    }
+}
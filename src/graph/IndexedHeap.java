@@ -0,0 +1,214 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Mutable binary min-heap of int items in [0, capacity) keyed by doubles,
+ * with decrease-key, and with no boxing.
+ *
+ * <p>Each item's position in the heap is kept in an array indexed by item, so
+ * {@link #contains(int)} is O(1) and {@link #offer(int, double)} can lower
+ * the key of an item already in the heap in O(log n).
+ * {@link #clear()} takes time proportional to the number of items left in the
+ * heap, not to its capacity, so one heap can serve many small searches.
+ * This class is internal to the shortest-path search.
+ */
+class IndexedHeap {
+
+    private static final int ABSENT = -1;
+
+    private int[] heap;       // heap[0 .. size-1] are the items, heap-ordered
+    private int[] position;   // position[item] is its index in heap, or ABSENT
+    private double[] keys;    // keys[item] is its key while it is in the heap
+    private int size = 0;
+
+    // Abstraction function:
+    //   Represents the set of items heap[0 .. size-1], item heap[i] having
+    //   key keys[heap[i]]
+    // Representation invariant:
+    //   - heap.length == position.length == keys.length
+    //   - 0 <= size <= heap.length
+    //   - position[heap[i]] == i for i in [0, size); position[item] == ABSENT
+    //     for every other item
+    //   - keys[heap[(i-1)/2]] <= keys[heap[i]] for i in [1, size)
+    // Safety from rep exposure:
+    //   - All fields are private; arrays are never exposed
+
+    /**
+     * Make an empty heap.
+     *
+     * @param capacity one more than the largest item, nonnegative
+     */
+    IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(position, ABSENT);
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert heap.length == position.length && heap.length == keys.length
+            : "array lengths differ";
+        assert size >= 0 && size <= heap.length : "bad size";
+        assert size == 0 || position[heap[0]] == 0 : "position out of date";
+    }
+
+    /**
+     * @return one more than the largest item the heap can hold
+     */
+    int capacity() {
+        return heap.length;
+    }
+
+    /**
+     * Make room for items up to capacity-1. Does nothing if there is already
+     * room.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > heap.length) {
+            int old = heap.length;
+            heap = Arrays.copyOf(heap, capacity);
+            position = Arrays.copyOf(position, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            Arrays.fill(position, old, capacity, ABSENT);
+        }
+    }
+
+    /**
+     * @return number of items in the heap
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true iff the heap has no items
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param item an item in [0, capacity())
+     * @return true iff item is in the heap
+     */
+    boolean contains(int item) {
+        return position[item] != ABSENT;
+    }
+
+    /**
+     * Add an item, or lower its key if it is already in the heap with a
+     * greater one.
+     *
+     * @param item an item in [0, capacity())
+     * @param key its key
+     * @return true iff the item was added or its key lowered
+     */
+    boolean offer(int item, double key) {
+        int i = position[item];
+        if (i == ABSENT) {
+            i = size++;
+        } else if (key >= keys[item]) {
+            return false;
+        }
+        keys[item] = key;
+        siftUp(i, item);
+        checkRep();
+        return true;
+    }
+
+    /**
+     * @return the least key in the heap, which must not be empty
+     */
+    double minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Remove the item with the least key, which is any of them in case of a
+     * tie.
+     *
+     * @return that item; the heap must not be empty
+     */
+    int poll() {
+        int min = heap[0];
+        position[min] = ABSENT;
+        int last = heap[--size];
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        checkRep();
+        return min;
+    }
+
+    /**
+     * Remove every item.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    /**
+     * Move item up from index i to its place, shifting parents down.
+     */
+    private void siftUp(int i, int item) {
+        double key = keys[item];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int above = heap[parent];
+            if (keys[above] <= key) {
+                break;
+            }
+            heap[i] = above;
+            position[above] = i;
+            i = parent;
+        }
+        heap[i] = item;
+        position[item] = i;
+    }
+
+    /**
+     * Move item down from index i to its place, shifting children up.
+     */
+    private void siftDown(int i, int item) {
+        double key = keys[item];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int below = heap[child];
+            if (key <= keys[below]) {
+                break;
+            }
+            heap[i] = below;
+            position[below] = i;
+            i = child;
+        }
+        heap[i] = item;
+        position[item] = i;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(heap[i]).append('=').append(keys[heap[i]]);
+        }
+        return sb.append(']').toString();
+    }
+}
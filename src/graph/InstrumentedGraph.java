@@ -0,0 +1,500 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A Graph that forwards every operation to another graph and measures it.
+ *
+ * <p>For each kind of {@link Operation operation} it counts calls, records
+ * their latencies in a log-linear histogram, and for observers records the
+ * size of the result, such as the number of neighbours returned by
+ * {@link #targets(Object)}. It also tracks the number of edges. Measurements
+ * can be read with {@link #stats(Operation)}, or through JMX once the graph is
+ * {@link #register(String) registered}.
+ *
+ * <p>Measuring can be turned {@link #setEnabled(boolean) off}; each operation
+ * then costs one volatile read more than the wrapped graph's.
+ *
+ * <p>The histograms have 64 sub-buckets per power of two, so a recorded
+ * latency is exact below 128 ns and otherwise within 1/64 of the true value,
+ * up to about 18 minutes; longer latencies are recorded as 18 minutes.
+ *
+ * <p>Instrumentation is thread-safe, so this graph is as thread-safe as the
+ * graph it wraps. The edge count is exact when mutations are not concurrent;
+ * a remove() concurrent with a mutation of the same vertex's edges may leave
+ * it off by the edges changed meanwhile.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class InstrumentedGraph<L> implements Graph<L>, InstrumentedGraphMXBean {
+
+    /** Kinds of measured operation. */
+    public enum Operation { ADD, SET, REMOVE, VERTICES, SOURCES, TARGETS }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Histogram layout: values below 2^SUB_BITS are exact; above, each power
+    // of two is split into 2^(SUB_BITS-1) buckets
+    private static final int SUB_BITS = 7;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * HALF;
+    private static final long MAX_TRACKABLE = (1L << MAX_EXPONENT) - 1;
+
+    private final Graph<L> delegate;
+    private final Recorder[] recorders = new Recorder[OPERATIONS.length];
+    private final LongAdder edges = new LongAdder();
+    private volatile boolean enabled;
+    private ObjectName registeredName = null;
+
+    // Abstraction function:
+    //   Represents the graph delegate, measured by recorders[op.ordinal()]
+    //   for each operation op; while enabled, edges counts its edges
+    // Representation invariant:
+    //   - delegate != null
+    //   - recorders[i] != null for every operation ordinal i
+    // Thread safety argument:
+    //   - recorders and edges are updated only with atomic operations, and
+    //     enabled is volatile
+    //   - registeredName is only accessed while holding this object's lock
+    // Safety from rep exposure:
+    //   - All fields are private; recorders are never returned, only copied
+    //     into immutable OperationStats
+    //   - vertices(), sources() and targets() return what delegate returns,
+    //     with the same guarantees
+
+    /**
+     * Wrap a graph, measuring its operations from now on.
+     *
+     * @param delegate graph to forward operations to; it should not be
+     *        mutated except through this graph, or the edge count will be
+     *        wrong
+     */
+    public InstrumentedGraph(Graph<L> delegate) {
+        this(delegate, true);
+    }
+
+    /**
+     * Wrap a graph.
+     *
+     * @param delegate graph to forward operations to; it should not be
+     *        mutated except through this graph, or the edge count will be
+     *        wrong
+     * @param enabled true to measure operations from now on, false to measure
+     *        them only once {@link #setEnabled(boolean) enabled}
+     */
+    public InstrumentedGraph(Graph<L> delegate, boolean enabled) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder();
+        }
+        setEnabled(enabled);
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert delegate != null : "delegate cannot be null";
+        for (Recorder recorder : recorders) {
+            assert recorder != null : "missing recorder";
+        }
+    }
+
+    /**
+     * @param value a latency in nanoseconds, nonnegative
+     * @return index of the histogram bucket holding value
+     */
+    static int bucket(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        value = Math.min(value, MAX_TRACKABLE);
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket a histogram bucket index
+     * @return largest value recorded in that bucket
+     */
+    static long highestInBucket(int bucket) {
+        if (bucket < 2 * HALF) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        long mantissa = bucket % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Enabling counts the edges of the graph, which takes time linear in
+     * its size; it should not run concurrently with mutations.
+     */
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            long count = 0;
+            for (L vertex : delegate.vertices()) {
+                count += delegate.targets(vertex).size();
+            }
+            edges.reset();
+            edges.add(count);
+        }
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return delegate.vertices().size();
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return enabled ? edges.sum() : -1;
+    }
+
+    /**
+     * Get the measurements of one kind of operation.
+     *
+     * @param operation kind of operation
+     * @return its measurements so far
+     */
+    public OperationStats stats(Operation operation) {
+        return recorders[operation.ordinal()].snapshot();
+    }
+
+    @Override
+    public Map<String, OperationStats> getOperations() {
+        Map<String, OperationStats> operations = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            operations.put(operation.name(), stats(operation));
+        }
+        return Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * @return measurements of every kind of operation
+     */
+    public Map<Operation, OperationStats> stats() {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : OPERATIONS) {
+            stats.put(operation, stats(operation));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public void reset() {
+        for (Recorder recorder : recorders) {
+            recorder.reset();
+        }
+    }
+
+    /**
+     * Register this graph with the platform MBean server, under the name
+     * {@code graph:type=InstrumentedGraph,name=}<i>name</i>, replacing any
+     * earlier registration of this graph.
+     *
+     * @param name name distinguishing this graph from others, without
+     *        {@code , = : " *} or {@code ?}
+     * @return the name this graph is registered under
+     * @throws JMException if the name is malformed or already taken
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("graph:type=InstrumentedGraph,name=" + name);
+        unregister();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Unregister this graph from the platform MBean server, if it is
+     * registered.
+     *
+     * @throws JMException if it cannot be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        if (registeredName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(registeredName)) {
+                server.unregisterMBean(registeredName);
+            }
+            registeredName = null;
+        }
+    }
+
+    private void record(Operation operation, long start, int resultSize) {
+        recorders[operation.ordinal()].record(System.nanoTime() - start, resultSize);
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        if (!enabled) {
+            return delegate.add(vertex);
+        }
+        long start = System.nanoTime();
+        boolean added = delegate.add(vertex);
+        record(Operation.ADD, start, -1);
+        return added;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        if (!enabled) {
+            return delegate.set(source, target, weight);
+        }
+        long start = System.nanoTime();
+        int previous = delegate.set(source, target, weight);
+        record(Operation.SET, start, -1);
+        if (previous == 0 && weight > 0) {
+            edges.increment();
+        } else if (previous > 0 && weight == 0) {
+            edges.decrement();
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        if (!enabled) {
+            return delegate.remove(vertex);
+        }
+        Map<L, Integer> out = delegate.targets(vertex);
+        int degree = delegate.sources(vertex).size() + out.size()
+                - (out.containsKey(vertex) ? 1 : 0);
+        long start = System.nanoTime();
+        boolean removed = delegate.remove(vertex);
+        record(Operation.REMOVE, start, -1);
+        if (removed) {
+            edges.add(-degree);
+        }
+        return removed;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        if (!enabled) {
+            return delegate.vertices();
+        }
+        long start = System.nanoTime();
+        Set<L> vertices = delegate.vertices();
+        record(Operation.VERTICES, start, vertices.size());
+        return vertices;
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        if (!enabled) {
+            return delegate.sources(target);
+        }
+        long start = System.nanoTime();
+        Map<L, Integer> sources = delegate.sources(target);
+        record(Operation.SOURCES, start, sources.size());
+        return sources;
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        if (!enabled) {
+            return delegate.targets(source);
+        }
+        long start = System.nanoTime();
+        Map<L, Integer> targets = delegate.targets(source);
+        record(Operation.TARGETS, start, targets.size());
+        return targets;
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * Mutable, thread-safe measurements of one kind of operation.
+     */
+    private static final class Recorder {
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalResultSize = new LongAdder();
+        private final LongAccumulator maxResultSize = new LongAccumulator(Math::max, 0);
+
+        /**
+         * @param nanos latency of a call
+         * @param resultSize size of its result, or -1 if it has none
+         */
+        void record(long nanos, int resultSize) {
+            nanos = Math.max(0, nanos);
+            histogram.incrementAndGet(bucket(nanos));
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (resultSize >= 0) {
+                totalResultSize.add(resultSize);
+                maxResultSize.accumulate(resultSize);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+            totalNanos.reset();
+            maxNanos.reset();
+            totalResultSize.reset();
+            maxResultSize.reset();
+        }
+
+        OperationStats snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+            }
+            return new OperationStats(counts, totalNanos.sum(), maxNanos.get(),
+                    totalResultSize.sum(), maxResultSize.get());
+        }
+    }
+
+    /**
+     * Immutable measurements of one kind of operation. Getters are named for
+     * JMX, which shows each as an attribute.
+     */
+    public static final class OperationStats {
+
+        private final long[] counts;
+        private final long calls;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long totalResultSize;
+        private final long maxResultSize;
+
+        // Abstraction function:
+        //   Represents calls calls, of which counts[b] took a latency in
+        //   histogram bucket b, taking totalNanos in all and at most maxNanos
+        //   each, and returning results of total size totalResultSize and
+        //   at most maxResultSize each
+        // Representation invariant:
+        //   - calls == sum of counts; all fields nonnegative
+        // Safety from rep exposure:
+        //   - All fields are private and final; counts is never returned
+
+        private OperationStats(long[] counts, long totalNanos, long maxNanos,
+                long totalResultSize, long maxResultSize) {
+            this.counts = counts;
+            this.calls = Arrays.stream(counts).sum();
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.totalResultSize = totalResultSize;
+            this.maxResultSize = maxResultSize;
+        }
+
+        /** @return number of calls measured */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** @return total latency of the calls, in nanoseconds */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** @return mean latency of the calls in nanoseconds, or 0 if none */
+        public double getMeanNanos() {
+            return calls == 0 ? 0 : (double) totalNanos / calls;
+        }
+
+        /** @return greatest latency of a call, in nanoseconds */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** @return median latency, in nanoseconds */
+        public long getP50Nanos() {
+            return percentileNanos(50);
+        }
+
+        /** @return 99th percentile latency, in nanoseconds */
+        public long getP99Nanos() {
+            return percentileNanos(99);
+        }
+
+        /** @return 99.9th percentile latency, in nanoseconds */
+        public long getP999Nanos() {
+            return percentileNanos(99.9);
+        }
+
+        /**
+         * @return mean size of the results of the calls, or 0 if the
+         *         operation returns nothing with a size
+         */
+        public double getMeanResultSize() {
+            return calls == 0 ? 0 : (double) totalResultSize / calls;
+        }
+
+        /**
+         * @return greatest size of the result of a call, or 0 if the
+         *         operation returns nothing with a size
+         */
+        public long getMaxResultSize() {
+            return maxResultSize;
+        }
+
+        /**
+         * @param percentile in [0, 100]
+         * @return latency in nanoseconds that at least that percentage of the
+         *         calls took no longer than, to the histogram's precision; 0
+         *         if there were no calls
+         */
+        public long percentileNanos(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+            }
+            if (calls == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * calls));
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    return Math.min(highestInBucket(b), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return calls + " calls, mean " + Math.round(getMeanNanos()) + " ns, p50 "
+                    + getP50Nanos() + " ns, p99 " + getP99Nanos() + " ns, max " + maxNanos + " ns";
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Map;
+
+/**
+ * Management interface of an {@link InstrumentedGraph}, as seen through JMX.
+ * See {@link InstrumentedGraph#register(String)}.
+ */
+public interface InstrumentedGraphMXBean {
+
+    /**
+     * @return true iff operations are being measured
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop measuring operations. Counters and histograms are kept
+     * while measuring is off.
+     *
+     * @param enabled true to measure operations, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return number of vertices in the graph now
+     */
+    int getVertexCount();
+
+    /**
+     * @return number of edges in the graph now, or -1 if operations are not
+     *         being measured
+     */
+    long getEdgeCount();
+
+    /**
+     * @return measurements of each kind of operation, keyed by the
+     *         {@link InstrumentedGraph.Operation operation} name
+     */
+    Map<String, InstrumentedGraph.OperationStats> getOperations();
+
+    /**
+     * Reset all counters and histograms to zero.
+     */
+    void reset();
+}
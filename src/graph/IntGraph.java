@@ -0,0 +1,511 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A mutable weighted directed graph whose vertices are addressed by dense int
+ * IDs.
+ *
+ * <p>Each label is mapped to an ID once, when its vertex is added; after that,
+ * every operation of the int API works on IDs and primitive weights, hashing
+ * no labels and boxing no integers.
+ * IDs are in [0, {@link #idLimit()}); the ID of a removed vertex may be reused
+ * by a later vertex.
+ * Out-edges can be visited without allocating:
+ * <pre>
+ *     for (int slot = 0; slot &lt; g.outSlots(v); slot++) {
+ *         int target = g.outTarget(v, slot);
+ *         if (target >= 0) { ... g.outWeight(v, slot) ... }
+ *     }
+ * </pre>
+ *
+ * <p>{@link #asGraph()} adapts an IntGraph to the {@link Graph} ADT.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class IntGraph<L> {
+
+    private final LabelDictionary<L> labels = new LabelDictionary<>(16);
+    private IntIntMap[] out = new IntIntMap[16];
+    private IntIntMap[] in = new IntIntMap[16];
+    private int edgeCount = 0;
+    private final Graph<L> graph = new GraphView();
+
+    // Abstraction function:
+    //   Represents the graph whose vertices are the labels in labels, where
+    //   the vertex with ID v has an edge to the vertex with ID t of weight w
+    //   iff out[v].get(t) == w > 0
+    // Representation invariant:
+    //   - out.length == in.length >= labels.idLimit()
+    //   - out[v] and in[v] are non-null iff v is the ID of a label
+    //   - in[t].get(v) == out[v].get(t) for all IDs v, t
+    //   - edgeCount == total size of the out maps
+    // Safety from rep exposure:
+    //   - All fields are private; the maps are never exposed
+    //   - asGraph() returns a view whose observers return unmodifiable views
+
+    /**
+     * Construct an empty IntGraph.
+     */
+    public IntGraph() {
+        checkRep();
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert out.length == in.length : "out and in arrays differ in length";
+        assert out.length >= labels.idLimit() : "adjacency arrays too short";
+        assert edgeCount >= 0 : "negative edge count";
+    }
+
+    /**
+     * Check the part of the representation invariant about one edge.
+     */
+    private void checkEdgeRep(int source, int target) {
+        assert out[source].get(target) == in[target].get(source) :
+            "edge recorded inconsistently: " + source + " -> " + target;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= labels.idLimit() || out[id] == null) {
+            throw new IllegalArgumentException("not a vertex ID: " + id);
+        }
+    }
+
+    /**
+     * @return number of vertices in this graph
+     */
+    public int vertexCount() {
+        return labels.size();
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return an upper bound on the vertex IDs in this graph
+     */
+    public int idLimit() {
+        return labels.idLimit();
+    }
+
+    /**
+     * @param vertex a label
+     * @return the ID of vertex, or -1 if it is not a vertex of this graph
+     */
+    public int id(L vertex) {
+        return labels.id(vertex);
+    }
+
+    /**
+     * @param id an int in [0, idLimit())
+     * @return the label of the vertex with that ID, or null if no vertex has it
+     */
+    public L label(int id) {
+        return labels.label(id);
+    }
+
+    /**
+     * Add a vertex to this graph if it is not already present.
+     *
+     * @param vertex label of the vertex, not null
+     * @return the ID of vertex
+     */
+    public int intern(L vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        int id = labels.intern(vertex);
+        if (id >= out.length) {
+            int length = Math.max(out.length * 2, id + 1);
+            out = Arrays.copyOf(out, length);
+            in = Arrays.copyOf(in, length);
+        }
+        if (out[id] == null) {
+            out[id] = new IntIntMap();
+            in[id] = new IntIntMap();
+        }
+        checkRep();
+        return id;
+    }
+
+    /**
+     * @param source a vertex ID
+     * @param target a vertex ID
+     * @return weight of the edge from source to target, or 0 if there is none
+     */
+    public int weight(int source, int target) {
+        checkId(source);
+        checkId(target);
+        return out[source].get(target);
+    }
+
+    /**
+     * Add, change, or remove an edge, as {@link Graph#set(Object, Object, int)}.
+     *
+     * @param source a vertex ID
+     * @param target a vertex ID
+     * @param weight nonnegative weight of the edge
+     * @return the previous weight of the edge, or zero if there was no such edge
+     */
+    public int set(int source, int target, int weight) {
+        checkId(source);
+        checkId(target);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight cannot be negative: " + weight);
+        }
+        int previous;
+        if (weight > 0) {
+            previous = out[source].put(target, weight);
+            in[target].put(source, weight);
+            if (previous == 0) {
+                edgeCount++;
+            }
+        } else {
+            previous = out[source].remove(target);
+            in[target].remove(source);
+            if (previous != 0) {
+                edgeCount--;
+            }
+        }
+        checkEdgeRep(source, target);
+        return previous;
+    }
+
+    /**
+     * Remove a vertex and its edges; its ID becomes free for reuse.
+     *
+     * @param id a vertex ID
+     */
+    public void remove(int id) {
+        checkId(id);
+        IntIntMap targets = out[id];
+        for (int slot = 0; slot < targets.capacity(); slot++) {
+            int target = targets.keyAt(slot);
+            if (target >= 0 && target != id) {
+                in[target].remove(id);
+            }
+        }
+        IntIntMap sources = in[id];
+        for (int slot = 0; slot < sources.capacity(); slot++) {
+            int source = sources.keyAt(slot);
+            if (source >= 0 && source != id) {
+                out[source].remove(id);
+                edgeCount--;
+            }
+        }
+        edgeCount -= targets.size();
+        // Views of the removed vertex's edges must not show the edges of a
+        // later vertex that reuses its ID
+        targets.clear();
+        sources.clear();
+        out[id] = null;
+        in[id] = null;
+        labels.remove(labels.label(id));
+        checkRep();
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return number of out-edges of that vertex
+     */
+    public int outDegree(int id) {
+        checkId(id);
+        return out[id].size();
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return number of in-edges of that vertex
+     */
+    public int inDegree(int id) {
+        checkId(id);
+        return in[id].size();
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return number of out-edge slots of that vertex, some of which may be
+     *         empty
+     */
+    public int outSlots(int id) {
+        checkId(id);
+        return out[id].capacity();
+    }
+
+    /**
+     * @param id a vertex ID
+     * @param slot an out-edge slot in [0, outSlots(id))
+     * @return ID of the target of the edge in that slot, or -1 if it is empty
+     */
+    public int outTarget(int id, int slot) {
+        return out[id].keyAt(slot);
+    }
+
+    /**
+     * @param id a vertex ID
+     * @param slot a non-empty out-edge slot in [0, outSlots(id))
+     * @return weight of the edge in that slot
+     */
+    public int outWeight(int id, int slot) {
+        return out[id].valueAt(slot);
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return number of in-edge slots of that vertex, some of which may be
+     *         empty
+     */
+    public int inSlots(int id) {
+        checkId(id);
+        return in[id].capacity();
+    }
+
+    /**
+     * @param id a vertex ID
+     * @param slot an in-edge slot in [0, inSlots(id))
+     * @return ID of the source of the edge in that slot, or -1 if it is empty
+     */
+    public int inSource(int id, int slot) {
+        return in[id].keyAt(slot);
+    }
+
+    /**
+     * @param id a vertex ID
+     * @param slot a non-empty in-edge slot in [0, inSlots(id))
+     * @return weight of the edge in that slot
+     */
+    public int inWeight(int id, int slot) {
+        return in[id].valueAt(slot);
+    }
+
+    /**
+     * The view's sources() and targets() return unmodifiable live views,
+     * without copying: a view reflects later changes to the edges at its
+     * vertex, until that vertex is removed, and is empty after that, even if
+     * a vertex with the same label is added again.
+     *
+     * @return a Graph view of this graph; changes to either are visible in both
+     */
+    public Graph<L> asGraph() {
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+
+    /**
+     * Graph adapter over the int API.
+     */
+    private class GraphView implements Graph<L> {
+
+        private final Set<L> vertices = new VertexSet();
+
+        @Override
+        public boolean add(L vertex) {
+            if (vertex == null) {
+                throw new IllegalArgumentException("vertex cannot be null");
+            }
+            if (labels.id(vertex) >= 0) {
+                return false;
+            }
+            intern(vertex);
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("source and target cannot be null");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("weight cannot be negative: " + weight);
+            }
+            return IntGraph.this.set(intern(source), intern(target), weight);
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            if (vertex == null) {
+                throw new IllegalArgumentException("vertex cannot be null");
+            }
+            int id = labels.id(vertex);
+            if (id < 0) {
+                return false;
+            }
+            IntGraph.this.remove(id);
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return vertices;
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            if (target == null) {
+                throw new IllegalArgumentException("target cannot be null");
+            }
+            int id = labels.id(target);
+            return id < 0 ? Collections.emptyMap() : new Neighbours(in[id]);
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            if (source == null) {
+                throw new IllegalArgumentException("source cannot be null");
+            }
+            int id = labels.id(source);
+            return id < 0 ? Collections.emptyMap() : new Neighbours(out[id]);
+        }
+
+        @Override
+        public String toString() {
+            if (labels.size() == 0) {
+                return "Empty graph (0 vertices, 0 edges)";
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Graph with ").append(labels.size()).append(" vertices and ")
+              .append(edgeCount).append(" edges:\n");
+            for (L vertex : vertices) {
+                sb.append("  ").append(vertex).append(" -> ").append(targets(vertex)).append("\n");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Unmodifiable view of the vertex labels.
+     */
+    private class VertexSet extends AbstractSet<L> {
+
+        @Override
+        public int size() {
+            return labels.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return labels.id(o) >= 0;
+        }
+
+        @Override
+        public Iterator<L> iterator() {
+            return new Iterator<L>() {
+                private int next = advance(0);
+
+                private int advance(int id) {
+                    while (id < labels.idLimit() && labels.label(id) == null) {
+                        id++;
+                    }
+                    return id;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < labels.idLimit();
+                }
+
+                @Override
+                public L next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    L label = labels.label(next);
+                    next = advance(next + 1);
+                    return label;
+                }
+            };
+        }
+    }
+
+    /**
+     * Unmodifiable view of an adjacency map as a map from neighbour label to
+     * edge weight.
+     */
+    private class Neighbours extends AbstractMap<L, Integer> {
+
+        private final IntIntMap edges;
+
+        Neighbours(IntIntMap edges) {
+            this.edges = edges;
+        }
+
+        @Override
+        public int size() {
+            return edges.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int id = labels.id(key);
+            int weight = id < 0 ? 0 : edges.get(id);
+            return weight > 0 ? weight : null;
+        }
+
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public int size() {
+                    return edges.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int slot = advance(0);
+
+                        private int advance(int slot) {
+                            while (slot < edges.capacity() && edges.keyAt(slot) < 0) {
+                                slot++;
+                            }
+                            return slot;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return slot < edges.capacity();
+                        }
+
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<L, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                    labels.label(edges.keyAt(slot)), edges.valueAt(slot));
+                            slot = advance(slot + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
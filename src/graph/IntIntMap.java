@@ -0,0 +1,199 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Mutable map from nonnegative int keys to positive int values, with no boxing.
+ *
+ * <p>Uses open addressing with linear probing and backward-shift deletion.
+ * Absent keys map to 0. Entries can be visited without allocating by walking
+ * slots 0 .. {@link #capacity()}-1 and skipping slots whose
+ * {@link #keyAt(int) key} is negative.
+ * This class is internal to the rep of int-indexed graphs.
+ */
+class IntIntMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+
+    // Abstraction function:
+    //   Represents the map {keys[i] -> values[i] | keys[i] != EMPTY}
+    // Representation invariant:
+    //   - keys.length == values.length, a power of two, at least 2 * size
+    //   - size == number of non-EMPTY keys; keys are distinct and nonnegative
+    //   - values[i] > 0 where keys[i] != EMPTY
+    //   - every key is reachable by linear probing from its home slot
+    //     without crossing an EMPTY slot
+    // Safety from rep exposure:
+    //   - All fields are private; arrays are never exposed
+
+    /**
+     * Make an empty map.
+     */
+    IntIntMap() {
+        keys = new int[4];
+        values = new int[4];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert keys.length == values.length : "array lengths differ";
+        assert Integer.bitCount(keys.length) == 1 : "capacity must be a power of two";
+        assert keys.length >= 2 * size : "table too full";
+    }
+
+    /**
+     * @param key a nonnegative key
+     * @param mask capacity - 1, where capacity is a power of two
+     * @return the slot where probing for key starts: the top log2(capacity)
+     *         bits of a multiplicative hash, which are its best-mixed bits,
+     *         so that every slot of a large table can be a home slot
+     */
+    private static int home(int key, int mask) {
+        return (key * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int slot = home(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key a nonnegative key
+     * @return the value for key, or 0 if key is absent
+     */
+    int get(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    /**
+     * Map key to value.
+     *
+     * @param key a nonnegative key
+     * @param value a positive value
+     * @return the previous value for key, or 0 if key was absent
+     */
+    int put(int key, int value) {
+        assert key >= 0 && value > 0 : "bad entry: " + key + " -> " + value;
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (2 * size > keys.length) {
+            resize(keys.length * 2);
+        }
+        checkRep();
+        return 0;
+    }
+
+    /**
+     * Remove key.
+     *
+     * @param key a nonnegative key
+     * @return the previous value for key, or 0 if key was absent
+     */
+    int remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int previous = values[slot];
+        int mask = keys.length - 1;
+        // Shift later entries of the probe run back so none is cut off
+        for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = EMPTY;
+        size--;
+        checkRep();
+        return previous;
+    }
+
+    /**
+     * Remove every key, and release the space they took.
+     */
+    void clear() {
+        keys = new int[4];
+        values = new int[4];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        checkRep();
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = home(oldKeys[i], mask);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return number of slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot a slot in [0, capacity())
+     * @return the key stored in slot, or a negative number if slot is empty
+     */
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot a non-empty slot in [0, capacity())
+     * @return the value stored in slot
+     */
+    int valueAt(int slot) {
+        return values[slot];
+    }
+}
@@ -0,0 +1,207 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Mutable dictionary assigning dense int IDs 0, 1, 2, ... to distinct labels,
+ * compared using {@link Object#equals(Object) equals}.
+ * IDs of removed labels are reused before new IDs are handed out, so IDs stay
+ * below {@link #idLimit()}, which never exceeds the largest size so far.
+ *
+ * <p>Labels are stored in an array indexed by ID and found with an
+ * open-addressing table of IDs, so the dictionary holds no boxed keys or
+ * per-entry objects.
+ * This class is internal to the rep of int-indexed graphs.
+ *
+ * @param <L> type of labels, must be immutable
+ */
+class LabelDictionary<L> {
+
+    private static final int EMPTY = -1;
+
+    private Object[] labels;
+    private int limit = 0;
+    private int size = 0;
+    private int[] slots;
+    private int[] freeIds = new int[0];
+    private int freeCount = 0;
+
+    // Abstraction function:
+    //   Represents the map label -> ID where labels[id] has ID id,
+    //   for 0 <= id < limit and labels[id] != null
+    // Representation invariant:
+    //   - the non-null labels[0..limit) are pairwise distinct, and there are
+    //     size of them; labels[limit..) are null
+    //   - freeIds[0..freeCount) are exactly the IDs in [0, limit) whose label
+    //     is null
+    //   - slots.length is a power of two, greater than 2 * limit
+    //   - every ID with a label appears in exactly one slot, reachable by
+    //     linear probing from the home slot of its label without crossing an
+    //     EMPTY slot; other slots are EMPTY
+    // Safety from rep exposure:
+    //   - All fields are private; labels are immutable
+
+    /**
+     * Make an empty dictionary.
+     *
+     * @param expectedSize number of labels to make room for, nonnegative
+     */
+    LabelDictionary(int expectedSize) {
+        labels = new Object[Math.max(expectedSize, 4)];
+        slots = new int[tableSizeFor(labels.length)];
+        Arrays.fill(slots, EMPTY);
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert size <= limit && limit <= labels.length : "size exceeds capacity";
+        assert size + freeCount == limit : "free list out of date";
+        assert Integer.bitCount(slots.length) == 1 : "table size must be a power of two";
+        assert slots.length > 2 * limit : "table too full";
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 2) * 4);
+    }
+
+    private static int spread(Object label) {
+        int h = label.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return number of labels in this dictionary
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return an upper bound on the IDs in this dictionary, equal to size()
+     *         if no label has been removed
+     */
+    int idLimit() {
+        return limit;
+    }
+
+    /**
+     * @param id an ID in [0, idLimit())
+     * @return the label with that ID, or null if that ID is free
+     */
+    @SuppressWarnings("unchecked")
+    L label(int id) {
+        return (L) labels[id];
+    }
+
+    /**
+     * @param label a label, may be null
+     * @return the ID of label, or -1 if it has none
+     */
+    int id(Object label) {
+        if (label == null) {
+            return -1;
+        }
+        int mask = slots.length - 1;
+        for (int slot = spread(label) & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (labels[slots[slot]].equals(label)) {
+                return slots[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the ID of a label, giving it the next ID if it has none.
+     *
+     * @param label a label, not null
+     * @return the ID of label
+     */
+    int intern(L label) {
+        int mask = slots.length - 1;
+        int slot = spread(label) & mask;
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (labels[slots[slot]].equals(label)) {
+                return slots[slot];
+            }
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (limit == labels.length) {
+                labels = Arrays.copyOf(labels, limit * 2);
+            }
+            id = limit++;
+        }
+        labels[id] = label;
+        slots[slot] = id;
+        size++;
+        if (slots.length <= 2 * limit) {
+            rehash(tableSizeFor(labels.length));
+        }
+        return id;
+    }
+
+    /**
+     * Remove a label, freeing its ID for reuse.
+     *
+     * @param label a label, may be null
+     * @return the former ID of label, or -1 if it had none
+     */
+    int remove(Object label) {
+        if (label == null) {
+            return -1;
+        }
+        int mask = slots.length - 1;
+        int slot = spread(label) & mask;
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (labels[slots[slot]].equals(label)) {
+                break;
+            }
+        }
+        if (slots[slot] == EMPTY) {
+            return -1;
+        }
+        int id = slots[slot];
+        // Shift later entries of the probe run back so none is cut off
+        for (int next = (slot + 1) & mask; slots[next] != EMPTY; next = (next + 1) & mask) {
+            int home = spread(labels[slots[next]]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                slots[slot] = slots[next];
+                slot = next;
+            }
+        }
+        slots[slot] = EMPTY;
+        labels[id] = null;
+        size--;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(4, freeCount * 2));
+        }
+        freeIds[freeCount++] = id;
+        checkRep();
+        return id;
+    }
+
+    private void rehash(int tableSize) {
+        slots = new int[tableSize];
+        Arrays.fill(slots, EMPTY);
+        int mask = tableSize - 1;
+        for (int id = 0; id < limit; id++) {
+            if (labels[id] == null) {
+                continue;
+            }
+            int slot = spread(labels[id]) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+        checkRep();
+    }
+}
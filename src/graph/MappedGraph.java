@@ -0,0 +1,746 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An implementation of Graph stored off-heap in memory-mapped files.
+ *
+ * <p>A MappedGraph lives in a directory holding four files: fixed-size vertex
+ * records, fixed-size edge records, UTF-8 label bytes, and an open-addressing
+ * hash table from labels to vertex records. Each vertex record heads a linked
+ * list of its out-edges and a linked list of its in-edges. The Java heap holds
+ * only the file mappings, however large the graph grows, and {@link #open(Path)}
+ * on the same directory after {@link #close()} sees the same graph.
+ *
+ * <p>Operations on one vertex or edge cost time proportional to the degree of
+ * the vertices involved. Label bytes of removed vertices are not reclaimed.
+ * Changes reach the files through the mappings as they are made, but are only
+ * guaranteed to be on the storage device after {@link #force()} or
+ * {@link #close()}; a graph whose process dies before then may not reopen.
+ * Not safe for use by multiple threads or processes at once.
+ */
+public class MappedGraph implements Graph<String>, Closeable {
+
+    private static final int MAGIC = 0x4752_4D50; // "GRMP"
+    private static final int VERSION = 1;
+    private static final int NIL = -1;
+    private static final int DEFAULT_SEGMENT_SHIFT = 24;
+
+    // Header, at the start of the vertex file
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_VERTEX_LIMIT = 8;
+    private static final int H_VERTEX_COUNT = 12;
+    private static final int H_EDGE_LIMIT = 16;
+    private static final int H_EDGE_COUNT = 20;
+    private static final int H_FREE_VERTEX = 24;
+    private static final int H_FREE_EDGE = 28;
+    private static final int H_TABLE_CAPACITY = 32;
+    private static final int H_LABEL_END = 40;
+
+    // Vertex record
+    private static final int VERTEX_SIZE = 32;
+    private static final int V_LABEL_OFFSET = 0;
+    private static final int V_LABEL_LENGTH = 8;
+    private static final int V_HASH = 12;
+    private static final int V_FIRST_OUT = 16;
+    private static final int V_FIRST_IN = 20;
+    private static final int V_ALIVE = 24;
+
+    // Edge record
+    private static final int EDGE_SIZE = 32;
+    private static final int E_SOURCE = 0;
+    private static final int E_TARGET = 4;
+    private static final int E_WEIGHT = 8;
+    private static final int E_NEXT_OUT = 12;
+    private static final int E_NEXT_IN = 16;
+
+    private static final int INITIAL_TABLE_CAPACITY = 16;
+
+    private final Path directory;
+    private final int segmentShift;
+    private final MappedRegion vertexFile;
+    private final MappedRegion edgeFile;
+    private final MappedRegion labelFile;
+    private final MappedRegion tableFile;
+    private boolean open = true;
+
+    // Copies of the header fields
+    private int vertexLimit;
+    private int vertexCount;
+    private int edgeLimit;
+    private int edgeCount;
+    private int freeVertex;
+    private int freeEdge;
+    private int tableCapacity;
+    private long labelEnd;
+
+    private final Set<String> vertices = new VertexSet();
+
+    // Abstraction function:
+    //   Represents the graph whose vertices are the labels of the alive vertex
+    //   records among IDs [0, vertexLimit), and whose edges are the edge
+    //   records reachable from the first-out pointers of alive vertices, each
+    //   from E_SOURCE to E_TARGET with weight E_WEIGHT
+    // Representation invariant:
+    //   - the header of vertexFile equals the copies of the header fields
+    //   - vertex v's record is at HEADER_SIZE + v * VERTEX_SIZE; edge e's
+    //     record is at e * EDGE_SIZE
+    //   - dead vertex records form the free list starting at freeVertex,
+    //     linked through V_FIRST_OUT; freed edge records form the free list
+    //     starting at freeEdge, linked through E_NEXT_OUT, with weight 0
+    //   - each edge record in use is on exactly one out list (its source's)
+    //     and one in list (its target's), and has weight > 0
+    //   - no two edges in use have the same source and target
+    //   - alive vertices have distinct labels; each is in exactly one slot of
+    //     the table, as ID + 1, reachable by linear probing from the home
+    //     slot of its stored hash; other slots are 0
+    //   - vertexCount * 2 <= tableCapacity, a power of two
+    //   - labels never straddle a segment of labelFile
+    // Safety from rep exposure:
+    //   - All fields are private; regions are never exposed
+    //   - vertices() returns an unmodifiable view; sources() and targets()
+    //     return unmodifiable copies
+
+    private MappedGraph(Path directory, int segmentShift) throws IOException {
+        this.directory = directory;
+        this.segmentShift = segmentShift;
+        Files.createDirectories(directory);
+        boolean existing = Files.exists(directory.resolve("vertices.dat"));
+        MappedRegion[] regions = openRegions(directory, segmentShift);
+        vertexFile = regions[0];
+        edgeFile = regions[1];
+        labelFile = regions[2];
+        tableFile = regions[3];
+        try {
+            if (existing) {
+                readHeader();
+            } else {
+                vertexLimit = 0;
+                vertexCount = 0;
+                edgeLimit = 0;
+                edgeCount = 0;
+                freeVertex = NIL;
+                freeEdge = NIL;
+                tableCapacity = INITIAL_TABLE_CAPACITY;
+                labelEnd = 0;
+                tableFile.ensureCapacity(tableCapacity * 4L);
+                writeHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            open = false;
+            try {
+                release();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+        checkRep();
+    }
+
+    /**
+     * Map the vertex, edge, label and table files of a directory, in that
+     * order; if one cannot be mapped, close those already mapped.
+     */
+    private static MappedRegion[] openRegions(Path directory, int segmentShift)
+            throws IOException {
+        String[] names = { "vertices.dat", "edges.dat", "labels.dat", "index.dat" };
+        MappedRegion[] regions = new MappedRegion[names.length];
+        try {
+            for (int i = 0; i < names.length; i++) {
+                regions[i] = new MappedRegion(directory.resolve(names[i]), segmentShift);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                closeAll(regions);
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+        return regions;
+    }
+    
+    /**
+     * Close every non-null region, even if closing one fails.
+     * 
+     * @throws IOException the first failure to close a region, with any
+     *         later ones suppressed
+     */
+    private static void closeAll(MappedRegion... regions) throws IOException {
+        IOException failure = null;
+        for (MappedRegion region : regions) {
+            if (region == null) {
+                continue;
+            }
+            try {
+                region.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Open the graph stored in a directory, creating an empty graph there if
+     * the directory holds none.
+     *
+     * @param directory directory holding the graph's files
+     * @return the graph stored in directory
+     * @throws IOException if the files cannot be created, read or mapped, or
+     *         do not hold a graph of this format
+     */
+    public static MappedGraph open(Path directory) throws IOException {
+        return new MappedGraph(directory, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Open a graph mapping its files in segments of 2^segmentShift bytes.
+     * Labels longer than a segment cannot be stored.
+     */
+    static MappedGraph open(Path directory, int segmentShift) throws IOException {
+        return new MappedGraph(directory, segmentShift);
+    }
+
+    private void readHeader() throws IOException {
+        if (vertexFile.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("not a graph directory: " + directory);
+        }
+        if (vertexFile.getInt(H_VERSION) != VERSION) {
+            throw new IOException("unsupported graph version: " + vertexFile.getInt(H_VERSION));
+        }
+        vertexLimit = vertexFile.getInt(H_VERTEX_LIMIT);
+        vertexCount = vertexFile.getInt(H_VERTEX_COUNT);
+        edgeLimit = vertexFile.getInt(H_EDGE_LIMIT);
+        edgeCount = vertexFile.getInt(H_EDGE_COUNT);
+        freeVertex = vertexFile.getInt(H_FREE_VERTEX);
+        freeEdge = vertexFile.getInt(H_FREE_EDGE);
+        tableCapacity = vertexFile.getInt(H_TABLE_CAPACITY);
+        labelEnd = vertexFile.getLong(H_LABEL_END);
+    }
+
+    private void writeHeader() {
+        vertexFile.putInt(H_MAGIC, MAGIC);
+        vertexFile.putInt(H_VERSION, VERSION);
+        vertexFile.putInt(H_VERTEX_LIMIT, vertexLimit);
+        vertexFile.putInt(H_VERTEX_COUNT, vertexCount);
+        vertexFile.putInt(H_EDGE_LIMIT, edgeLimit);
+        vertexFile.putInt(H_EDGE_COUNT, edgeCount);
+        vertexFile.putInt(H_FREE_VERTEX, freeVertex);
+        vertexFile.putInt(H_FREE_EDGE, freeEdge);
+        vertexFile.putInt(H_TABLE_CAPACITY, tableCapacity);
+        vertexFile.putLong(H_LABEL_END, labelEnd);
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert 0 <= vertexCount && vertexCount <= vertexLimit : "bad vertex count";
+        assert 0 <= edgeCount && edgeCount <= edgeLimit : "bad edge count";
+        assert Integer.bitCount(tableCapacity) == 1 : "table capacity must be a power of two";
+        assert vertexCount * 2L <= tableCapacity : "table too full";
+        assert vertexFile.getInt(H_VERTEX_COUNT) == vertexCount : "header out of date";
+        assert vertexFile.getInt(H_EDGE_COUNT) == edgeCount : "header out of date";
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("graph is closed");
+        }
+    }
+
+    /*
+     * Record access.
+     */
+
+    private static long vertexAt(int id) {
+        return HEADER_SIZE + (long) id * VERTEX_SIZE;
+    }
+
+    private static long edgeAt(int id) {
+        return (long) id * EDGE_SIZE;
+    }
+
+    private int vertexInt(int id, int field) {
+        return vertexFile.getInt(vertexAt(id) + field);
+    }
+
+    private void putVertexInt(int id, int field, int value) {
+        vertexFile.putInt(vertexAt(id) + field, value);
+    }
+
+    private int edgeInt(int id, int field) {
+        return edgeFile.getInt(edgeAt(id) + field);
+    }
+
+    private void putEdgeInt(int id, int field, int value) {
+        edgeFile.putInt(edgeAt(id) + field, value);
+    }
+
+    private static int spread(String label) {
+        int h = label.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private String label(int id) {
+        long offset = vertexFile.getLong(vertexAt(id) + V_LABEL_OFFSET);
+        byte[] bytes = new byte[vertexInt(id, V_LABEL_LENGTH)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = labelFile.getByte(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean labelEquals(int id, byte[] bytes) {
+        if (vertexInt(id, V_LABEL_LENGTH) != bytes.length) {
+            return false;
+        }
+        long offset = vertexFile.getLong(vertexAt(id) + V_LABEL_OFFSET);
+        for (int i = 0; i < bytes.length; i++) {
+            if (labelFile.getByte(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Label table.
+     */
+
+    private int slot(int hash) {
+        return hash & (tableCapacity - 1);
+    }
+
+    private int tableEntry(int slot) {
+        return tableFile.getInt(slot * 4L);
+    }
+
+    /**
+     * @return ID of the vertex with the given label, or NIL if there is none
+     */
+    private int find(String label, byte[] bytes) {
+        int hash = spread(label);
+        int mask = tableCapacity - 1;
+        for (int slot = slot(hash); tableEntry(slot) != 0; slot = (slot + 1) & mask) {
+            int id = tableEntry(slot) - 1;
+            if (vertexInt(id, V_HASH) == hash && labelEquals(id, bytes)) {
+                return id;
+            }
+        }
+        return NIL;
+    }
+
+    private int find(String label) {
+        return find(label, label.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void tableInsert(MappedRegion table, int capacity, int id) {
+        int mask = capacity - 1;
+        int slot = vertexInt(id, V_HASH) & mask;
+        while (table.getInt(slot * 4L) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putInt(slot * 4L, id + 1);
+    }
+
+    private void tableRemove(int id) {
+        int mask = tableCapacity - 1;
+        int slot = slot(vertexInt(id, V_HASH));
+        while (tableEntry(slot) != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // Shift later entries of the probe run back so none is cut off
+        for (int next = (slot + 1) & mask; tableEntry(next) != 0; next = (next + 1) & mask) {
+            int home = slot(vertexInt(tableEntry(next) - 1, V_HASH));
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                tableFile.putInt(slot * 4L, tableEntry(next));
+                slot = next;
+            }
+        }
+        tableFile.putInt(slot * 4L, 0);
+    }
+
+    /**
+     * Rebuild the label table with twice the capacity, in place. The file is
+     * extended and rehashed through its existing mapping rather than replaced,
+     * since a mapped file cannot be renamed over on every platform.
+     */
+    private void growTable() {
+        int capacity = tableCapacity * 2;
+        tableFile.ensureCapacity(capacity * 4L);
+        for (long position = 0; position < capacity * 4L; position += 8) {
+            tableFile.putLong(position, 0);
+        }
+        for (int id = 0; id < vertexLimit; id++) {
+            if (vertexInt(id, V_ALIVE) != 0) {
+                tableInsert(tableFile, capacity, id);
+            }
+        }
+        tableCapacity = capacity;
+        writeHeader();
+    }
+
+    /*
+     * Allocation and edge lists.
+     */
+
+    private int addVertex(String label, byte[] bytes) {
+        if (bytes.length > labelFile.segmentSize()) {
+            throw new IllegalArgumentException("label too long: " + bytes.length + " bytes");
+        }
+        int id;
+        if (freeVertex != NIL) {
+            id = freeVertex;
+            freeVertex = vertexInt(id, V_FIRST_OUT);
+        } else {
+            id = vertexLimit++;
+            vertexFile.ensureCapacity(vertexAt(vertexLimit));
+        }
+        long remaining = labelFile.segmentSize() - (labelEnd & (labelFile.segmentSize() - 1));
+        if (remaining < bytes.length) {
+            labelEnd += remaining;
+        }
+        labelFile.ensureCapacity(labelEnd + bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            labelFile.putByte(labelEnd + i, bytes[i]);
+        }
+        vertexFile.putLong(vertexAt(id) + V_LABEL_OFFSET, labelEnd);
+        putVertexInt(id, V_LABEL_LENGTH, bytes.length);
+        putVertexInt(id, V_HASH, spread(label));
+        putVertexInt(id, V_FIRST_OUT, NIL);
+        putVertexInt(id, V_FIRST_IN, NIL);
+        putVertexInt(id, V_ALIVE, 1);
+        labelEnd += bytes.length;
+        vertexCount++;
+        if (vertexCount * 2L > tableCapacity) {
+            growTable();
+        } else {
+            tableInsert(tableFile, tableCapacity, id);
+        }
+        return id;
+    }
+
+    private int intern(String label) {
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        int id = find(label, bytes);
+        return id != NIL ? id : addVertex(label, bytes);
+    }
+
+    private int allocateEdge() {
+        if (freeEdge != NIL) {
+            int id = freeEdge;
+            freeEdge = edgeInt(id, E_NEXT_OUT);
+            return id;
+        }
+        int id = edgeLimit++;
+        edgeFile.ensureCapacity(edgeAt(edgeLimit));
+        return id;
+    }
+
+    private void freeEdge(int id) {
+        putEdgeInt(id, E_WEIGHT, 0);
+        putEdgeInt(id, E_NEXT_OUT, freeEdge);
+        freeEdge = id;
+        edgeCount--;
+    }
+
+    /**
+     * Unlink an edge from a vertex's out list or in list.
+     *
+     * @param vertex vertex whose list holds the edge
+     * @param head V_FIRST_OUT or V_FIRST_IN
+     * @param next E_NEXT_OUT or E_NEXT_IN, respectively
+     * @param edge edge to unlink
+     */
+    private void unlink(int vertex, int head, int next, int edge) {
+        int previous = NIL;
+        int current = vertexInt(vertex, head);
+        while (current != edge) {
+            previous = current;
+            current = edgeInt(current, next);
+        }
+        if (previous == NIL) {
+            putVertexInt(vertex, head, edgeInt(edge, next));
+        } else {
+            putEdgeInt(previous, next, edgeInt(edge, next));
+        }
+    }
+
+    /*
+     * Graph operations.
+     */
+
+    @Override
+    public boolean add(String vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        checkOpen();
+        byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+        if (find(vertex, bytes) != NIL) {
+            return false;
+        }
+        addVertex(vertex, bytes);
+        writeHeader();
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public int set(String source, String target, int weight) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("source and target cannot be null");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight cannot be negative: " + weight);
+        }
+        checkOpen();
+
+        int s = intern(source);
+        int t = intern(target);
+
+        int previous = NIL;
+        int edge = vertexInt(s, V_FIRST_OUT);
+        while (edge != NIL && edgeInt(edge, E_TARGET) != t) {
+            previous = edge;
+            edge = edgeInt(edge, E_NEXT_OUT);
+        }
+
+        int previousWeight = 0;
+        if (edge != NIL) {
+            previousWeight = edgeInt(edge, E_WEIGHT);
+            if (weight > 0) {
+                putEdgeInt(edge, E_WEIGHT, weight);
+            } else {
+                if (previous == NIL) {
+                    putVertexInt(s, V_FIRST_OUT, edgeInt(edge, E_NEXT_OUT));
+                } else {
+                    putEdgeInt(previous, E_NEXT_OUT, edgeInt(edge, E_NEXT_OUT));
+                }
+                unlink(t, V_FIRST_IN, E_NEXT_IN, edge);
+                freeEdge(edge);
+            }
+        } else if (weight > 0) {
+            edge = allocateEdge();
+            putEdgeInt(edge, E_SOURCE, s);
+            putEdgeInt(edge, E_TARGET, t);
+            putEdgeInt(edge, E_WEIGHT, weight);
+            putEdgeInt(edge, E_NEXT_OUT, vertexInt(s, V_FIRST_OUT));
+            putEdgeInt(edge, E_NEXT_IN, vertexInt(t, V_FIRST_IN));
+            putVertexInt(s, V_FIRST_OUT, edge);
+            putVertexInt(t, V_FIRST_IN, edge);
+            edgeCount++;
+        }
+
+        writeHeader();
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override
+    public boolean remove(String vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("vertex cannot be null");
+        }
+        checkOpen();
+        int v = find(vertex);
+        if (v == NIL) {
+            return false;
+        }
+
+        // Self-loops are on both lists of v; free them on the second pass
+        for (int edge = vertexInt(v, V_FIRST_OUT); edge != NIL; ) {
+            int next = edgeInt(edge, E_NEXT_OUT);
+            int target = edgeInt(edge, E_TARGET);
+            if (target != v) {
+                unlink(target, V_FIRST_IN, E_NEXT_IN, edge);
+                freeEdge(edge);
+            }
+            edge = next;
+        }
+        for (int edge = vertexInt(v, V_FIRST_IN); edge != NIL; ) {
+            int next = edgeInt(edge, E_NEXT_IN);
+            int source = edgeInt(edge, E_SOURCE);
+            if (source != v) {
+                unlink(source, V_FIRST_OUT, E_NEXT_OUT, edge);
+            }
+            freeEdge(edge);
+            edge = next;
+        }
+
+        tableRemove(v);
+        putVertexInt(v, V_ALIVE, 0);
+        putVertexInt(v, V_FIRST_IN, NIL);
+        putVertexInt(v, V_FIRST_OUT, freeVertex);
+        freeVertex = v;
+        vertexCount--;
+
+        writeHeader();
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public Set<String> vertices() {
+        checkOpen();
+        return vertices;
+    }
+
+    @Override
+    public Map<String, Integer> sources(String target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target cannot be null");
+        }
+        checkOpen();
+        int t = find(target);
+        if (t == NIL) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int edge = vertexInt(t, V_FIRST_IN); edge != NIL; edge = edgeInt(edge, E_NEXT_IN)) {
+            result.put(label(edgeInt(edge, E_SOURCE)), edgeInt(edge, E_WEIGHT));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public Map<String, Integer> targets(String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        checkOpen();
+        int s = find(source);
+        if (s == NIL) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int edge = vertexInt(s, V_FIRST_OUT); edge != NIL; edge = edgeInt(edge, E_NEXT_OUT)) {
+            result.put(label(edgeInt(edge, E_TARGET)), edgeInt(edge, E_WEIGHT));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return number of edges in this graph
+     */
+    public int edgeCount() {
+        checkOpen();
+        return edgeCount;
+    }
+
+    /**
+     * Flush all changes to the storage device.
+     */
+    public void force() {
+        checkOpen();
+        writeHeader();
+        vertexFile.force();
+        edgeFile.force();
+        labelFile.force();
+        tableFile.force();
+    }
+
+    /**
+     * Flush all changes and release the files. Further operations on this
+     * graph throw IllegalStateException; closing again has no effect.
+     *
+     * @throws IOException if the files cannot be flushed or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        writeHeader();
+        open = false;
+        release();
+    }
+    
+    private void release() throws IOException {
+        closeAll(vertexFile, edgeFile, labelFile, tableFile);
+    }
+
+    @Override
+    public String toString() {
+        checkOpen();
+        if (vertexCount == 0) {
+            return "Empty graph (0 vertices, 0 edges)";
+        }
+        return "Mapped graph in " + directory + " with " + vertexCount + " vertices and "
+            + edgeCount + " edges";
+    }
+
+    /**
+     * Unmodifiable view of the vertex labels.
+     */
+    private class VertexSet extends AbstractSet<String> {
+
+        @Override
+        public int size() {
+            checkOpen();
+            return vertexCount;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            checkOpen();
+            return o instanceof String && find((String) o) != NIL;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            checkOpen();
+            return new Iterator<String>() {
+                private int next = advance(0);
+
+                private int advance(int id) {
+                    while (id < vertexLimit && vertexInt(id, V_ALIVE) == 0) {
+                        id++;
+                    }
+                    return id;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < vertexLimit;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    checkOpen();
+                    String label = label(next);
+                    next = advance(next + 1);
+                    return label;
+                }
+            };
+        }
+    }
+}
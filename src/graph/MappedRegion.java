@@ -0,0 +1,156 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A growable file mapped into memory in equal power-of-two segments, so it can
+ * exceed the 2GB limit of a single {@link MappedByteBuffer}.
+ * Callers must not let a value straddle two segments; fixed-size records whose
+ * size divides the segment size never do.
+ * This class is internal to the rep of MappedGraph.
+ */
+class MappedRegion implements Closeable {
+
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final long segmentMask;
+    private MappedByteBuffer[] segments;
+    private int segmentCount = 0;
+
+    // Abstraction function:
+    //   Represents the bytes [0, segmentCount << segmentShift) of the file
+    //   opened by channel, where byte p is stored at offset
+    //   (p & segmentMask) of segments[p >>> segmentShift]
+    // Representation invariant:
+    //   - segments[0..segmentCount) map consecutive segments of the file
+    //   - segmentCount >= 1
+    // Safety from rep exposure:
+    //   - All fields are private; buffers are never exposed
+
+    /**
+     * Open or create a file and map all of it, rounded up to whole segments.
+     *
+     * @param path file to map
+     * @param segmentShift log2 of the segment size, in [12, 30]
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedRegion(Path path, int segmentShift) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.segments = new MappedByteBuffer[4];
+        long size = channel.size();
+        long wanted = Math.max(size, 1);
+        while (capacity() < wanted) {
+            mapSegment();
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert segmentCount >= 1 : "region must map at least one segment";
+        assert segmentCount <= segments.length : "segment count exceeds array";
+    }
+
+    private void mapSegment() throws IOException {
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segmentCount * 2);
+        }
+        long position = (long) segmentCount << segmentShift;
+        segments[segmentCount++] = channel.map(FileChannel.MapMode.READ_WRITE,
+                position, 1L << segmentShift);
+    }
+
+    /**
+     * @return number of mapped bytes
+     */
+    long capacity() {
+        return (long) segmentCount << segmentShift;
+    }
+
+    /**
+     * @return number of bytes in a segment
+     */
+    long segmentSize() {
+        return 1L << segmentShift;
+    }
+
+    /**
+     * Map more segments, extending the file, until bytes [0, size) are mapped.
+     *
+     * @param size number of bytes needed
+     * @throws UncheckedIOException if the file cannot be extended or mapped
+     */
+    void ensureCapacity(long size) {
+        try {
+            while (capacity() < size) {
+                mapSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkRep();
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    private int offset(long position) {
+        return (int) (position & segmentMask);
+    }
+
+    byte getByte(long position) {
+        return segment(position).get(offset(position));
+    }
+
+    void putByte(long position, byte value) {
+        segment(position).put(offset(position), value);
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    void putInt(long position, int value) {
+        segment(position).putInt(offset(position), value);
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value) {
+        segment(position).putLong(offset(position), value);
+    }
+
+    /**
+     * Flush changes to the storage device.
+     */
+    void force() {
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i].force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        Arrays.fill(segments, null);
+        channel.close();
+    }
+}
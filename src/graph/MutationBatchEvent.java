@@ -0,0 +1,39 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a batch of mutations applied to a graph at once:
+ * a {@link GraphLoader#commit(Graph) GraphLoader commit} or a
+ * {@link VersionedGraph#update(java.util.function.Consumer) VersionedGraph
+ * update}. Its duration is the time taken by the whole batch.
+ * This class is internal to the graph package.
+ */
+@Name("graph.MutationBatch")
+@Label("Graph Mutation Batch")
+@Category("Graph")
+@Description("Several mutations applied to a graph as one batch")
+final class MutationBatchEvent extends Event {
+
+    @Label("Operation")
+    @Description("What applied the batch")
+    String operation;
+
+    @Label("Graph Class")
+    String graphClass;
+
+    @Label("Mutations")
+    @Description("Number of add, set and remove calls in the batch")
+    long mutations;
+
+    @Label("Vertices")
+    @Description("Number of vertices in the graph after the batch")
+    int vertices;
+}
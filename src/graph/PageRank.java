@@ -0,0 +1,387 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Weighted PageRank of the vertices of a graph, computed in parallel.
+ *
+ * <p>A random surfer at vertex u follows an out-edge of u with probability
+ * proportional to its weight, with probability equal to the damping factor,
+ * and otherwise jumps to a vertex chosen uniformly at random. A vertex with
+ * no out-edges (a dangling vertex) always jumps. The rank of a vertex is the
+ * long-run fraction of time the surfer spends there, so ranks are
+ * nonnegative and sum to 1.
+ *
+ * <p>Ranks are found by power iteration, which stops when the L1 distance
+ * between successive rank vectors falls below a tolerance, or after a
+ * maximum number of iterations. The graph is frozen once, ranks are kept in
+ * double arrays indexed by vertex ID, and each iteration pulls rank along the
+ * in-edges of each vertex, so the vertices can be split into partitions of
+ * about equal numbers of in-edges that are updated in parallel on a
+ * fork-join pool without contention. Partial sums are added up in partition
+ * order, so results do not depend on the number of threads.
+ *
+ * <p>For example, the ten most central words of a corpus graph:
+ * <pre>    new PageRank&lt;&gt;(graph).run().top(10)</pre>
+ *
+ * <p>PageRank is immutable and thread-safe.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public final class PageRank<L> {
+
+    /** Default probability of following an edge rather than jumping. */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /** Default L1 distance between iterations below which ranks converged. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /** Default maximum number of iterations. */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    // Fewest in-edges worth a partition of their own, and most partitions.
+    // Partitions depend only on the graph, so that sums are always added up
+    // in the same groups and order
+    private static final int MIN_PARTITION_EDGES = 1 << 14;
+    private static final int MAX_PARTITIONS = 256;
+
+    private final FrozenGraph<L> graph;
+    private final double[] outWeights;
+
+    // Abstraction function:
+    //   Represents the PageRank computation over graph, where outWeights[v]
+    //   is the total weight of the out-edges of vertex v
+    // Representation invariant:
+    //   - outWeights.length == graph.vertexCount(); outWeights[v] >= 0
+    // Safety from rep exposure:
+    //   - All fields are private and final; graph is a frozen copy made by
+    //     this class or an immutable FrozenGraph; outWeights is never exposed
+    // Thread safety argument:
+    //   - All fields are immutable after construction, and each run() uses
+    //     only its own arrays
+
+    /**
+     * Prepare to rank the vertices of a copy of a graph. Later changes to
+     * graph are not seen.
+     *
+     * @param graph graph to rank; copied unless it is a FrozenGraph
+     */
+    public PageRank(Graph<L> graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("graph cannot be null");
+        }
+        this.graph = FrozenGraph.of(graph);
+        int n = this.graph.vertexCount();
+        this.outWeights = new double[n];
+        for (int v = 0; v < n; v++) {
+            long total = 0;
+            for (int i = this.graph.outStart(v); i < this.graph.outEnd(v); i++) {
+                total += this.graph.outWeight(i);
+            }
+            outWeights[v] = total;
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert outWeights.length == graph.vertexCount() : "out-weight array has wrong length";
+    }
+
+    /**
+     * Rank the vertices with the default damping, tolerance and iteration
+     * cap, in parallel on the common fork-join pool.
+     *
+     * @return the ranks
+     */
+    public Ranks<L> run() {
+        return run(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Rank the vertices.
+     *
+     * @param damping probability of following an edge rather than jumping,
+     *        in [0, 1)
+     * @param tolerance stop once the L1 distance between the ranks of two
+     *        successive iterations is at most this, nonnegative
+     * @param maxIterations stop after this many iterations at most, positive
+     * @param pool pool on which to compute the ranks
+     * @return the ranks
+     */
+    public Ranks<L> run(double damping, double tolerance, int maxIterations, ForkJoinPool pool) {
+        if (!(damping >= 0 && damping < 1)) {
+            throw new IllegalArgumentException("damping must be in [0, 1): " + damping);
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must be nonnegative: " + tolerance);
+        }
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("maxIterations must be positive: " + maxIterations);
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+        int n = graph.vertexCount();
+        if (n == 0) {
+            return new Ranks<>(graph, new double[0], 0, 0, true);
+        }
+        int[] bounds = partition();
+        double[] partials = new double[bounds.length - 1];
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] share = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+
+        int iterations = 0;
+        double change = Double.POSITIVE_INFINITY;
+        while (iterations < maxIterations && change > tolerance) {
+            // Pass 1: rank each vertex passes along each unit of out-weight,
+            // and total rank of dangling vertices
+            double[] current = rank;
+            pool.invoke(new Pass(bounds, partials, 0, partials.length, (start, end) -> {
+                double dangling = 0;
+                for (int v = start; v < end; v++) {
+                    if (outWeights[v] > 0) {
+                        share[v] = current[v] / outWeights[v];
+                    } else {
+                        share[v] = 0;
+                        dangling += current[v];
+                    }
+                }
+                return dangling;
+            }));
+            double jump = ((1 - damping) + damping * sum(partials)) / n;
+
+            // Pass 2: pull rank along in-edges, and total the change
+            double[] updated = next;
+            pool.invoke(new Pass(bounds, partials, 0, partials.length, (start, end) -> {
+                double moved = 0;
+                for (int v = start; v < end; v++) {
+                    double pulled = 0;
+                    for (int i = graph.inStart(v), last = graph.inEnd(v); i < last; i++) {
+                        pulled += share[graph.inNeighbour(i)] * graph.inWeight(i);
+                    }
+                    updated[v] = jump + damping * pulled;
+                    moved += Math.abs(updated[v] - current[v]);
+                }
+                return moved;
+            }));
+            change = sum(partials);
+            next = rank;
+            rank = updated;
+            iterations++;
+        }
+        return new Ranks<>(graph, rank, iterations, change, change <= tolerance);
+    }
+
+    /**
+     * Split the vertex IDs into ranges with about equal numbers of in-edges.
+     *
+     * @return increasing IDs, starting with 0 and ending with the vertex
+     *         count; range i is [bounds[i], bounds[i+1])
+     */
+    private int[] partition() {
+        int n = graph.vertexCount();
+        long work = (long) graph.edgeCount() + n;
+        int partitions = (int) Math.max(1, Math.min(MAX_PARTITIONS, work / MIN_PARTITION_EDGES));
+        partitions = Math.min(partitions, n);
+        int[] bounds = new int[partitions + 1];
+        int count = 1;
+        long target = work / partitions;
+        long done = 0;
+        for (int v = 0; v < n && count < partitions; v++) {
+            done += graph.inEnd(v) - graph.inStart(v) + 1;
+            if (done >= target * count) {
+                bounds[count++] = v + 1;
+            }
+        }
+        bounds[count++] = n;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @return sum of values, in index order
+     */
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Work on one range of vertex IDs, returning a partial sum.
+     */
+    @FunctionalInterface
+    private interface RangeWork {
+        double run(int start, int end);
+    }
+
+    /**
+     * Task running work on partitions lo .. hi-1, storing the partial sum of
+     * partition i in partials[i].
+     */
+    private static final class Pass extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] bounds;
+        private final double[] partials;
+        private final int lo;
+        private final int hi;
+        private final RangeWork work;
+
+        Pass(int[] bounds, double[] partials, int lo, int hi, RangeWork work) {
+            this.bounds = bounds;
+            this.partials = partials;
+            this.lo = lo;
+            this.hi = hi;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                partials[lo] = work.run(bounds[lo], bounds[hi]);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Pass(bounds, partials, lo, mid, work),
+                    new Pass(bounds, partials, mid, hi, work));
+        }
+    }
+
+    /**
+     * Immutable PageRank of the vertices of a graph.
+     *
+     * @param <L> type of vertex labels in the graph
+     */
+    public static final class Ranks<L> {
+
+        private final FrozenGraph<L> graph;
+        private final double[] ranks;
+        private final int iterations;
+        private final double change;
+        private final boolean converged;
+
+        // Abstraction function:
+        //   Represents rank ranks[v] for the vertex of graph with ID v, found
+        //   in iterations iterations, the last of which changed the ranks by
+        //   change in L1 distance, which was within the tolerance iff
+        //   converged
+        // Representation invariant:
+        //   - ranks.length == graph.vertexCount(); ranks nonnegative
+        //   - iterations >= 0
+        // Safety from rep exposure:
+        //   - All fields are private and final; ranks is never exposed, and
+        //     graph is immutable
+
+        private Ranks(FrozenGraph<L> graph, double[] ranks, int iterations, double change,
+                boolean converged) {
+            this.graph = graph;
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.change = change;
+            this.converged = converged;
+            assert ranks.length == graph.vertexCount() : "rank array has wrong length";
+        }
+
+        /**
+         * @param vertex a label
+         * @return rank of vertex, or 0 if it is not a vertex of the graph
+         */
+        public double rank(L vertex) {
+            int id = graph.id(vertex);
+            return id < 0 ? 0 : ranks[id];
+        }
+
+        /**
+         * @return number of iterations run
+         */
+        public int iterations() {
+            return iterations;
+        }
+
+        /**
+         * @return L1 distance between the ranks of the last two iterations,
+         *         0 if the graph is empty
+         */
+        public double change() {
+            return change;
+        }
+
+        /**
+         * @return true iff the ranks converged within the tolerance before
+         *         the iteration cap was reached
+         */
+        public boolean converged() {
+            return converged;
+        }
+
+        /**
+         * @return map from each vertex to its rank
+         */
+        public Map<L, Double> asMap() {
+            Map<L, Double> map = new HashMap<>();
+            for (int v = 0; v < ranks.length; v++) {
+                map.put(graph.label(v), ranks[v]);
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        /**
+         * @param k number of vertices wanted, nonnegative
+         * @return the k vertices of highest rank, or all of them if there are
+         *         fewer, in decreasing order of rank; ties in vertex ID order
+         */
+        public List<L> top(int k) {
+            if (k < 0) {
+                throw new IllegalArgumentException("k cannot be negative: " + k);
+            }
+            int size = Math.min(k, ranks.length);
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            // Keep the best size IDs seen so far, the worst of them at the head
+            Comparator<Integer> better = (a, b) -> ranks[a] != ranks[b]
+                    ? Double.compare(ranks[a], ranks[b]) : Integer.compare(b, a);
+            PriorityQueue<Integer> best = new PriorityQueue<>(size, better);
+            for (int v = 0; v < ranks.length; v++) {
+                if (best.size() < size) {
+                    best.add(v);
+                } else if (better.compare(v, best.peek()) > 0) {
+                    best.poll();
+                    best.add(v);
+                }
+            }
+            List<L> top = new ArrayList<>(size);
+            while (!best.isEmpty()) {
+                top.add(graph.label(best.poll()));
+            }
+            Collections.reverse(top);
+            return Collections.unmodifiableList(top);
+        }
+
+        @Override
+        public String toString() {
+            return "PageRank of " + ranks.length + " vertices after " + iterations
+                    + " iterations, last change " + change;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash map that shares structure with the maps it is derived from.
+ *
+ * <p>Stored as a hash array mapped trie: {@link #plus(Object, Object) plus}
+ * and {@link #minus(Object) minus} copy only the O(log n) nodes on the path
+ * to the changed entry and return a new map, leaving this one unchanged.
+ * Keys and values must be non-null. The {@link Map} mutators throw
+ * {@link UnsupportedOperationException}.
+ * This class is internal to the rep of VersionedGraph.
+ *
+ * @param <K> type of keys, must be immutable
+ * @param <V> type of values, must be immutable
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    // Abstraction function:
+    //   Represents the entries stored in the trie rooted at root
+    // Representation invariant:
+    //   - root == null iff size == 0
+    //   - size == number of entries in the trie
+    //   - a key at depth d of the trie sits in the slot chosen by bits
+    //     [5d, 5d+5) of its spread hash; a collision node holds only keys
+    //     with equal spread hashes
+    //   - no key appears twice; no key or value is null
+    // Safety from rep exposure:
+    //   - All fields are private and final, and nodes are never mutated
+    //     after construction
+    //   - Map mutators are unsupported
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        return (V) root.get(key, spread(key), 0);
+    }
+
+    /**
+     * @param key a key, not null
+     * @param value a value, not null
+     * @return a map with the entries of this map except that key maps to
+     *         value; this map if key already maps to that same value object
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("keys and values cannot be null");
+        }
+        int hash = spread(key);
+        if (root == null) {
+            return new PersistentMap<>(new BitmapNode(0, new Object[0]).plus(key, value, hash, 0), 1);
+        }
+        Object previous = root.get(key, hash, 0);
+        Node newRoot = root.plus(key, value, hash, 0);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, previous == null ? size + 1 : size);
+    }
+
+    /**
+     * @param key a key
+     * @return a map with the entries of this map except key; this map if key
+     *         is absent
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        int hash = spread(key);
+        if (root.get(key, hash, 0) == null) {
+            return this;
+        }
+        Node newRoot = root.minus(key, hash, 0);
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /**
+     * Node of the trie. Entries are stored in an array of alternating keys and
+     * values; in a BitmapNode a null key marks a value slot holding a child
+     * node.
+     */
+    private abstract static class Node {
+        final Object[] slots;
+
+        Node(Object[] slots) {
+            this.slots = slots;
+        }
+
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node plus(Object key, Object value, int hash, int shift);
+
+        /** @return the node without key, or null if it becomes empty */
+        abstract Node minus(Object key, int hash, int shift);
+    }
+
+    private static final class BitmapNode extends Node {
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            super(slots);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = index(bit);
+            Object k = slots[i];
+            if (k == null) {
+                return ((Node) slots[i + 1]).get(key, hash, shift + BITS);
+            }
+            return key.equals(k) ? slots[i + 1] : null;
+        }
+
+        @Override
+        Node plus(Object key, Object value, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(slots, i, copy, i + 2, slots.length - i);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = slots[i];
+            Object v = slots[i + 1];
+            Object replacement;
+            if (k == null) {
+                Node child = ((Node) v).plus(key, value, hash, shift + BITS);
+                if (child == v) {
+                    return this;
+                }
+                replacement = child;
+            } else if (key.equals(k)) {
+                if (value == v) {
+                    return this;
+                }
+                Object[] copy = slots.clone();
+                copy[i + 1] = value;
+                return new BitmapNode(bitmap, copy);
+            } else {
+                replacement = pair(k, v, spread(k), key, value, hash, shift + BITS);
+            }
+            Object[] copy = slots.clone();
+            copy[i] = null;
+            copy[i + 1] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = index(bit);
+            Object k = slots[i];
+            if (k == null) {
+                Node child = ((Node) slots[i + 1]).minus(key, hash, shift + BITS);
+                if (child == slots[i + 1]) {
+                    return this;
+                }
+                if (child != null) {
+                    Object[] copy = slots.clone();
+                    copy[i + 1] = child;
+                    return new BitmapNode(bitmap, copy);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(int hash, Object[] slots) {
+            super(slots);
+            this.hash = hash;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (key.equals(slots[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int i = hash == this.hash ? find(key) : -1;
+            return i < 0 ? null : slots[i + 1];
+        }
+
+        @Override
+        Node plus(Object key, Object value, int hash, int shift) {
+            if (hash != this.hash) {
+                // Push this node one level down, next to the new entry
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[] { null, this })
+                    .plus(key, value, hash, shift);
+            }
+            int i = find(key);
+            if (i >= 0) {
+                if (value == slots[i + 1]) {
+                    return this;
+                }
+                Object[] copy = slots.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = Arrays.copyOf(slots, slots.length + 2);
+            copy[slots.length] = key;
+            copy[slots.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int i = hash == this.hash ? find(key) : -1;
+            if (i < 0) {
+                return this;
+            }
+            if (slots.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+    }
+
+    /**
+     * @return a node holding exactly the two given entries, whose keys differ,
+     *         at depth shift / BITS
+     */
+    private static Node pair(Object k1, Object v1, int h1, Object k2, Object v2, int h2, int shift) {
+        if (h1 == h2 || shift >= Integer.SIZE) {
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        }
+        int b1 = (h1 >>> shift) & MASK;
+        int b2 = (h2 >>> shift) & MASK;
+        if (b1 == b2) {
+            return new BitmapNode(1 << b1,
+                    new Object[] { null, pair(k1, v1, h1, k2, v2, h2, shift + BITS) });
+        }
+        Object[] slots = b1 < b2 ? new Object[] { k1, v1, k2, v2 } : new Object[] { k2, v2, k1, v1 };
+        return new BitmapNode((1 << b1) | (1 << b2), slots);
+    }
+
+    /**
+     * Depth-first iterator over the entries of the trie.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Node node;
+        private int position;
+
+        EntryIterator() {
+            node = root;
+            position = 0;
+            advance();
+        }
+
+        /** Move to the next key slot, descending into child nodes. */
+        private void advance() {
+            while (node != null) {
+                if (position >= node.slots.length) {
+                    node = nodes.poll();
+                    position = node == null ? 0 : positions.pop();
+                } else if (node.slots[position] == null) {
+                    nodes.push(node);
+                    positions.push(position + 2);
+                    node = (Node) node.slots[position + 1];
+                    position = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return node != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(
+                    (K) node.slots[position], (V) node.slots[position + 1]);
+            position += 2;
+            advance();
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * How much of its representation invariant a graph checks after a mutation.
+ *
+ * <p>Three levels are available:
+ * <ul><li> {@link #OFF}: never check after a mutation
+ *     <li> {@link #INCREMENTAL}: check only the vertices and edges that the
+ *          mutation touched, so each check costs about as much as the
+ *          mutation itself
+ *     <li> {@link #sampled(int) sampled(n)}: check the whole rep after every
+ *          n-th mutation; {@code sampled(1)} checks the whole rep every time
+ * </ul>
+ *
+ * <p>Checks are assertions, so no level does any work unless the JVM runs with
+ * assertions enabled ({@code -ea}).
+ * Immutable.
+ */
+public final class RepCheck {
+
+    /** Checking levels. */
+    public enum Level { OFF, INCREMENTAL, SAMPLED }
+
+    /** Never check the rep after a mutation. */
+    public static final RepCheck OFF = new RepCheck(Level.OFF, 0);
+
+    /** Check only what each mutation touched. */
+    public static final RepCheck INCREMENTAL = new RepCheck(Level.INCREMENTAL, 0);
+
+    // See assertionsEnabled()
+    static final boolean ASSERTIONS_ENABLED = detectAssertions();
+
+    private final Level level;
+    private final int interval;
+
+    // Abstraction function:
+    //   Represents checking at the given level; interval is the number of
+    //   mutations between full checks when level is SAMPLED
+    // Representation invariant:
+    //   - level != null
+    //   - interval > 0 if level is SAMPLED, otherwise interval == 0
+    // Safety from rep exposure:
+    //   - All fields are private, final and immutable
+
+    private RepCheck(Level level, int interval) {
+        this.level = level;
+        this.interval = interval;
+        checkRep();
+    }
+
+    /**
+     * Check the whole rep after every interval-th mutation.
+     *
+     * @param interval number of mutations between full checks, must be positive
+     * @return a sampled checking policy
+     * @throws IllegalArgumentException if interval <= 0
+     */
+    public static RepCheck sampled(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        return new RepCheck(Level.SAMPLED, interval);
+    }
+
+    private static boolean detectAssertions() {
+        boolean enabled = false;
+        assert enabled = true;
+        return enabled;
+    }
+
+    /**
+     * A class that checks a large rep can test this first, so that it skips
+     * the loops when no assert inside them would run.
+     *
+     * @return true iff this JVM runs with assertions enabled
+     */
+    public static boolean assertionsEnabled() {
+        return ASSERTIONS_ENABLED;
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert level != null : "level cannot be null";
+        assert (level == Level.SAMPLED) == (interval > 0) : "bad interval: " + interval;
+    }
+
+    /**
+     * @return the checking level
+     */
+    public Level level() {
+        return level;
+    }
+
+    /**
+     * @return number of mutations between full checks, or 0 if this policy
+     *         never checks the whole rep
+     */
+    public int interval() {
+        return interval;
+    }
+
+    /**
+     * @param mutations number of mutations made so far, including the latest
+     * @return true iff the whole rep should be checked after the latest mutation
+     */
+    boolean fullCheckDue(long mutations) {
+        return ASSERTIONS_ENABLED && level == Level.SAMPLED && mutations % interval == 0;
+    }
+
+    /**
+     * @return true iff the parts of the rep touched by each mutation should be
+     *         checked
+     */
+    boolean incremental() {
+        return ASSERTIONS_ENABLED && level == Level.INCREMENTAL;
+    }
+
+    @Override
+    public String toString() {
+        return level == Level.SAMPLED ? "SAMPLED(" + interval + ")" : level.toString();
+    }
+}
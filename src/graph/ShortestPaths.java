@@ -0,0 +1,730 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Shortest-path queries over a weighted directed graph, by Dijkstra's
+ * algorithm.
+ *
+ * <p>The length of a path is the sum of the costs of its edges, and the cost
+ * of an edge is given by a weight transform applied to its weight. With
+ * {@link #WEIGHT} an edge costs its weight; with {@link #INVERSE_WEIGHT} it
+ * costs the reciprocal of its weight, so that in an affinity graph, where a
+ * heavier edge means a stronger bond, the shortest path follows the heaviest
+ * edges. Costs must be nonnegative; an edge whose cost is positive infinity
+ * is never used.
+ *
+ * <p>{@link #search(int, Workspace)} finds the distances from one vertex to
+ * every vertex, and {@link #distance(int, int, Workspace)} finds a shortest
+ * path between two vertices with a bidirectional search, which stops as soon
+ * as the two frontiers prove that no shorter path exists. Both work on vertex
+ * IDs and keep all their state in a {@link Workspace}, so a query allocates
+ * nothing once the workspace is made: searches run over the arrays of a
+ * {@link FrozenGraph} or the slots of an {@link IntGraph}, with a binary heap
+ * of vertex IDs that supports decrease-key. The label methods
+ * {@link #distances(Object)}, {@link #path(Object, Object)} and
+ * {@link #distance(Object, Object)} are conveniences that allocate a
+ * workspace and their results on each call.
+ *
+ * <p>For example, the path of strongest affinity between two words:
+ * <pre>    new ShortestPaths&lt;&gt;(graph, ShortestPaths.INVERSE_WEIGHT).path("new", "life")</pre>
+ *
+ * <p>A ShortestPaths over a Graph searches an immutable copy of it, and is
+ * thread-safe if each thread uses its own workspace. A ShortestPaths over an
+ * IntGraph searches the IntGraph as it is at the time of each query, and must
+ * not be used while the IntGraph is being mutated.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public final class ShortestPaths<L> {
+
+    /** Weight transform under which an edge costs its weight. */
+    public static final IntToDoubleFunction WEIGHT = weight -> weight;
+
+    /**
+     * Weight transform under which an edge costs the reciprocal of its
+     * weight, so that paths along heavier edges are shorter.
+     */
+    public static final IntToDoubleFunction INVERSE_WEIGHT = weight -> 1.0 / weight;
+
+    private final Topology<L> graph;
+    private final IntToDoubleFunction cost;
+
+    // Abstraction function:
+    //   Represents shortest-path queries over graph, where an edge of weight
+    //   w costs cost.applyAsDouble(w)
+    // Representation invariant:
+    //   - graph != null, cost != null
+    // Safety from rep exposure:
+    //   - All fields are private and final; graph is a FrozenGraph this
+    //     class made, or an IntGraph the client shares on purpose
+    //   - the label methods return new unmodifiable collections
+    // Thread safety argument:
+    //   - A FrozenGraph is immutable, and all search state is in the
+    //     workspace passed to each query, which is confined to its thread
+
+    /**
+     * Prepare shortest-path queries over a copy of a graph. Later changes to
+     * graph are not seen by the queries.
+     *
+     * @param graph graph to search; copied unless it is a FrozenGraph
+     * @param cost weight transform giving the nonnegative cost of an edge from
+     *        its weight
+     */
+    public ShortestPaths(Graph<L> graph, IntToDoubleFunction cost) {
+        this(new FrozenTopology<>(FrozenGraph.of(nonNull(graph))), cost);
+    }
+
+    /**
+     * Prepare shortest-path queries over an int-indexed graph. Each query
+     * sees the graph as it is at the time.
+     *
+     * @param graph graph to search, not copied
+     * @param cost weight transform giving the nonnegative cost of an edge from
+     *        its weight
+     */
+    public ShortestPaths(IntGraph<L> graph, IntToDoubleFunction cost) {
+        this(new IntGraphTopology<>(nonNull(graph)), cost);
+    }
+
+    private ShortestPaths(Topology<L> graph, IntToDoubleFunction cost) {
+        if (cost == null) {
+            throw new IllegalArgumentException("weight transform cannot be null");
+        }
+        this.graph = graph;
+        this.cost = cost;
+        checkRep();
+    }
+
+    private static <G> G nonNull(G graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("graph cannot be null");
+        }
+        return graph;
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert graph != null : "graph cannot be null";
+        assert cost != null : "weight transform cannot be null";
+    }
+
+    /**
+     * @return a new workspace for queries; it grows as needed if the graph
+     *         gains vertices
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(graph.idLimit());
+    }
+
+    /**
+     * @param vertex a label
+     * @return the ID of vertex used by the queries, or -1 if it is not a
+     *         vertex of the graph
+     */
+    public int id(L vertex) {
+        return graph.id(vertex);
+    }
+
+    /**
+     * @param id a vertex ID
+     * @return the label of that vertex
+     */
+    public L label(int id) {
+        checkVertex(id);
+        return graph.label(id);
+    }
+
+    private void checkVertex(int id) {
+        if (id < 0 || id >= graph.idLimit() || !graph.isVertex(id)) {
+            throw new IllegalArgumentException("not a vertex ID: " + id);
+        }
+    }
+
+    /**
+     * @return the cost of an edge of that weight
+     */
+    private double cost(int weight) {
+        double edgeCost = cost.applyAsDouble(weight);
+        if (!(edgeCost >= 0)) {
+            throw new IllegalArgumentException(
+                    "edge cost must be nonnegative: " + edgeCost + " for weight " + weight);
+        }
+        return edgeCost;
+    }
+
+    /**
+     * Find the distance from source to every vertex. Afterwards
+     * {@link Workspace#distance(int)} and {@link Workspace#parent(int)} of
+     * ws describe a tree of shortest paths from source.
+     *
+     * @param source ID of the vertex to start from
+     * @param ws workspace to search in; its previous results are lost
+     */
+    public void search(int source, Workspace ws) {
+        checkVertex(source);
+        ws.begin(graph.idLimit());
+        ws.source = source;
+        ws.reachForward(source, 0, -1);
+        while (!ws.forwardHeap.isEmpty()) {
+            scanForward(ws.forwardHeap.poll(), ws);
+        }
+    }
+
+    /**
+     * Find a shortest path from source to target with a bidirectional
+     * search. Afterwards {@link Workspace#pathSize()} and
+     * {@link Workspace#pathVertex(int)} of ws give the path.
+     *
+     * @param source ID of the vertex to start from
+     * @param target ID of the vertex to reach
+     * @param ws workspace to search in; its previous results are lost
+     * @return length of a shortest path from source to target, 0 if they are
+     *         the same vertex, or positive infinity if there is no path
+     */
+    public double distance(int source, int target, Workspace ws) {
+        checkVertex(source);
+        checkVertex(target);
+        ws.begin(graph.idLimit());
+        if (source == target) {
+            ws.path[0] = source;
+            ws.pathSize = 1;
+            return 0;
+        }
+        ws.reachForward(source, 0, -1);
+        ws.reachBackward(target, 0, -1);
+        IndexedHeap forward = ws.forwardHeap;
+        IndexedHeap backward = ws.backwardHeap;
+        // best is the length of the shortest path found so far, made of the
+        // forward tree to meetFrom, an edge to meetTo, and the backward tree
+        double best = Double.POSITIVE_INFINITY;
+        int meetFrom = -1;
+        int meetTo = -1;
+        // Stop when no path through the unsettled vertices can be shorter
+        while (!forward.isEmpty() && !backward.isEmpty()
+                && forward.minKey() + backward.minKey() < best) {
+            if (forward.size() <= backward.size()) {
+                int u = forward.poll();
+                double du = ws.forwardDistance[u];
+                for (int i = graph.outStart(u), end = graph.outEnd(u); i < end; i++) {
+                    int v = graph.outTarget(u, i);
+                    if (v < 0) {
+                        continue;
+                    }
+                    double length = cost(graph.outWeight(u, i));
+                    if (length == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    ws.reachForward(v, du + length, u);
+                    if (ws.backwardSeen[v] == ws.epoch) {
+                        double total = du + length + ws.backwardDistance[v];
+                        if (total < best) {
+                            best = total;
+                            meetFrom = u;
+                            meetTo = v;
+                        }
+                    }
+                }
+            } else {
+                int u = backward.poll();
+                double du = ws.backwardDistance[u];
+                for (int i = graph.inStart(u), end = graph.inEnd(u); i < end; i++) {
+                    int v = graph.inSource(u, i);
+                    if (v < 0) {
+                        continue;
+                    }
+                    double length = cost(graph.inWeight(u, i));
+                    if (length == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    ws.reachBackward(v, du + length, u);
+                    if (ws.forwardSeen[v] == ws.epoch) {
+                        double total = ws.forwardDistance[v] + length + du;
+                        if (total < best) {
+                            best = total;
+                            meetFrom = v;
+                            meetTo = u;
+                        }
+                    }
+                }
+            }
+        }
+        if (meetFrom >= 0) {
+            ws.joinPath(meetFrom, meetTo);
+        }
+        return best;
+    }
+
+    /**
+     * Settle u in a forward search: relax its out-edges.
+     */
+    private void scanForward(int u, Workspace ws) {
+        double du = ws.forwardDistance[u];
+        for (int i = graph.outStart(u), end = graph.outEnd(u); i < end; i++) {
+            int v = graph.outTarget(u, i);
+            if (v < 0) {
+                continue;
+            }
+            double length = cost(graph.outWeight(u, i));
+            if (length != Double.POSITIVE_INFINITY) {
+                ws.reachForward(v, du + length, u);
+            }
+        }
+    }
+
+    /**
+     * Find the distance from source to every vertex reachable from it.
+     *
+     * @param source vertex to start from
+     * @return map from each vertex reachable from source, including source,
+     *         to its distance from source; empty if source is not a vertex
+     */
+    public Map<L, Double> distances(L source) {
+        int id = graph.id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        Workspace ws = newWorkspace();
+        search(id, ws);
+        Map<L, Double> distances = new HashMap<>();
+        for (int v = 0; v < ws.forwardSeen.length; v++) {
+            if (ws.forwardSeen[v] == ws.epoch) {
+                distances.put(graph.label(v), ws.forwardDistance[v]);
+            }
+        }
+        return Collections.unmodifiableMap(distances);
+    }
+
+    /**
+     * Find a shortest path between two vertices.
+     *
+     * @param source vertex to start from
+     * @param target vertex to reach
+     * @return the vertices of a shortest path from source to target, starting
+     *         with source and ending with target; just source if they are
+     *         equal; empty if there is no path or either is not a vertex
+     */
+    public List<L> path(L source, L target) {
+        int from = graph.id(source);
+        int to = graph.id(target);
+        if (from < 0 || to < 0) {
+            return Collections.emptyList();
+        }
+        Workspace ws = newWorkspace();
+        distance(from, to, ws);
+        List<L> path = new ArrayList<>(ws.pathSize);
+        for (int i = 0; i < ws.pathSize; i++) {
+            path.add(graph.label(ws.path[i]));
+        }
+        return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Find the length of a shortest path between two vertices.
+     *
+     * @param source vertex to start from
+     * @param target vertex to reach
+     * @return length of a shortest path from source to target, 0 if they are
+     *         equal, or positive infinity if there is no path or either is
+     *         not a vertex
+     */
+    public double distance(L source, L target) {
+        int from = graph.id(source);
+        int to = graph.id(target);
+        if (from < 0 || to < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return distance(from, to, newWorkspace());
+    }
+
+    @Override
+    public String toString() {
+        return "ShortestPaths over " + graph.idLimit() + " vertex IDs";
+    }
+
+    /**
+     * Reusable, mutable state of shortest-path queries, with the results of
+     * the last one. A workspace may be used with any ShortestPaths, but by
+     * only one thread at a time.
+     *
+     * <p>Starting a query costs time proportional to the number of vertices
+     * the previous query reached, not to the size of the graph: every array
+     * entry is stamped with the query that wrote it, and entries with an
+     * older stamp are treated as unreached.
+     */
+    public static final class Workspace {
+
+        private int epoch = 0;
+        private int[] forwardSeen;
+        private double[] forwardDistance;
+        private int[] forwardParent;
+        private int[] backwardSeen;
+        private double[] backwardDistance;
+        private int[] backwardParent;
+        private final IndexedHeap forwardHeap;
+        private final IndexedHeap backwardHeap;
+        private int[] path;
+        private int pathSize = 0;
+        private int source = -1;
+
+        // Abstraction function:
+        //   Represents the results of the last query: if source >= 0, the
+        //   tree of shortest paths from source in which vertex v, if
+        //   forwardSeen[v] == epoch, is at distance forwardDistance[v] with
+        //   parent forwardParent[v]; and the path path[0 .. pathSize-1]
+        // Representation invariant:
+        //   - all arrays and both heaps have the same length, and epoch > 0
+        //     once a query has begun
+        //   - no entry of forwardSeen or backwardSeen exceeds epoch
+        //   - 0 <= pathSize <= path.length
+        // Safety from rep exposure:
+        //   - All fields are private; arrays are never exposed
+
+        private Workspace(int capacity) {
+            forwardSeen = new int[capacity];
+            forwardDistance = new double[capacity];
+            forwardParent = new int[capacity];
+            backwardSeen = new int[capacity];
+            backwardDistance = new double[capacity];
+            backwardParent = new int[capacity];
+            forwardHeap = new IndexedHeap(capacity);
+            backwardHeap = new IndexedHeap(capacity);
+            path = new int[capacity];
+        }
+
+        /**
+         * Check the constant-time part of the representation invariant.
+         */
+        private void checkRep() {
+            int capacity = forwardSeen.length;
+            assert forwardDistance.length == capacity && forwardParent.length == capacity
+                && backwardSeen.length == capacity && backwardDistance.length == capacity
+                && backwardParent.length == capacity && path.length == capacity
+                && forwardHeap.capacity() == capacity && backwardHeap.capacity() == capacity
+                : "array lengths differ";
+            assert pathSize >= 0 && pathSize <= capacity : "bad path size";
+        }
+
+        /**
+         * Start a new query over vertex IDs in [0, capacity).
+         */
+        private void begin(int capacity) {
+            if (capacity > forwardSeen.length) {
+                int length = Math.max(capacity, forwardSeen.length * 2);
+                forwardSeen = Arrays.copyOf(forwardSeen, length);
+                forwardDistance = Arrays.copyOf(forwardDistance, length);
+                forwardParent = Arrays.copyOf(forwardParent, length);
+                backwardSeen = Arrays.copyOf(backwardSeen, length);
+                backwardDistance = Arrays.copyOf(backwardDistance, length);
+                backwardParent = Arrays.copyOf(backwardParent, length);
+                forwardHeap.ensureCapacity(length);
+                backwardHeap.ensureCapacity(length);
+                path = Arrays.copyOf(path, length);
+            }
+            forwardHeap.clear();
+            backwardHeap.clear();
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardSeen, 0);
+                Arrays.fill(backwardSeen, 0);
+                epoch = 0;
+            }
+            epoch++;
+            pathSize = 0;
+            source = -1;
+            checkRep();
+        }
+
+        /**
+         * Record that the forward search reached v at distance d from parent,
+         * unless it has already reached v at a distance no greater.
+         */
+        private void reachForward(int v, double d, int parent) {
+            if (forwardSeen[v] != epoch) {
+                forwardSeen[v] = epoch;
+            } else if (!(d < forwardDistance[v])) {
+                return;
+            }
+            forwardDistance[v] = d;
+            forwardParent[v] = parent;
+            forwardHeap.offer(v, d);
+        }
+
+        /**
+         * Record that the backward search reached v at distance d to the
+         * target through child, unless it has already reached v at a
+         * distance no greater.
+         */
+        private void reachBackward(int v, double d, int child) {
+            if (backwardSeen[v] != epoch) {
+                backwardSeen[v] = epoch;
+            } else if (!(d < backwardDistance[v])) {
+                return;
+            }
+            backwardDistance[v] = d;
+            backwardParent[v] = child;
+            backwardHeap.offer(v, d);
+        }
+
+        /**
+         * Record the path along the forward tree to from, then the edge from
+         * from to to, then the backward tree from to.
+         */
+        private void joinPath(int from, int to) {
+            int size = 0;
+            for (int v = from; v >= 0; v = forwardParent[v]) {
+                path[size++] = v;
+            }
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int swap = path[i];
+                path[i] = path[j];
+                path[j] = swap;
+            }
+            for (int v = to; v >= 0; v = backwardParent[v]) {
+                path[size++] = v;
+            }
+            pathSize = size;
+            checkRep();
+        }
+
+        private void checkSearched(int vertex) {
+            if (source < 0) {
+                throw new IllegalStateException("no single-source search was run");
+            }
+            if (vertex < 0 || vertex >= forwardSeen.length) {
+                throw new IllegalArgumentException("not a vertex ID: " + vertex);
+            }
+        }
+
+        /**
+         * @param vertex a vertex ID
+         * @return distance of vertex from the source of the last
+         *         {@link ShortestPaths#search(int, Workspace) search}, or
+         *         positive infinity if it is unreachable
+         * @throws IllegalStateException if the last query was not a search
+         */
+        public double distance(int vertex) {
+            checkSearched(vertex);
+            return forwardSeen[vertex] == epoch ? forwardDistance[vertex] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @param vertex a vertex ID
+         * @return ID of the vertex before vertex on a shortest path from the
+         *         source of the last {@link ShortestPaths#search(int, Workspace)
+         *         search}, or -1 if vertex is the source or unreachable
+         * @throws IllegalStateException if the last query was not a search
+         */
+        public int parent(int vertex) {
+            checkSearched(vertex);
+            return forwardSeen[vertex] == epoch ? forwardParent[vertex] : -1;
+        }
+
+        /**
+         * @return number of vertices on the path found by the last
+         *         {@link ShortestPaths#distance(int, int, Workspace) distance}
+         *         query, or 0 if it found none
+         */
+        public int pathSize() {
+            return pathSize;
+        }
+
+        /**
+         * @param index position on the path, in [0, pathSize())
+         * @return ID of the vertex at that position on the path found by the
+         *         last {@link ShortestPaths#distance(int, int, Workspace)
+         *         distance} query; position 0 is its source
+         */
+        public int pathVertex(int index) {
+            if (index < 0 || index >= pathSize) {
+                throw new IndexOutOfBoundsException("path index " + index + " of " + pathSize);
+            }
+            return path[index];
+        }
+    }
+
+    /**
+     * Int-indexed adjacency of the graph being searched. Edges of a vertex
+     * are visited at indexes [start, end), some of which may be empty.
+     */
+    private abstract static class Topology<L> {
+
+        /** @return an upper bound on the vertex IDs */
+        abstract int idLimit();
+
+        /** @return ID of vertex, or -1 if it is not a vertex */
+        abstract int id(L vertex);
+
+        /** @return label of the vertex with a valid ID */
+        abstract L label(int id);
+
+        /** @return true iff id, in [0, idLimit()), is the ID of a vertex */
+        abstract boolean isVertex(int id);
+
+        abstract int outStart(int id);
+
+        abstract int outEnd(int id);
+
+        /** @return ID of the target of the out-edge at index, or -1 if empty */
+        abstract int outTarget(int id, int index);
+
+        abstract int outWeight(int id, int index);
+
+        abstract int inStart(int id);
+
+        abstract int inEnd(int id);
+
+        /** @return ID of the source of the in-edge at index, or -1 if empty */
+        abstract int inSource(int id, int index);
+
+        abstract int inWeight(int id, int index);
+    }
+
+    /** Adjacency of a FrozenGraph: indexes are positions in its arrays. */
+    private static final class FrozenTopology<L> extends Topology<L> {
+        private final FrozenGraph<L> graph;
+
+        FrozenTopology(FrozenGraph<L> graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        int idLimit() {
+            return graph.vertexCount();
+        }
+
+        @Override
+        int id(L vertex) {
+            return graph.id(vertex);
+        }
+
+        @Override
+        L label(int id) {
+            return graph.label(id);
+        }
+
+        @Override
+        boolean isVertex(int id) {
+            return true;
+        }
+
+        @Override
+        int outStart(int id) {
+            return graph.outStart(id);
+        }
+
+        @Override
+        int outEnd(int id) {
+            return graph.outEnd(id);
+        }
+
+        @Override
+        int outTarget(int id, int index) {
+            return graph.outNeighbour(index);
+        }
+
+        @Override
+        int outWeight(int id, int index) {
+            return graph.outWeight(index);
+        }
+
+        @Override
+        int inStart(int id) {
+            return graph.inStart(id);
+        }
+
+        @Override
+        int inEnd(int id) {
+            return graph.inEnd(id);
+        }
+
+        @Override
+        int inSource(int id, int index) {
+            return graph.inNeighbour(index);
+        }
+
+        @Override
+        int inWeight(int id, int index) {
+            return graph.inWeight(index);
+        }
+    }
+
+    /** Adjacency of an IntGraph: indexes are its edge slots. */
+    private static final class IntGraphTopology<L> extends Topology<L> {
+        private final IntGraph<L> graph;
+
+        IntGraphTopology(IntGraph<L> graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        int idLimit() {
+            return graph.idLimit();
+        }
+
+        @Override
+        int id(L vertex) {
+            return graph.id(vertex);
+        }
+
+        @Override
+        L label(int id) {
+            return graph.label(id);
+        }
+
+        @Override
+        boolean isVertex(int id) {
+            return graph.label(id) != null;
+        }
+
+        @Override
+        int outStart(int id) {
+            return 0;
+        }
+
+        @Override
+        int outEnd(int id) {
+            return graph.outSlots(id);
+        }
+
+        @Override
+        int outTarget(int id, int index) {
+            return graph.outTarget(id, index);
+        }
+
+        @Override
+        int outWeight(int id, int index) {
+            return graph.outWeight(id, index);
+        }
+
+        @Override
+        int inStart(int id) {
+            return 0;
+        }
+
+        @Override
+        int inEnd(int id) {
+            return graph.inSlots(id);
+        }
+
+        @Override
+        int inSource(int id, int index) {
+            return graph.inSource(id, index);
+        }
+
+        @Override
+        int inWeight(int id, int index) {
+            return graph.inWeight(id, index);
+        }
+    }
+}
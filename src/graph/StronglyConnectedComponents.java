@@ -0,0 +1,312 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The strongly connected components of a graph, found by Tarjan's algorithm.
+ *
+ * <p>Two vertices are in the same component iff each can be reached from the
+ * other. Components are numbered 0 .. {@link #componentCount()}-1 in
+ * topological order: every edge between two components goes from a lower
+ * number to a higher one, so component 0 has no edges in from other
+ * components and the last component has no edges out.
+ * {@link #condensation()} builds that DAG of components as a Graph.
+ *
+ * <p>The search runs in time and space linear in the size of the graph. It
+ * keeps its own stack of (vertex, next edge) frames in int arrays instead of
+ * recursing, so long chains of vertices, such as the words of a long text,
+ * cannot overflow the thread's stack.
+ *
+ * <p>For example, to keep only the words of a corpus graph that can both
+ * reach and be reached from "the", dropping vocabulary that leads nowhere
+ * or that nothing leads to:
+ * <pre>    new StronglyConnectedComponents&lt;&gt;(graph).componentOf("the")</pre>
+ *
+ * <p>StronglyConnectedComponents is immutable and thread-safe.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public final class StronglyConnectedComponents<L> {
+
+    private static final int UNVISITED = -1;
+
+    private final FrozenGraph<L> graph;
+    private final int[] component;
+    private final int[] memberOffsets;
+    private final int[] members;
+
+    // Abstraction function:
+    //   Represents the partition of the vertices of graph into components
+    //   0 .. memberOffsets.length-2, where the vertex with ID v is in
+    //   component component[v], and the members of component c are the
+    //   vertices with IDs members[memberOffsets[c] .. memberOffsets[c+1]-1]
+    // Representation invariant:
+    //   - component.length == members.length == graph.vertexCount()
+    //   - memberOffsets[0] == 0, nondecreasing, last entry == members.length
+    //   - component[members[i]] == c for i in
+    //     [memberOffsets[c], memberOffsets[c+1]); members is a permutation
+    //   - component[s] <= component[t] for every edge s -> t
+    // Safety from rep exposure:
+    //   - All fields are private and final; graph is a frozen copy made by
+    //     this class or an immutable FrozenGraph; arrays are never exposed
+    //   - members() returns an unmodifiable view, and condensation() a new
+    //     graph
+    // Thread safety argument:
+    //   - This object is immutable after construction
+
+    /**
+     * Find the strongly connected components of a copy of a graph. Later
+     * changes to graph are not seen.
+     *
+     * @param graph graph to search; copied unless it is a FrozenGraph
+     */
+    public StronglyConnectedComponents(Graph<L> graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("graph cannot be null");
+        }
+        this.graph = FrozenGraph.of(graph);
+        int n = this.graph.vertexCount();
+        this.component = new int[n];
+        int count = tarjan(this.graph, component);
+
+        // Tarjan finishes sink components first; number them last instead
+        for (int v = 0; v < n; v++) {
+            component[v] = count - 1 - component[v];
+        }
+        this.memberOffsets = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            memberOffsets[component[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        this.members = new int[n];
+        int[] next = Arrays.copyOf(memberOffsets, count);
+        for (int v = 0; v < n; v++) {
+            members[next[component[v]]++] = v;
+        }
+        checkRep();
+    }
+
+    /**
+     * Label each vertex of graph with the number of its strongly connected
+     * component, in the order Tarjan's algorithm finds them.
+     *
+     * @param graph graph to search
+     * @param component array to fill, one entry per vertex ID
+     * @return number of components
+     */
+    private static int tarjan(FrozenGraph<?> graph, int[] component) {
+        int n = graph.vertexCount();
+        int[] index = new int[n];     // discovery order, or UNVISITED
+        int[] low = new int[n];       // least index reachable through the subtree
+        int[] stack = new int[n];     // Tarjan's stack of vertices
+        boolean[] onStack = new boolean[n];
+        int[] frameVertex = new int[n]; // call stack: vertex being searched,
+        int[] frameEdge = new int[n];   // and position of its next out-edge
+        Arrays.fill(index, UNVISITED);
+        int nextIndex = 0;
+        int stackSize = 0;
+        int count = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != UNVISITED) {
+                continue;
+            }
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            frameVertex[0] = root;
+            frameEdge[0] = graph.outStart(root);
+            int depth = 1;
+
+            while (depth > 0) {
+                int v = frameVertex[depth - 1];
+                int edge = frameEdge[depth - 1];
+                if (edge < graph.outEnd(v)) {
+                    frameEdge[depth - 1] = edge + 1;
+                    int w = graph.outNeighbour(edge);
+                    if (index[w] == UNVISITED) {
+                        // Descend into w
+                        index[w] = low[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        frameVertex[depth] = w;
+                        frameEdge[depth] = graph.outStart(w);
+                        depth++;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                // Every edge of v is done: return from v
+                depth--;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                if (depth > 0) {
+                    int parent = frameVertex[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check the representation invariant, in time linear in the size of the
+     * graph, if assertions are enabled.
+     */
+    private void checkRep() {
+        if (!RepCheck.ASSERTIONS_ENABLED) {
+            return;
+        }
+        int n = graph.vertexCount();
+        assert component.length == n && members.length == n : "arrays have wrong length";
+        assert memberOffsets[0] == 0 && memberOffsets[memberOffsets.length - 1] == n
+            : "bad member offsets";
+        for (int c = 0; c + 1 < memberOffsets.length; c++) {
+            assert memberOffsets[c] < memberOffsets[c + 1] : "empty component " + c;
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+                assert component[members[i]] == c : "member in wrong component";
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            for (int i = graph.outStart(s); i < graph.outEnd(s); i++) {
+                assert component[s] <= component[graph.outNeighbour(i)]
+                    : "components not in topological order";
+            }
+        }
+    }
+
+    /**
+     * @return number of strongly connected components
+     */
+    public int componentCount() {
+        return memberOffsets.length - 1;
+    }
+
+    /**
+     * @param vertex a label
+     * @return number of the component of vertex, or -1 if it is not a vertex
+     *         of the graph
+     */
+    public int component(L vertex) {
+        int id = graph.id(vertex);
+        return id < 0 ? -1 : component[id];
+    }
+
+    /**
+     * @param component number of a component, in [0, componentCount())
+     * @return the vertices in that component, as an unmodifiable view
+     */
+    public Set<L> members(int component) {
+        if (component < 0 || component >= componentCount()) {
+            throw new IllegalArgumentException("not a component: " + component);
+        }
+        return new Members(memberOffsets[component], memberOffsets[component + 1]);
+    }
+
+    /**
+     * @param vertex a label
+     * @return the vertices in the same component as vertex, as an
+     *         unmodifiable view; empty if vertex is not a vertex of the graph
+     */
+    public Set<L> componentOf(L vertex) {
+        int c = component(vertex);
+        return c < 0 ? Collections.emptySet() : members(c);
+    }
+
+    /**
+     * Build the condensation of the graph: the DAG with one vertex per
+     * component, labelled with its number, and an edge from component c to
+     * component d != c whose weight is the total weight of the edges of the
+     * graph from members of c to members of d.
+     *
+     * @return a new mutable graph holding the condensation, backed by an
+     *         {@link IntGraph}
+     * @throws ArithmeticException if a total weight does not fit in an int
+     */
+    public Graph<Integer> condensation() {
+        GraphLoader<Integer> loader = new GraphLoader<>();
+        for (int c = 0; c < componentCount(); c++) {
+            loader.add(c);
+        }
+        for (int s = 0; s < graph.vertexCount(); s++) {
+            for (int i = graph.outStart(s); i < graph.outEnd(s); i++) {
+                int from = component[s];
+                int to = component[graph.outNeighbour(i)];
+                if (from != to) {
+                    loader.add(from, to, graph.outWeight(i));
+                }
+            }
+        }
+        return loader.commit(new IntGraph<Integer>().asGraph());
+    }
+
+    @Override
+    public String toString() {
+        return componentCount() + " strongly connected components of " + graph.vertexCount()
+                + " vertices";
+    }
+
+    /**
+     * Unmodifiable view of the members of one component.
+     */
+    private class Members extends AbstractSet<L> {
+
+        private final int start;
+        private final int end;
+
+        Members(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            @SuppressWarnings("unchecked") // id() only hashes and compares o
+            int id = graph.id((L) o);
+            return id >= 0 && memberOffsets[component[id]] == start;
+        }
+
+        @Override
+        public Iterator<L> iterator() {
+            return new Iterator<L>() {
+                private int next = start;
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public L next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return graph.label(members[next++]);
+                }
+            };
+        }
+    }
+}
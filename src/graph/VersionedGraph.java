@@ -0,0 +1,368 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe implementation of Graph with multi-version concurrency
+ * control: readers never block writers, and writers never block readers.
+ *
+ * <p>The graph is a sequence of immutable versions. Each mutation, or each
+ * batch of mutations passed to {@link #update(Consumer)}, builds a new version
+ * that shares all unchanged structure with the previous one, then publishes it
+ * with a single volatile write. Writers are serialized with each other.
+ *
+ * <p>{@link #snapshot()} returns the current version in O(1); it stays
+ * consistent and unchanged however the graph changes later. The observers of
+ * a VersionedGraph read the current version at the time of the call, so two
+ * calls may see different versions; to read several vertices consistently,
+ * read them from one snapshot. Versions no reader holds are reclaimed by the
+ * garbage collector.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class VersionedGraph<L> implements Graph<L> {
+
+    private volatile Version<L> current = new Version<>(
+            PersistentMap.empty(), PersistentMap.empty(), 0);
+    private final Object writeLock = new Object();
+
+    // Abstraction function:
+    //   Represents the graph current represents
+    // Representation invariant:
+    //   - current != null
+    //   - version numbers of successive published versions increase by one
+    // Thread safety argument:
+    //   - current is volatile and every Version is deeply immutable, so a
+    //     reader sees a fully built version
+    //   - writers build and publish new versions only while holding writeLock,
+    //     so no update is lost
+    // Safety from rep exposure:
+    //   - All fields are private; versions are immutable
+
+    /**
+     * Construct an empty VersionedGraph.
+     */
+    public VersionedGraph() {
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert current != null : "current version cannot be null";
+    }
+
+    /**
+     * @return an immutable graph equal to this graph now; its mutators throw
+     *         UnsupportedOperationException
+     */
+    public Graph<L> snapshot() {
+        return current;
+    }
+
+    /**
+     * @return number of versions published before the current one
+     */
+    public long version() {
+        return current.number;
+    }
+
+    /**
+     * Apply several mutations as one new version: readers see either none or
+     * all of them.
+     *
+     * @param changes applies mutations to the graph it is given, which must
+     *        not be used after changes returns
+     */
+    public void update(Consumer<? super Graph<L>> changes) {
+        MutationBatchEvent event = new MutationBatchEvent();
+        event.begin();
+        synchronized (writeLock) {
+            Draft draft = new Draft(current);
+            try {
+                changes.accept(draft);
+            } finally {
+                draft.closed = true;
+            }
+            publish(draft);
+            if (event.shouldCommit()) {
+                event.operation = "VersionedGraph.update";
+                event.graphClass = getClass().getName();
+                event.mutations = draft.mutations;
+                event.vertices = current.targets.size();
+                event.commit();
+            }
+        }
+    }
+
+    private void publish(Draft draft) {
+        if (draft.targets != current.targets || draft.sources != current.sources) {
+            current = new Version<>(draft.targets, draft.sources, current.number + 1);
+        }
+        checkRep();
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        synchronized (writeLock) {
+            Draft draft = new Draft(current);
+            boolean added = draft.add(vertex);
+            publish(draft);
+            return added;
+        }
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        synchronized (writeLock) {
+            Draft draft = new Draft(current);
+            int previous = draft.set(source, target, weight);
+            publish(draft);
+            return previous;
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        synchronized (writeLock) {
+            Draft draft = new Draft(current);
+            boolean removed = draft.remove(vertex);
+            publish(draft);
+            return removed;
+        }
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return current.vertices();
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return current.sources(target);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return current.targets(source);
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+    /**
+     * Immutable version of a VersionedGraph.
+     */
+    private static final class Version<L> implements Graph<L> {
+
+        final PersistentMap<L, PersistentMap<L, Integer>> targets;
+        final PersistentMap<L, PersistentMap<L, Integer>> sources;
+        final long number;
+
+        // Abstraction function:
+        //   Represents the graph whose vertices are the keys of targets, with
+        //   an edge from s to t of weight w iff targets[s][t] == w
+        // Representation invariant:
+        //   - targets and sources have the same key set
+        //   - targets[s][t] == sources[t][s] for all vertices s, t
+        //   - all weights > 0
+        // Safety from rep exposure:
+        //   - All fields are final and immutable
+
+        Version(PersistentMap<L, PersistentMap<L, Integer>> targets,
+                PersistentMap<L, PersistentMap<L, Integer>> sources, long number) {
+            this.targets = targets;
+            this.sources = sources;
+            this.number = number;
+            assert targets.size() == sources.size() : "vertex sets differ";
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            throw new UnsupportedOperationException("snapshot cannot be modified");
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            throw new UnsupportedOperationException("snapshot cannot be modified");
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            throw new UnsupportedOperationException("snapshot cannot be modified");
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return Collections.unmodifiableSet(targets.keySet());
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            if (target == null) {
+                throw new IllegalArgumentException("target cannot be null");
+            }
+            Map<L, Integer> result = sources.get(target);
+            return result == null ? Collections.emptyMap() : result;
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            if (source == null) {
+                throw new IllegalArgumentException("source cannot be null");
+            }
+            Map<L, Integer> result = targets.get(source);
+            return result == null ? Collections.emptyMap() : result;
+        }
+
+        @Override
+        public String toString() {
+            if (targets.isEmpty()) {
+                return "Empty graph (0 vertices, 0 edges)";
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Graph version ").append(number).append(" with ")
+              .append(targets.size()).append(" vertices:\n");
+            for (Map.Entry<L, PersistentMap<L, Integer>> entry : targets.entrySet()) {
+                sb.append("  ").append(entry.getKey()).append(" -> ")
+                  .append(entry.getValue()).append("\n");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Unpublished version under construction by a writer holding writeLock.
+     */
+    private class Draft implements Graph<L> {
+
+        PersistentMap<L, PersistentMap<L, Integer>> targets;
+        PersistentMap<L, PersistentMap<L, Integer>> sources;
+        boolean closed = false;
+        long mutations = 0; // number of mutator calls made
+
+        Draft(Version<L> base) {
+            this.targets = base.targets;
+            this.sources = base.sources;
+        }
+
+        private void checkOpen() {
+            if (closed) {
+                throw new IllegalStateException("update has finished");
+            }
+        }
+
+        private void checkOpenForMutation() {
+            checkOpen();
+            mutations++;
+        }
+
+        private void ensureVertex(L vertex) {
+            if (!targets.containsKey(vertex)) {
+                targets = targets.plus(vertex, PersistentMap.empty());
+                sources = sources.plus(vertex, PersistentMap.empty());
+            }
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            if (vertex == null) {
+                throw new IllegalArgumentException("vertex cannot be null");
+            }
+            checkOpenForMutation();
+            if (targets.containsKey(vertex)) {
+                return false;
+            }
+            ensureVertex(vertex);
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("source and target cannot be null");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("weight cannot be negative: " + weight);
+            }
+            checkOpenForMutation();
+            ensureVertex(source);
+            ensureVertex(target);
+            PersistentMap<L, Integer> out = targets.get(source);
+            Integer previous = out.get(target);
+            if (weight > 0) {
+                targets = targets.plus(source, out.plus(target, weight));
+                sources = sources.plus(target, sources.get(target).plus(source, weight));
+            } else if (previous != null) {
+                targets = targets.plus(source, out.minus(target));
+                sources = sources.plus(target, sources.get(target).minus(source));
+            }
+            assert targets.get(source).getOrDefault(target, 0)
+                    .equals(sources.get(target).getOrDefault(source, 0)) :
+                "edge recorded inconsistently: " + source + " -> " + target;
+            return previous == null ? 0 : previous;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            if (vertex == null) {
+                throw new IllegalArgumentException("vertex cannot be null");
+            }
+            checkOpenForMutation();
+            PersistentMap<L, Integer> out = targets.get(vertex);
+            if (out == null) {
+                return false;
+            }
+            PersistentMap<L, Integer> in = sources.get(vertex);
+            targets = targets.minus(vertex);
+            sources = sources.minus(vertex);
+            for (L target : out.keySet()) {
+                if (!target.equals(vertex)) {
+                    sources = sources.plus(target, sources.get(target).minus(vertex));
+                }
+            }
+            for (L source : in.keySet()) {
+                if (!source.equals(vertex)) {
+                    targets = targets.plus(source, targets.get(source).minus(vertex));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            checkOpen();
+            return Collections.unmodifiableSet(targets.keySet());
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            if (target == null) {
+                throw new IllegalArgumentException("target cannot be null");
+            }
+            checkOpen();
+            Map<L, Integer> result = sources.get(target);
+            return result == null ? Collections.emptyMap() : result;
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            if (source == null) {
+                throw new IllegalArgumentException("source cannot be null");
+            }
+            checkOpen();
+            Map<L, Integer> result = targets.get(source);
+            return result == null ? Collections.emptyMap() : result;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, size-bounded cache of bridge word lookups (w1, w2) -> bridge,
+ * including lookups that found no bridge.
+ *
+ * <p>Entries are spread over independently locked segments by hash, so
+ * concurrent lookups of different pairs rarely contend. Each segment evicts
+ * with the cache's {@link GraphPoet.Eviction eviction policy}:
+ * <ul><li> LRU: the least recently used entry
+ *     <li> W_TINY_LFU: new entries enter a small LRU window; an entry leaving
+ *          the window is admitted to the main area only if it has been looked
+ *          up more often, by a count-min frequency sketch, than the entry it
+ *          would replace. The main area is a segmented LRU whose protected
+ *          part holds entries looked up again after admission. This keeps
+ *          frequent pairs cached when a burst of one-off pairs arrives.
+ * </ul>
+ * This class is internal to GraphPoet.
+ */
+final class BridgeCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int ENTRIES_PER_SEGMENT = 16;
+
+    private final Segment[] segments;
+    private final int maximumSize;
+    private final GraphPoet.Eviction eviction;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long version;
+
+    // Abstraction function:
+    //   Represents the union of the maps held by segments, holding lookups
+    //   in version version of a graph, with eviction policy eviction, and
+    //   hits, misses and evictions counted so far
+    // Representation invariant:
+    //   - segments.length is a power of two; capacities of segments sum to
+    //     maximumSize and are each positive
+    //   - every key is in the segment chosen by its hash
+    // Thread safety argument:
+    //   - each segment is accessed only while holding its lock
+    //   - counters are LongAdders; keys and values are immutable
+    // Safety from rep exposure:
+    //   - All fields are private and final; segments are never returned
+
+    /**
+     * Make an empty cache.
+     *
+     * @param maximumSize most entries to hold, positive
+     * @param eviction eviction policy, not null
+     * @param version version of the graph whose lookups will be cached
+     */
+    BridgeCache(int maximumSize, GraphPoet.Eviction eviction, long version) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("eviction cannot be null");
+        }
+        this.maximumSize = maximumSize;
+        this.eviction = eviction;
+        this.version = version;
+        int count = Integer.highestOneBit(
+                Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / ENTRIES_PER_SEGMENT)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+            segments[i] = eviction == GraphPoet.Eviction.LRU
+                ? new LruSegment(capacity) : new TinyLfuSegment(capacity);
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert Integer.bitCount(segments.length) == 1 : "segment count must be a power of two";
+        int total = 0;
+        for (Segment segment : segments) {
+            assert segment.capacity > 0 : "empty segment";
+            total += segment.capacity;
+        }
+        assert total == maximumSize : "capacities do not add up";
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segment(Pair key) {
+        return segments[spread(key.hash) & (segments.length - 1)];
+    }
+
+    /**
+     * Look up a pair.
+     *
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @return null if the pair is not cached; otherwise the cached bridge, or
+     *         an empty Optional if it was cached as having none
+     */
+    Optional<String> get(String from, String to) {
+        Pair key = new Pair(from, to);
+        Segment segment = segment(key);
+        Optional<String> bridge;
+        synchronized (segment) {
+            bridge = segment.get(key);
+        }
+        (bridge == null ? misses : hits).increment();
+        return bridge;
+    }
+
+    /**
+     * Cache the result of a lookup, evicting entries if the cache is full.
+     *
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @param bridge the bridge from one to the other, or null if there is none
+     */
+    void put(String from, String to, String bridge) {
+        Pair key = new Pair(from, to);
+        Segment segment = segment(key);
+        int evicted;
+        synchronized (segment) {
+            evicted = segment.put(key, Optional.ofNullable(bridge));
+        }
+        evictions.add(evicted);
+    }
+
+    /**
+     * Remove every entry, to cache lookups in another version of the graph;
+     * counters are kept.
+     *
+     * @param version version of the graph whose lookups will be cached
+     */
+    void clear(long version) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        this.version = version;
+    }
+
+    /**
+     * @return version of the graph whose lookups are cached
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * @return number of entries cached now
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the counters of this cache
+     */
+    GraphPoet.CacheStats stats() {
+        return new GraphPoet.CacheStats(hits.sum(), misses.sum(), evictions.sum(),
+                size(), maximumSize, eviction);
+    }
+
+    @Override
+    public String toString() {
+        return "BridgeCache(" + eviction + ", " + stats() + ")";
+    }
+
+    /**
+     * Immutable cache key for the word pair (from, to).
+     */
+    private static final class Pair {
+        final String from;
+        final String to;
+        final int hash;
+
+        Pair(String from, String to) {
+            this.from = from;
+            this.to = to;
+            this.hash = 31 * from.hashCode() + to.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (!(that instanceof Pair)) {
+                return false;
+            }
+            Pair other = (Pair) that;
+            return hash == other.hash && from.equals(other.from) && to.equals(other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Part of a cache, used only while holding its lock.
+     */
+    private abstract static class Segment {
+        final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** @return the value for key, or null if absent; counts as a use */
+        abstract Optional<String> get(Pair key);
+
+        /** @return number of entries evicted to make room */
+        abstract int put(Pair key, Optional<String> value);
+
+        abstract int size();
+
+        abstract void clear();
+
+        /**
+         * @return a map whose iteration order runs from least to most
+         *         recently accessed
+         */
+        static LinkedHashMap<Pair, Optional<String>> accessOrdered() {
+            return new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        /** Remove and return the least recently used entry of a nonempty map. */
+        static Map.Entry<Pair, Optional<String>> removeEldest(
+                LinkedHashMap<Pair, Optional<String>> map) {
+            Iterator<Map.Entry<Pair, Optional<String>>> iterator = map.entrySet().iterator();
+            Map.Entry<Pair, Optional<String>> eldest = iterator.next();
+            iterator.remove();
+            return eldest;
+        }
+    }
+
+    /**
+     * Segment evicting the least recently used entry.
+     */
+    private static final class LruSegment extends Segment {
+        private final LinkedHashMap<Pair, Optional<String>> entries = accessOrdered();
+
+        LruSegment(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        Optional<String> get(Pair key) {
+            return entries.get(key);
+        }
+
+        @Override
+        int put(Pair key, Optional<String> value) {
+            entries.put(key, value);
+            int evicted = 0;
+            while (entries.size() > capacity) {
+                removeEldest(entries);
+                evicted++;
+            }
+            return evicted;
+        }
+
+        @Override
+        int size() {
+            return entries.size();
+        }
+
+        @Override
+        void clear() {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Segment evicting by W-TinyLFU.
+     */
+    private static final class TinyLfuSegment extends Segment {
+        private final int windowCapacity;
+        private final int protectedCapacity;
+        private final LinkedHashMap<Pair, Optional<String>> window = accessOrdered();
+        private final LinkedHashMap<Pair, Optional<String>> probation = accessOrdered();
+        private final LinkedHashMap<Pair, Optional<String>> protectedEntries = accessOrdered();
+        private final FrequencySketch sketch;
+
+        // Rep invariant:
+        //   - window, probation and protectedEntries have disjoint keys
+        //   - window.size() <= windowCapacity,
+        //     protectedEntries.size() <= protectedCapacity,
+        //     probation.size() + protectedEntries.size()
+        //       <= capacity - windowCapacity
+
+        TinyLfuSegment(int capacity) {
+            super(capacity);
+            // 1% window, and 80% of the rest protected, as in W-TinyLFU
+            windowCapacity = Math.max(1, capacity / 100);
+            protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+            sketch = new FrequencySketch(capacity);
+        }
+
+        @Override
+        Optional<String> get(Pair key) {
+            sketch.increment(key.hash);
+            Optional<String> value = window.get(key);
+            if (value != null) {
+                return value;
+            }
+            value = protectedEntries.get(key);
+            if (value != null) {
+                return value;
+            }
+            value = probation.remove(key);
+            if (value != null) {
+                // Used again after admission: promote, demoting if full
+                protectedEntries.put(key, value);
+                if (protectedEntries.size() > protectedCapacity) {
+                    Map.Entry<Pair, Optional<String>> demoted = removeEldest(protectedEntries);
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+            return value;
+        }
+
+        @Override
+        int put(Pair key, Optional<String> value) {
+            if (window.containsKey(key)) {
+                window.put(key, value);
+                return 0;
+            }
+            if (protectedEntries.containsKey(key)) {
+                protectedEntries.put(key, value);
+                return 0;
+            }
+            if (probation.containsKey(key)) {
+                probation.put(key, value);
+                return 0;
+            }
+            window.put(key, value);
+            if (window.size() <= windowCapacity) {
+                return 0;
+            }
+            Map.Entry<Pair, Optional<String>> candidate = removeEldest(window);
+            int mainCapacity = capacity - windowCapacity;
+            if (probation.size() + protectedEntries.size() < mainCapacity) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return 0;
+            }
+            if (mainCapacity == 0) {
+                return 1;
+            }
+            LinkedHashMap<Pair, Optional<String>> victims =
+                probation.isEmpty() ? protectedEntries : probation;
+            Pair victim = victims.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey().hash) > sketch.frequency(victim.hash)) {
+                victims.remove(victim);
+                probation.put(candidate.getKey(), candidate.getValue());
+            }
+            // Either the victim or the candidate is gone
+            return 1;
+        }
+
+        @Override
+        int size() {
+            return window.size() + probation.size() + protectedEntries.size();
+        }
+
+        @Override
+        void clear() {
+            window.clear();
+            probation.clear();
+            protectedEntries.clear();
+        }
+    }
+
+    /**
+     * Count-min sketch of approximate recent lookup counts, with four 4-bit
+     * counters per key; all counters are halved once the number of
+     * increments reaches ten times the segment capacity, so old popularity
+     * fades.
+     */
+    private static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x97CB3127, 0xB2D1F6A5, 0x7FEB352D, 0x846CA68B };
+
+        private final byte[] counters;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int capacity) {
+            counters = new byte[Integer.highestOneBit(Math.max(capacity, 4) * 2 - 1) * 4];
+            sampleSize = 10 * Math.max(capacity, 1);
+        }
+
+        private int slot(int hash, int i) {
+            int h = (hash ^ SEEDS[i]) * SEEDS[i];
+            return (h ^ (h >>> 15)) & (counters.length - 1);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int slot = slot(hash, i);
+                if (counters[slot] < MAX_COUNT) {
+                    counters[slot]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int slot = 0; slot < counters.length; slot++) {
+                    counters[slot] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counters[slot(hash, i)]);
+            }
+            return frequency;
+        }
+    }
+}
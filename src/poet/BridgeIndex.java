@@ -0,0 +1,215 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import graph.Graph;
+
+/**
+ * Immutable precomputed map from word pairs (w1, w2) to the bridge word b
+ * maximizing the weight of the path w1 -> b -> w2 in an affinity graph,
+ * breaking ties by the least b in lexicographic order.
+ *
+ * <p>Memory is bounded two ways: only pairs whose best path weighs at least a
+ * minimum weight are indexed, and of those only a maximum number of pairs with
+ * the heaviest best paths. Paths too light to be indexed are skipped without
+ * being joined. A pair that is not indexed may still have a bridge, unless the
+ * index is {@link #exhaustive() exhaustive}.
+ * This class is internal to GraphPoet.
+ */
+final class BridgeIndex {
+
+    private final Map<String, Map<String, String>> bridges;
+    private final int entries;
+    private final boolean exhaustive;
+    private final long version;
+
+    // Abstraction function:
+    //   Represents the map (w1, w2) -> bridges[w1][w2], built from version
+    //   version of a graph; exhaustive says whether every pair with a bridge
+    //   is indexed
+    // Representation invariant:
+    //   - entries == total size of the inner maps; no inner map is empty
+    // Safety from rep exposure:
+    //   - All fields are private and final; maps are never returned or
+    //     mutated after construction
+
+    private BridgeIndex(Map<String, Map<String, String>> bridges, int entries,
+            boolean exhaustive, long version) {
+        this.bridges = bridges;
+        this.entries = entries;
+        this.exhaustive = exhaustive;
+        this.version = version;
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        int total = 0;
+        for (Map<String, String> row : bridges.values()) {
+            assert !row.isEmpty() : "empty row";
+            total += row.size();
+        }
+        assert total == entries : "entry count out of date";
+    }
+
+    /**
+     * Index the best bridges of a graph. If more than maxEntries pairs have a
+     * best path weighing at least minWeight, the maxEntries pairs with the
+     * heaviest best paths are indexed, ties going to the least pairs in
+     * lexicographic order.
+     *
+     * @param graph affinity graph, not modified while indexing
+     * @param minWeight least weight of a best path whose pair is indexed
+     * @param maxEntries most pairs to index, nonnegative
+     * @param version version of graph, returned by {@link #version()}
+     * @return an index of graph
+     */
+    static BridgeIndex build(Graph<String> graph, int minWeight, int maxEntries, long version) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries cannot be negative: " + maxEntries);
+        }
+        // Heaviest outgoing edge of each vertex, to skip bridges whose every
+        // path is too light without joining their edges
+        Map<String, Integer> maxOut = new HashMap<>();
+        for (String vertex : graph.vertices()) {
+            int max = 0;
+            for (int weight : graph.targets(vertex).values()) {
+                max = Math.max(max, weight);
+            }
+            maxOut.put(vertex, max);
+        }
+
+        // The pairs kept so far, the lightest at the head
+        PriorityQueue<Candidate> kept = new PriorityQueue<>(Candidate.LIGHTEST_FIRST);
+        boolean complete = true;
+        Map<String, String> best = new HashMap<>();
+        Map<String, Long> bestWeight = new HashMap<>();
+        for (String from : graph.vertices()) {
+            // Once maxEntries pairs are kept, only a path at least as heavy
+            // as the lightest of them can displace it
+            long least = kept.size() < maxEntries ? minWeight
+                    : maxEntries == 0 ? Long.MAX_VALUE
+                    : Math.max(minWeight, kept.peek().weight);
+            best.clear();
+            bestWeight.clear();
+            for (Map.Entry<String, Integer> first : graph.targets(from).entrySet()) {
+                String bridge = first.getKey();
+                int bridgeOut = maxOut.get(bridge);
+                if (bridgeOut == 0) {
+                    continue;
+                }
+                if ((long) first.getValue() + bridgeOut < least) {
+                    complete = false;
+                    continue;
+                }
+                for (Map.Entry<String, Integer> second : graph.targets(bridge).entrySet()) {
+                    long weight = (long) first.getValue() + second.getValue();
+                    if (weight < least) {
+                        complete = false;
+                        continue;
+                    }
+                    String to = second.getKey();
+                    Long current = bestWeight.get(to);
+                    if (current == null || weight > current
+                            || (weight == current && bridge.compareTo(best.get(to)) < 0)) {
+                        best.put(to, bridge);
+                        bestWeight.put(to, weight);
+                    }
+                }
+            }
+            for (Map.Entry<String, String> entry : best.entrySet()) {
+                Candidate candidate = new Candidate(from, entry.getKey(), entry.getValue(),
+                        bestWeight.get(entry.getKey()));
+                if (kept.size() < maxEntries) {
+                    kept.add(candidate);
+                    continue;
+                }
+                complete = false;
+                if (maxEntries > 0
+                        && Candidate.LIGHTEST_FIRST.compare(candidate, kept.peek()) > 0) {
+                    kept.poll();
+                    kept.add(candidate);
+                }
+            }
+        }
+
+        Map<String, Map<String, String>> bridges = new HashMap<>();
+        for (Candidate candidate : kept) {
+            bridges.computeIfAbsent(candidate.from, from -> new HashMap<>())
+                    .put(candidate.to, candidate.bridge);
+        }
+        return new BridgeIndex(bridges, kept.size(), complete, version);
+    }
+
+    /**
+     * A word pair and its best bridge, while the index is being built.
+     */
+    private static final class Candidate {
+
+        // Lighter paths first, then greater pairs, so the head is the pair
+        // to drop first
+        static final Comparator<Candidate> LIGHTEST_FIRST = Comparator
+                .comparingLong((Candidate c) -> c.weight)
+                .thenComparing(c -> c.from, Comparator.reverseOrder())
+                .thenComparing(c -> c.to, Comparator.reverseOrder());
+
+        final String from;
+        final String to;
+        final String bridge;
+        final long weight;
+
+        Candidate(String from, String to, String bridge, long weight) {
+            this.from = from;
+            this.to = to;
+            this.bridge = bridge;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @return the best bridge word from one to the other if that pair is
+     *         indexed, otherwise null
+     */
+    String bridge(String from, String to) {
+        Map<String, String> row = bridges.get(from);
+        return row == null ? null : row.get(to);
+    }
+
+    /**
+     * @return true iff every pair that has a bridge is indexed, so that a
+     *         pair whose {@link #bridge(String, String) bridge} is null has
+     *         none
+     */
+    boolean exhaustive() {
+        return exhaustive;
+    }
+
+    /**
+     * @return number of pairs indexed
+     */
+    int size() {
+        return entries;
+    }
+
+    /**
+     * @return version of the graph this index was built from
+     */
+    long version() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "BridgeIndex(" + entries + " pairs" + (exhaustive ? ", exhaustive" : "") + ")";
+    }
+}
@@ -0,0 +1,278 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import graph.GraphLoader;
+
+/**
+ * Counts the bigrams of a corpus file in parallel on a ForkJoinPool.
+ *
+ * <p>The file is split into byte ranges that start and end at whitespace, so
+ * no word is cut. Each range is read by its own CorpusReader into its own
+ * GraphLoader; results are merged pairwise up the fork-join tree, in file
+ * order, adding the bigram made of the last word of the left part and the
+ * first word of the right part. The merged loader stages exactly what
+ * reading the whole file in one pass would, in the same order.
+ * This class is internal to GraphPoet.
+ */
+final class CorpusIngest {
+
+    /** Smallest range worth a task of its own. */
+    static final long DEFAULT_MIN_RANGE = 1 << 20;
+
+    /** Ranges per worker thread, so that uneven ranges balance out. */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private CorpusIngest() {
+        throw new AssertionError("uninstantiable");
+    }
+
+    /**
+     * Count the bigrams of a corpus.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param pool pool to run on
+     * @param minRange smallest number of bytes to give one task, positive
+     * @return a loader staging each word of the corpus as a vertex, in order
+     *         of first occurrence, and for each bigram (w1, w2) an edge from
+     *         w1 to w2 with total delta the number of times it occurs
+     * @throws IOException if the corpus cannot be found or read
+     */
+    static GraphLoader<String> read(Path corpus, ForkJoinPool pool, long minRange)
+            throws IOException {
+        return count(corpus, pool, minRange).loader();
+    }
+
+    /**
+     * Count the bigrams of a corpus, remembering its first and last words.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param pool pool to run on
+     * @param minRange smallest number of bytes to give one task, positive
+     * @return the counts of the corpus, staged as by
+     *         {@link #read(Path, ForkJoinPool, long) read}
+     * @throws IOException if the corpus cannot be found or read
+     */
+    static Counts count(Path corpus, ForkJoinPool pool, long minRange) throws IOException {
+        if (minRange <= 0) {
+            throw new IllegalArgumentException("minimum range must be positive: " + minRange);
+        }
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        long[] bounds = split(corpus, pool.getParallelism() * RANGES_PER_THREAD, minRange);
+        if (event.shouldCommit()) {
+            event.phase = IngestEvent.SPLIT;
+            event.source = corpus.toString();
+            event.start = 0;
+            event.end = bounds[bounds.length - 1];
+            event.commit();
+        }
+        try {
+            return pool.invoke(new Count(corpus, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Choose range bounds at whitespace.
+     *
+     * @return increasing positions, starting with 0 and ending with the file
+     *         size, each other one the position of a whitespace byte; range i
+     *         is [bounds[i], bounds[i+1])
+     */
+    private static long[] split(Path corpus, int maxRanges, long minRange) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int ranges = (int) Math.max(1, Math.min(maxRanges, size / minRange));
+            long[] bounds = new long[ranges + 1];
+            int count = 1;
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (int i = 1; i < ranges; i++) {
+                long start = Math.max(size / ranges * i, bounds[count - 1]);
+                long bound = nextWhitespace(channel, start, buffer);
+                if (bound > bounds[count - 1] && bound < size) {
+                    bounds[count++] = bound;
+                }
+            }
+            bounds[count++] = size;
+            return Arrays.copyOf(bounds, count);
+        }
+    }
+
+    /**
+     * @return position of the first whitespace byte at or after position, or
+     *         the file size if there is none
+     */
+    private static long nextWhitespace(FileChannel channel, long position, ByteBuffer buffer)
+            throws IOException {
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (CorpusReader.isWhitespace(buffer.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Mutable bigram counts of a sequence of words, such as a corpus or a run
+     * of consecutive ranges of one. Not thread-safe.
+     */
+    static final class Counts {
+        private final GraphLoader<String> loader = new GraphLoader<>();
+        private String first = null; // first word, or null if there is none
+        private String last = null;  // last word, or null if there is none
+        private long words = 0;      // number of words counted
+
+        /**
+         * Count the next word of the sequence.
+         *
+         * @param word a lower-case word
+         */
+        void add(String word) {
+            if (last == null) {
+                first = word;
+                loader.add(word);
+            } else {
+                loader.add(last, word, 1);
+            }
+            last = word;
+            words++;
+        }
+
+        /**
+         * @return a loader staging each word as a vertex, in order of first
+         *         occurrence, and for each bigram (w1, w2) an edge from w1 to
+         *         w2 with total delta the number of times it occurs
+         */
+        GraphLoader<String> loader() {
+            return loader;
+        }
+
+        /** @return the first word, or null if there are no words */
+        String first() {
+            return first;
+        }
+
+        /** @return the last word, or null if there are no words */
+        String last() {
+            return last;
+        }
+
+        /** @return number of words counted */
+        long words() {
+            return words;
+        }
+
+        /**
+         * Commit an event for a phase that produced these counts, if it is
+         * enabled.
+         *
+         * @param event event begun at the start of the phase
+         * @param phase the phase, one of the IngestEvent constants
+         * @param source file read in the phase, or null
+         */
+        void commit(IngestEvent event, String phase, Path source) {
+            if (event.shouldCommit()) {
+                event.phase = phase;
+                event.source = source == null ? null : source.toString();
+                event.words = words;
+                event.vertices = loader.stagedVertices();
+                event.edges = loader.stagedEdges();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Task counting the bigrams of ranges lo .. hi-1.
+     */
+    private static final class Count extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path corpus;
+        private final long[] bounds;
+        private final int lo;
+        private final int hi;
+
+        Count(Path corpus, long[] bounds, int lo, int hi) {
+            this.corpus = corpus;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (hi - lo == 1) {
+                return countRange();
+            }
+            int mid = (lo + hi) >>> 1;
+            Count right = new Count(corpus, bounds, mid, hi);
+            right.fork();
+            Counts left = new Count(corpus, bounds, lo, mid).compute();
+            return merge(left, right.join());
+        }
+
+        private Counts countRange() {
+            IngestEvent event = new IngestEvent();
+            event.begin();
+            CorpusReader words;
+            try {
+                words = new CorpusReader(corpus, bounds[lo], bounds[hi],
+                        CorpusReader.DEFAULT_CHUNK_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Counts counts = new Counts();
+            while (words.hasNext()) {
+                counts.add(words.next());
+            }
+            event.start = bounds[lo];
+            event.end = bounds[hi];
+            counts.commit(event, IngestEvent.COUNT, corpus);
+            return counts;
+        }
+
+        private static Counts merge(Counts left, Counts right) {
+            IngestEvent event = new IngestEvent();
+            event.begin();
+            Counts merged = concatenate(left, right);
+            merged.commit(event, IngestEvent.MERGE, null);
+            return merged;
+        }
+
+        private static Counts concatenate(Counts left, Counts right) {
+            if (left.first == null) {
+                return right;
+            }
+            if (right.first == null) {
+                return left;
+            }
+            // The bigram across the split comes before any in the right part
+            left.loader.add(left.last, right.first, 1);
+            left.loader.addAll(right.loader);
+            left.last = right.last;
+            left.words += right.words;
+            return left;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the lower-case words of a UTF-8 corpus file, as GraphPoet
+ * defines words: maximal runs of non-whitespace characters, where whitespace
+ * is space, tab, newline, vertical tab, form feed or carriage return.
+ *
+ * <p>The file is memory-mapped and scanned byte by byte; no line or text
+ * Strings are built. Words made only of ASCII bytes are lower-cased on the
+ * bytes; a word containing a non-ASCII byte is decoded as UTF-8 and
+ * lower-cased with {@link String#toLowerCase(Locale) Locale.ROOT}. Each
+ * distinct word becomes one String, which is returned for every occurrence,
+ * so repeated words cost no allocation.
+ * This class is internal to GraphPoet.
+ */
+final class CorpusReader implements Iterator<String> {
+
+    /** Largest mapping made by default; words may cross mappings. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private static final int EMPTY = -1;
+
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private int chunk = 0;
+
+    private byte[] word = new byte[64];
+
+    // Distinct words seen so far, found by their lower-cased bytes
+    private String[] strings = new String[16];
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private int count = 0;
+    private int[] slots = emptySlots(32);
+
+    // Words with non-ASCII bytes, which can lower-case to the same String
+    // from different bytes
+    private final Map<String, String> decoded = new HashMap<>();
+
+    // Abstraction function:
+    //   Represents the words of the concatenation of chunks that start at or
+    //   after position chunks[chunk].position(), in order
+    // Representation invariant:
+    //   - 0 <= chunk <= chunks.size(); chunks before chunk are fully read
+    //   - strings[0..count) are distinct; keys[i] are the lower-cased bytes
+    //     of strings[i] and hashes[i] their hash
+    //   - slots.length is a power of two, greater than 2 * count; each i in
+    //     [0, count) is in exactly one slot, reachable by linear probing from
+    //     the home slot of hashes[i] without crossing an EMPTY slot
+    // Safety from rep exposure:
+    //   - All fields are private; returned Strings are immutable
+
+    /**
+     * Map a corpus file for reading.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @throws IOException if the file cannot be found or read
+     */
+    CorpusReader(Path corpus) throws IOException {
+        this(corpus, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Map a corpus file for reading in chunks of at most chunkSize bytes;
+     * words may cross chunk boundaries.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param chunkSize maximum bytes per mapping, positive
+     * @throws IOException if the file cannot be found or read
+     */
+    CorpusReader(Path corpus, int chunkSize) throws IOException {
+        this(corpus, 0, Long.MAX_VALUE, chunkSize);
+    }
+
+    /**
+     * Map part of a corpus file for reading in chunks of at most chunkSize
+     * bytes. The reader returns the words of that part alone, so a word that
+     * crosses start or end is cut in two; to avoid that, start and end should
+     * each be an end of the file or the position of a whitespace byte.
+     *
+     * @param corpus path of a UTF-8 text file
+     * @param start position of the first byte to read, nonnegative
+     * @param end position after the last byte to read, at least start; the
+     *        end of the file if it is past the end of the file
+     * @param chunkSize maximum bytes per mapping, positive
+     * @throws IOException if the file cannot be found or read
+     */
+    CorpusReader(Path corpus, long start, long end, int chunkSize) throws IOException {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("bad range: " + start + ".." + end);
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        // Mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long limit = Math.min(end, channel.size());
+            for (long position = start; position < limit; position += chunkSize) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(chunkSize, limit - position)));
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the constant-time part of the representation invariant.
+     */
+    private void checkRep() {
+        assert 0 <= chunk && chunk <= chunks.size() : "bad chunk: " + chunk;
+        assert Integer.bitCount(slots.length) == 1 : "table size must be a power of two";
+        assert slots.length > 2 * count : "table too full";
+    }
+
+    private static int[] emptySlots(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * @param b a byte of UTF-8 text
+     * @return true iff b is a whitespace character that separates words
+     */
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Skip whitespace.
+     *
+     * @return true iff a word starts at the current position
+     */
+    private boolean skipWhitespace() {
+        for (; chunk < chunks.size(); chunk++) {
+            MappedByteBuffer buffer = chunks.get(chunk);
+            while (buffer.hasRemaining()) {
+                if (!isWhitespace(buffer.get(buffer.position()))) {
+                    return true;
+                }
+                buffer.position(buffer.position() + 1);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return skipWhitespace();
+    }
+
+    /**
+     * @return the next word of the corpus, in lower case
+     * @throws NoSuchElementException if there are no more words
+     */
+    @Override
+    public String next() {
+        if (!skipWhitespace()) {
+            throw new NoSuchElementException();
+        }
+        // Copy the word, lower-casing ASCII letters on the way
+        int length = 0;
+        int hash = 0;
+        boolean ascii = true;
+        scan:
+        for (; chunk < chunks.size(); chunk++) {
+            MappedByteBuffer buffer = chunks.get(chunk);
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (isWhitespace(b)) {
+                    break scan;
+                }
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                } else if (b < 0) {
+                    ascii = false;
+                }
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = b;
+                hash = 31 * hash + b;
+            }
+        }
+        return intern(length, hash, ascii);
+    }
+
+    /**
+     * @return the String for word[0..length), which has the given hash
+     */
+    private String intern(int length, int hash, boolean ascii) {
+        int mask = slots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int i = slots[slot];
+            if (hashes[i] == hash && Arrays.equals(keys[i], 0, keys[i].length, word, 0, length)) {
+                return strings[i];
+            }
+        }
+        String string;
+        if (ascii) {
+            string = new String(word, 0, length, StandardCharsets.US_ASCII);
+        } else {
+            string = new String(word, 0, length, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT);
+            string = decoded.computeIfAbsent(string, s -> s);
+        }
+        if (count == strings.length) {
+            strings = Arrays.copyOf(strings, count * 2);
+            keys = Arrays.copyOf(keys, count * 2);
+            hashes = Arrays.copyOf(hashes, count * 2);
+        }
+        strings[count] = string;
+        keys[count] = Arrays.copyOf(word, length);
+        hashes[count] = hash;
+        slots[slot] = count;
+        count++;
+        if (slots.length <= 2 * count) {
+            rehash(slots.length * 2);
+        }
+        checkRep();
+        return string;
+    }
+
+    private void rehash(int tableSize) {
+        slots = emptySlots(tableSize);
+        int mask = tableSize - 1;
+        for (int i = 0; i < count; i++) {
+            int slot = (hashes[i] ^ (hashes[i] >>> 16)) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i;
+        }
+    }
+
+    /**
+     * @return number of distinct byte sequences read as words so far
+     */
+    int distinctWords() {
+        return count;
+    }
+}
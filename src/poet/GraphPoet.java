@@ -5,14 +5,36 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import graph.FrozenGraph;
 import graph.Graph;
+import graph.GraphLoader;
+import graph.PageRank;
+import graph.RepCheck;
 
 /**
  * A graph-based poetry generator.
  * 
  * <p>GraphPoet is initialized with a corpus of text, which it uses to derive a
- * word affinity graph.
+ * word affinity graph. The corpus may later be
+ * {@link #extend(File, boolean) extended} with more text.
  * Vertices in the graph are words. Words are defined as non-empty
  * case-insensitive strings of non-space non-newline characters. They are
  * delimited in the corpus by spaces, newlines, or the ends of the file.
@@ -44,6 +66,10 @@ import graph.Graph;
  * <p>the output poem would be:
  * <pre>    Test of the system.    </pre>
  * 
+ * <p>Each poem is reported to Java Flight Recorder as a {@code poet.Poem}
+ * event, and each phase of reading a corpus or snapshot as a
+ * {@code poet.Ingest} event.
+ * 
  * <p>PS2 instructions: this is a required ADT class, and you MUST NOT weaken
  * the required specifications. However, you MAY strengthen the specifications
  * and you MAY add additional methods.
@@ -52,14 +78,83 @@ import graph.Graph;
  */
 public class GraphPoet {
     
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    // Per-thread buffer in which poems are built, and its largest kept size
+    private static final ThreadLocal<StringBuilder> SCRATCH =
+        ThreadLocal.withInitial(StringBuilder::new);
+    private static final int MAX_SCRATCH = 1 << 16;
+    
+    // Characters read at a time by the streaming poem()
+    private static final int READ_BUFFER = 8192;
+    
     private final Graph<String> graph = Graph.empty();
     
+    // Last word of the corpus, or null if it has no words
+    private String lastWord;
+    
+    // Guards graph and lastWord: held for reading while poems are made and
+    // for writing while the corpus is extended
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Number of changes made to graph since construction
+    private volatile long version = 0;
+    
+    // Optional precomputed bridges, used when indexing is on
+    private volatile boolean indexing = false;
+    private int indexMinWeight;
+    private int indexMaxEntries;
+    private long indexSettings = 0;
+    private volatile long indexBuilding = -1;
+    private volatile BridgeIndex index = null;
+    
+    // Optional cache of recent bridge word lookups
+    private volatile BridgeCache cache = null;
+    
     // Abstraction function:
-    //   TODO
+    //   Represents the word affinity graph of a corpus: graph has a vertex
+    //   for each distinct lower-case word of the corpus, and an edge from w1
+    //   to w2 whose weight is the number of times w1 is followed by w2;
+    //   the other fields only speed up poem()
     // Representation invariant:
-    //   TODO
+    //   - graph != null
+    //   - every vertex of graph is a non-empty lower-case word containing no
+    //     whitespace
+    //   - lastWord is null iff graph has no vertices, else a vertex of graph
+    //   - version >= 0; indexMaxEntries >= 0; indexSettings >= 0
+    //   - indexBuilding is the version of graph an index is being built
+    //     from with the current settings, or -1 if none is
+    //   - if index != null and index.version() == version, index holds the
+    //     best bridges of graph
+    //   - if cache != null and cache.version() == version, every bridge in
+    //     cache is the best bridge of its pair in graph
     // Safety from rep exposure:
-    //   TODO
+    //   - graph is private and final, and never returned or passed to clients
+    //   - index is private and immutable; cache is private and never
+    //     returned, only counters copied out of it
+    // Thread safety argument:
+    //   - graph and lastWord are read only while holding lock for reading,
+    //     and written only while holding it for writing, so a poem sees one
+    //     version of the corpus; the buffer it builds a poem in is confined
+    //     to its thread
+    //   - the streaming poem() holds lock only while making each part of a
+    //     poem, never while calling its Reader or Appendable, so that client
+    //     I/O cannot hold up extend()
+    //   - version is volatile and only changed while holding lock for writing
+    //   - the index settings, indexSettings and indexBuilding are written,
+    //     and index is replaced, only while holding this object's lock; the
+    //     settings are read only while holding it; index is volatile and
+    //     immutable, so a poem() that sees a built index sees it fully built
+    //   - indexing, indexBuilding and index are volatile, so a poem() can
+    //     see that no build is due without taking this object's lock; a
+    //     build is only claimed after checking again while holding it
+    //   - an index is built from a FrozenGraph copy of graph, taken while
+    //     holding lock for reading, and holding no lock while building, so
+    //     neither poems nor extend() wait for a build; it is used only if
+    //     its version is still the current one
+    //   - lock is always acquired before this object's lock, never after
+    //   - cache is replaced only while holding this object's lock, and is
+    //     itself thread-safe
     
     /**
      * Create a new poet with the graph from corpus (as described above).
@@ -68,21 +163,886 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        throw new RuntimeException("not implemented");
+        this(count(corpus));
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * reading the corpus in parallel. The poet is the same as
+     * {@link #GraphPoet(File)} would create.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool pool on which to read the corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, ForkJoinPool pool) throws IOException {
+        this(corpus, pool, CorpusIngest.DEFAULT_MIN_RANGE);
+    }
+    
+    /**
+     * Create a new poet, reading the corpus in parallel in parts of at least
+     * minRange bytes.
+     */
+    GraphPoet(File corpus, ForkJoinPool pool, long minRange) throws IOException {
+        this(CorpusIngest.count(corpus.toPath(), pool, minRange));
+    }
+    
+    /**
+     * Create a new poet whose graph has the words and bigrams counted by
+     * counts.
+     */
+    private GraphPoet(CorpusIngest.Counts counts) {
+        this(counts.loader(), counts.last());
+    }
+    
+    /**
+     * Create a new poet whose graph has the vertices and edges staged by
+     * bigrams, and whose corpus ends with lastWord.
+     */
+    private GraphPoet(GraphLoader<String> bigrams, String lastWord) {
+        build(bigrams);
+        this.lastWord = lastWord;
+        checkRep();
+    }
+    
+    /**
+     * Load a poet saved by {@link #save(File)}. The poet has the same
+     * affinity graph as the one saved, and can be extended in the same way,
+     * but without its bridge index or cache settings.
+     * 
+     * @param snapshot snapshot file
+     * @return the saved poet
+     * @throws IOException if the file cannot be found or read, or is not a
+     *         valid snapshot
+     */
+    public static GraphPoet load(File snapshot) throws IOException {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        Snapshot saved = Snapshot.read(snapshot.toPath());
+        if (event.shouldCommit()) {
+            event.phase = IngestEvent.LOAD;
+            event.source = snapshot.toString();
+            event.vertices = saved.loader().stagedVertices();
+            event.edges = saved.loader().stagedEdges();
+            event.commit();
+        }
+        return new GraphPoet(saved.loader(), saved.lastWord());
+    }
+    
+    /**
+     * Save this poet's affinity graph to a compact binary file, from which
+     * {@link #load(File)} recreates the poet much faster than reading the
+     * corpus again. Replaces the file if it exists; if saving
+     * fails, the file is left as it was.
+     * 
+     * @param snapshot file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File snapshot) throws IOException {
+        lock.readLock().lock();
+        try {
+            Snapshot.write(graph, lastWord, snapshot.toPath());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Rank the words of the corpus by weighted PageRank over the affinity
+     * graph, with the defaults of {@link PageRank}, in parallel on the common
+     * fork-join pool. Words that often follow many well-ranked words rank
+     * highest.
+     * 
+     * @return the rank of each word of the corpus; later extensions of the
+     *         corpus do not change it
+     */
+    public PageRank.Ranks<String> rankWords() {
+        PageRank<String> pageRank;
+        lock.readLock().lock();
+        try {
+            pageRank = new PageRank<>(graph);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return pageRank.run();
+    }
+    
+    /**
+     * @return the words and bigram counts of corpus
+     */
+    private static CorpusIngest.Counts count(File corpus) throws IOException {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        CorpusReader words = new CorpusReader(corpus.toPath());
+        CorpusIngest.Counts counts = new CorpusIngest.Counts();
+        while (words.hasNext()) {
+            counts.add(words.next());
+        }
+        counts.commit(event, IngestEvent.COUNT, corpus.toPath());
+        return counts;
+    }
+    
+    /**
+     * @return the words and bigram counts of text, lower-cased
+     */
+    private static CorpusIngest.Counts count(Reader text) throws IOException {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        CorpusIngest.Counts counts = new CorpusIngest.Counts();
+        words(text, word -> counts.add(word.toLowerCase(Locale.ROOT)));
+        counts.commit(event, IngestEvent.COUNT, null);
+        return counts;
+    }
+    
+    /**
+     * Add more text to the end of the corpus, adding its words to the
+     * affinity graph and the counts of its bigrams to the weights of the
+     * graph's edges. Any bridge index is rebuilt and any bridge cache emptied
+     * before they are next used. Poems being made while the corpus is
+     * extended use the corpus from before or after, never a mix.
+     * 
+     * @param more text file to add to the corpus
+     * @param joined true if the first word of more follows the last word of
+     *        the corpus so far, adding one to the weight of the edge between
+     *        them; false if the texts are separate
+     * @throws IOException if the file cannot be found or read, in which case
+     *         the corpus is unchanged
+     */
+    public void extend(File more, boolean joined) throws IOException {
+        extend(count(more), joined);
+    }
+    
+    /**
+     * Add more text to the end of the corpus, as
+     * {@link #extend(File, boolean)} does for a file.
+     * 
+     * @param more text to add to the corpus; read to its end but not closed
+     * @param joined true if the first word of more follows the last word of
+     *        the corpus so far; false if the texts are separate
+     * @throws IOException if more cannot be read, in which case the corpus is
+     *         unchanged
+     */
+    public void extend(Reader more, boolean joined) throws IOException {
+        extend(count(more), joined);
+    }
+    
+    /**
+     * Add more text to the end of the corpus, as
+     * {@link #extend(File, boolean)} does for a file.
+     * 
+     * @param more text to add to the corpus
+     * @param joined true if the first word of more follows the last word of
+     *        the corpus so far; false if the texts are separate
+     */
+    public void extend(String more, boolean joined) {
+        try {
+            extend(new StringReader(more), joined);
+        } catch (IOException ioe) {
+            throw new AssertionError("StringReader cannot fail", ioe);
+        }
+    }
+    
+    /**
+     * Add counted words to the end of the corpus.
+     */
+    private void extend(CorpusIngest.Counts more, boolean joined) {
+        if (more.first() == null) {
+            return;
+        }
+        GraphLoader<String> bigrams = more.loader();
+        lock.writeLock().lock();
+        try {
+            if (joined && lastWord != null) {
+                // Stage the joining bigram first, as one pass over both would
+                GraphLoader<String> all = new GraphLoader<String>()
+                        .add(lastWord, more.first(), 1);
+                bigrams = all.addAll(bigrams);
+            }
+            build(bigrams);
+            lastWord = more.last();
+            version++;
+            checkExtendedRep(more);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Commit staged words and bigrams to the graph.
+     */
+    private void build(GraphLoader<String> bigrams) {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        int vertices = bigrams.stagedVertices();
+        int edges = bigrams.stagedEdges();
+        bigrams.commit(graph);
+        if (event.shouldCommit()) {
+            event.phase = IngestEvent.BUILD;
+            event.vertices = vertices;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Check the representation invariant, in time linear in the number of
+     * words, if assertions are enabled.
+     */
+    private void checkRep() {
+        if (!RepCheck.assertionsEnabled()) {
+            return;
+        }
+        assert graph != null : "graph cannot be null";
+        assert version >= 0 && indexMaxEntries >= 0 : "bad counters";
+        for (String word : graph.vertices()) {
+            checkWordRep(word);
+        }
+    }
+    
+    /**
+     * Check the part of the representation invariant that an extension
+     * touched, in constant time: its first and last words, which were
+     * tokenized as all of its words were, and lastWord.
+     * 
+     * @param more counts of the words added to the corpus, not empty
+     */
+    private void checkExtendedRep(CorpusIngest.Counts more) {
+        assert version >= 0 && indexMaxEntries >= 0 : "bad counters";
+        assert graph.vertices().contains(more.first()) : "first word missing: " + more.first();
+        assert lastWord != null && graph.vertices().contains(lastWord) :
+            "last word missing: " + lastWord;
+        checkWordRep(more.first());
+        checkWordRep(lastWord);
+    }
+    
+    /**
+     * Check the part of the representation invariant about one word.
+     */
+    private static void checkWordRep(String word) {
+        assert !word.isEmpty() : "word cannot be empty";
+        assert word.equals(word.toLowerCase(Locale.ROOT)) : "word must be lower case: " + word;
+        assert !WHITESPACE.matcher(word).find() : "word cannot contain whitespace: " + word;
+    }
+    
+    /**
+     * @param c a character
+     * @return true iff c is whitespace, as matched by {@link #WHITESPACE}
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+    
+    /**
+     * Consumer of the words of a text.
+     */
+    @FunctionalInterface
+    private interface WordSink {
+        void accept(String word) throws IOException;
+    }
+    
+    /**
+     * Pass each word of text, in order, to sink. Memory use grows only with
+     * the length of the longest word.
+     * 
+     * @param text text to split; read to its end but not closed
+     * @param sink receives each word of text
+     * @throws IOException if text cannot be read or sink fails
+     */
+    private static void words(Reader text, WordSink sink) throws IOException {
+        char[] buffer = new char[READ_BUFFER];
+        StringBuilder word = new StringBuilder();
+        int read;
+        do {
+            read = text.read(buffer);
+            words(buffer, read, word, sink);
+        } while (read >= 0);
     }
     
-    // TODO checkRep
+    /**
+     * Pass each word completed by one read of a text, in order, to sink.
+     * 
+     * @param buffer characters read
+     * @param read number of characters read, or -1 at the end of the text
+     * @param word the start of a word cut off by the end of the previous
+     *        read, empty if none; updated to the start of a word cut off by
+     *        the end of this read
+     * @param sink receives each word completed
+     * @throws IOException if sink fails
+     */
+    private static void words(char[] buffer, int read, StringBuilder word, WordSink sink)
+            throws IOException {
+        for (int i = 0; i < read; i++) {
+            char c = buffer[i];
+            if (!isWhitespace(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                sink.accept(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (read < 0 && word.length() > 0) {
+            sink.accept(word.toString());
+            word.setLength(0);
+        }
+    }
     
     /**
      * Generate a poem.
      * 
+     * <p>Where several bridge words give two-edge-long paths of the same
+     * maximum weight, the bridge word is the least of them in
+     * {@link String#compareTo(String) lexicographic order}, so the poem is
+     * deterministic.
+     * 
      * @param input string from which to create the poem
      * @return poem (as described above)
      */
     public String poem(String input) {
-        throw new RuntimeException("not implemented");
+        refreshBridgeIndex();
+        lock.readLock().lock();
+        try {
+            return poem(input, bridgeIndex(), bridgeCache());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Generate a poem from a stream of text, writing it out as it is made.
+     * Memory use does not grow with the length of the input, only with the
+     * length of its longest word. The output is exactly what
+     * {@link #poem(String)} would return for the whole input, unless the
+     * corpus is extended while the poem is being made, in which case later
+     * parts of the poem may use the extended corpus. It is written one part
+     * at a time, each part made from one read of input.
+     * 
+     * <p>The corpus is not locked while input is read or output written, so
+     * a slow reader or writer does not hold up {@link #extend(File, boolean)}.
+     * 
+     * @param input text from which to create the poem; read to its end but
+     *        not closed
+     * @param output where to write the poem; not flushed or closed
+     * @throws IOException if input cannot be read or output written
+     */
+    public void poem(Reader input, Appendable output) throws IOException {
+        PoemEvent event = new PoemEvent();
+        event.begin();
+        char[] buffer = new char[READ_BUFFER];
+        StringBuilder partial = new StringBuilder();
+        List<String> words = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        // Lower-case form of the last word made into the poem, carried across
+        // reads
+        String previous = null;
+        int read;
+        do {
+            read = input.read(buffer);
+            words.clear();
+            words(buffer, read, partial, words::add);
+            if (words.isEmpty()) {
+                continue;
+            }
+            refreshBridgeIndex();
+            part.setLength(0);
+            lock.readLock().lock();
+            try {
+                // The corpus may have changed since the last part
+                BridgeIndex index = bridgeIndex();
+                BridgeCache cache = bridgeCache();
+                event.indexed |= index != null;
+                event.cached |= cache != null;
+                for (String word : words) {
+                    String lower = word.toLowerCase(Locale.ROOT);
+                    if (write(part, previous, word, lower, index, cache)) {
+                        event.bridges++;
+                    }
+                    event.inputWords++;
+                    previous = lower;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            output.append(part);
+        } while (read >= 0);
+        if (event.shouldCommit()) {
+            event.streamed = true;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Write the next word of a poem, after its bridge from the previous word.
+     * 
+     * @param output where to write
+     * @param previous lower-case form of the previous word, or null if this
+     *        is the first word
+     * @param word word to write
+     * @param lower lower-case form of word
+     * @param index bridge index of the current graph, or null
+     * @param cache bridge cache of the current graph, or null
+     * @return true iff a bridge word was written
+     */
+    private boolean write(StringBuilder output, String previous, String word, String lower,
+            BridgeIndex index, BridgeCache cache) {
+        boolean bridged = false;
+        if (previous != null) {
+            String bridge = bridge(index, cache, previous, lower);
+            output.append(' ');
+            if (bridge != null) {
+                output.append(bridge).append(' ');
+                bridged = true;
+            }
+        }
+        output.append(word);
+        return bridged;
+    }
+    
+    /**
+     * Generate poems for many inputs, in parallel on the common fork-join
+     * pool.
+     * 
+     * @param inputs strings from which to create poems
+     * @return the poem of each input, as {@link #poem(String)} would make it,
+     *         in the order of inputs
+     */
+    public List<String> poems(Collection<String> inputs) {
+        return poems(inputs, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Generate poems for many inputs, in parallel on a given pool.
+     * 
+     * @param inputs strings from which to create poems
+     * @param pool pool on which to create the poems
+     * @return the poem of each input, as {@link #poem(String)} would make it,
+     *         in the order of inputs
+     */
+    public List<String> poems(Collection<String> inputs, ForkJoinPool pool) {
+        String[] in = inputs.toArray(new String[0]);
+        String[] out = new String[in.length];
+        refreshBridgeIndex();
+        // Workers read the graph on behalf of this thread, which holds the lock
+        lock.readLock().lock();
+        try {
+            BridgeIndex index = bridgeIndex();
+            BridgeCache cache = bridgeCache();
+            Runnable batch = () -> IntStream.range(0, in.length).parallel()
+                    .forEach(i -> out[i] = poem(in[i], index, cache));
+            if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+                batch.run();
+            } else {
+                pool.submit(batch).get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while making poems");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return List.of(out);
+    }
+    
+    /**
+     * Generate poems for a stream of inputs. The poems are made lazily, as the
+     * returned stream is consumed, in parallel if inputs is parallel.
+     * 
+     * @param inputs strings from which to create poems
+     * @return stream of the poem of each input, as {@link #poem(String)}
+     *         would make it, with the encounter order of inputs
+     */
+    public Stream<String> poems(Stream<String> inputs) {
+        return inputs.map(this::poem);
+    }
+    
+    /**
+     * @param input string from which to create the poem
+     * @param index bridge index of the current graph, or null
+     * @param cache bridge cache of the current graph, or null
+     * @return poem (as described above)
+     */
+    private String poem(String input, BridgeIndex index, BridgeCache cache) {
+        PoemEvent event = new PoemEvent();
+        event.begin();
+        StringBuilder poem = SCRATCH.get();
+        poem.setLength(0);
+        String previous = null;
+        int length = input.length();
+        int start = 0;
+        while (true) {
+            while (start < length && isWhitespace(input.charAt(start))) {
+                start++;
+            }
+            if (start == length) {
+                break;
+            }
+            int end = start + 1;
+            while (end < length && !isWhitespace(input.charAt(end))) {
+                end++;
+            }
+            String word = input.substring(start, end);
+            String lower = word.toLowerCase(Locale.ROOT);
+            if (previous != null) {
+                String bridge = bridge(index, cache, previous, lower);
+                poem.append(' ');
+                if (bridge != null) {
+                    poem.append(bridge).append(' ');
+                    event.bridges++;
+                }
+            }
+            poem.append(word);
+            event.inputWords++;
+            previous = lower;
+            start = end;
+        }
+        String result = poem.toString();
+        if (poem.capacity() > MAX_SCRATCH) {
+            // Do not hold on to the buffer of an unusually long poem
+            SCRATCH.remove();
+        }
+        if (event.shouldCommit()) {
+            event.indexed = index != null;
+            event.cached = cache != null;
+            event.commit();
+        }
+        return result;
     }
     
-    // TODO toString()
+    /**
+     * Answer bridge word lookups in poem() from a precomputed index of word
+     * pairs, so that a pair in the index costs a hash lookup instead of a
+     * search of the graph. Pairs not in the index are still answered from the
+     * graph, so poems do not change. The index is rebuilt after the graph
+     * changes.
+     * 
+     * @param minWeight index only word pairs whose best bridge path weighs at
+     *        least this much; at most 2 to index every pair that has a bridge
+     * @param maxEntries index at most this many word pairs, nonnegative
+     * @param eager true to build the index now, false to build it when the
+     *        next poem needs it
+     */
+    public void indexBridges(int minWeight, int maxEntries, boolean eager) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries cannot be negative: " + maxEntries);
+        }
+        synchronized (this) {
+            indexMinWeight = minWeight;
+            indexMaxEntries = maxEntries;
+            indexSettings++;
+            indexBuilding = -1;
+            index = null;
+            indexing = true;
+        }
+        if (eager) {
+            refreshBridgeIndex();
+        }
+    }
+    
+    /**
+     * Stop using and discard the bridge index, if any.
+     */
+    public synchronized void dropBridgeIndex() {
+        indexing = false;
+        indexSettings++;
+        indexBuilding = -1;
+        index = null;
+    }
+    
+    /**
+     * @return number of word pairs in the bridge index, building it if it is
+     *         due and no other thread is building it; 0 if indexing is off or
+     *         the index is not built
+     */
+    int bridgeIndexSize() {
+        refreshBridgeIndex();
+        lock.readLock().lock();
+        try {
+            BridgeIndex current = bridgeIndex();
+            return current == null ? 0 : current.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Requires lock to be held for reading.
+     * 
+     * @return the bridge index for the current graph, or null if indexing is
+     *         off or the index for the current graph is not built yet
+     */
+    private BridgeIndex bridgeIndex() {
+        BridgeIndex current = index;
+        return indexing && current != null && current.version() == version ? current : null;
+    }
+    
+    /**
+     * Build the bridge index for the current graph if indexing is on, the
+     * index is out of date, and no other thread is building it. Poems made
+     * meanwhile search the graph instead, so they do not change. Requires
+     * lock not to be held.
+     */
+    private void refreshBridgeIndex() {
+        int minWeight;
+        int maxEntries;
+        long settings;
+        long claimed;
+        // Most calls find no build due; they return without the monitor
+        if (!indexing || indexBuilding == version) {
+            return;
+        }
+        BridgeIndex latest = index;
+        if (latest != null && latest.version() == version) {
+            return;
+        }
+        synchronized (this) {
+            BridgeIndex current = index;
+            if (!indexing || indexBuilding == version
+                    || (current != null && current.version() == version)) {
+                return;
+            }
+            minWeight = indexMinWeight;
+            maxEntries = indexMaxEntries;
+            settings = indexSettings;
+            claimed = version;
+            indexBuilding = claimed;
+        }
+        BridgeIndex built = null;
+        try {
+            FrozenGraph<String> copy;
+            long copied;
+            lock.readLock().lock();
+            try {
+                copied = version;
+                copy = FrozenGraph.of(graph);
+            } finally {
+                lock.readLock().unlock();
+            }
+            built = BridgeIndex.build(copy, minWeight, maxEntries, copied);
+        } finally {
+            synchronized (this) {
+                if (settings == indexSettings) {
+                    if (indexBuilding == claimed) {
+                        indexBuilding = -1;
+                    }
+                    if (built != null && (index == null || index.version() < built.version())) {
+                        index = built;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remember the results of recent bridge word lookups in poem(), so that a
+     * pair of words looked up again costs a hash lookup instead of a search
+     * of the graph or index. Poems do not change. Replaces the current cache,
+     * if any, and its counters.
+     * 
+     * @param maximumSize most word pairs to remember, positive
+     * @param eviction which pair to forget when the cache is full
+     */
+    public synchronized void cacheBridges(int maximumSize, Eviction eviction) {
+        cache = new BridgeCache(maximumSize, eviction, version);
+    }
+    
+    /**
+     * Stop using and discard the bridge cache, if any.
+     */
+    public synchronized void dropBridgeCache() {
+        cache = null;
+    }
+    
+    /**
+     * @return counters of the bridge cache, or null if caching is off
+     */
+    public CacheStats bridgeCacheStats() {
+        BridgeCache current = cache;
+        return current == null ? null : current.stats();
+    }
+    
+    /**
+     * Requires lock to be held for reading.
+     * 
+     * @return the bridge cache, emptied if it holds lookups in an older
+     *         graph, or null if caching is off
+     */
+    private BridgeCache bridgeCache() {
+        BridgeCache current = cache;
+        if (current == null || current.version() == version) {
+            return current;
+        }
+        synchronized (this) {
+            if (cache != null && cache.version() != version) {
+                cache.clear(version);
+            }
+            return cache;
+        }
+    }
+    
+    /**
+     * @param index bridge index of the current graph, or null
+     * @param cache bridge cache of the current graph, or null
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @return the bridge word from one to the other, or null if there is none
+     */
+    private String bridge(BridgeIndex index, BridgeCache cache, String from, String to) {
+        if (cache == null) {
+            return bridge(index, from, to);
+        }
+        Optional<String> cached = cache.get(from, to);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        String bridge = bridge(index, from, to);
+        cache.put(from, to, bridge);
+        return bridge;
+    }
+    
+    /**
+     * @param index bridge index of the current graph, or null
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @return the bridge word from one to the other, or null if there is none
+     */
+    private String bridge(BridgeIndex index, String from, String to) {
+        if (index != null) {
+            String bridge = index.bridge(from, to);
+            if (bridge != null || index.exhaustive()) {
+                return bridge;
+            }
+        }
+        return search(from, to);
+    }
+    
+    /**
+     * @param from a lower-case word
+     * @param to a lower-case word
+     * @return the bridge word from one to the other found by searching the
+     *         graph, or null if there is none
+     */
+    private String search(String from, String to) {
+        Map<String, Integer> out = graph.targets(from);
+        if (out.isEmpty()) {
+            return null;
+        }
+        Map<String, Integer> in = graph.sources(to);
+        // Probe the larger neighbourhood from the smaller one
+        boolean outSmaller = out.size() <= in.size();
+        Map<String, Integer> smaller = outSmaller ? out : in;
+        Map<String, Integer> larger = outSmaller ? in : out;
+        String best = null;
+        long bestWeight = 0;
+        for (Map.Entry<String, Integer> entry : smaller.entrySet()) {
+            Integer other = larger.get(entry.getKey());
+            if (other == null) {
+                continue;
+            }
+            long weight = (long) entry.getValue() + other;
+            if (weight > bestWeight
+                    || (weight == bestWeight && entry.getKey().compareTo(best) < 0)) {
+                best = entry.getKey();
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Eviction policy of a bridge cache.
+     */
+    public enum Eviction {
+        /** Forget the least recently used word pair. */
+        LRU,
+        /**
+         * Window TinyLFU: admit a new word pair past a small recency window
+         * only if it has been looked up more often than the pair it would
+         * replace, so that frequent pairs outlast bursts of one-off pairs.
+         */
+        W_TINY_LFU
+    }
+    
+    /**
+     * Immutable counters of a bridge cache.
+     */
+    public static final class CacheStats {
+        
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int maximumSize;
+        private final Eviction eviction;
+        
+        // Abstraction function:
+        //   Represents a cache with the given eviction policy holding size of
+        //   at most maximumSize word pairs, that has answered hits lookups,
+        //   not answered misses lookups and forgotten evictions pairs
+        // Representation invariant:
+        //   - counters are nonnegative; size <= maximumSize; eviction != null
+        // Safety from rep exposure:
+        //   - All fields are private, final and immutable
+        
+        CacheStats(long hits, long misses, long evictions, int size, int maximumSize,
+                Eviction eviction) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.maximumSize = maximumSize;
+            this.eviction = eviction;
+        }
+        
+        /** @return number of lookups answered from the cache */
+        public long hits() {
+            return hits;
+        }
+        
+        /** @return number of lookups not answered from the cache */
+        public long misses() {
+            return misses;
+        }
+        
+        /** @return number of word pairs forgotten to make room */
+        public long evictions() {
+            return evictions;
+        }
+        
+        /** @return number of word pairs remembered */
+        public int size() {
+            return size;
+        }
+        
+        /** @return most word pairs the cache remembers */
+        public int maximumSize() {
+            return maximumSize;
+        }
+        
+        /** @return eviction policy of the cache */
+        public Eviction eviction() {
+            return eviction;
+        }
+        
+        @Override
+        public String toString() {
+            return hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+                    + size + "/" + maximumSize + " pairs";
+        }
+    }
+    
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "GraphPoet with " + graph.vertices().size() + " words: " + graph;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
     
 }
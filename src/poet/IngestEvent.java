@@ -0,0 +1,63 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one phase of building or extending a GraphPoet's
+ * affinity graph. Phases are:
+ * <ul><li> {@link #SPLIT}: choosing the byte ranges of a parallel read
+ *     <li> {@link #COUNT}: reading, tokenizing and counting the bigrams of a
+ *          corpus or of one byte range of it, which happen together in one
+ *          streaming pass
+ *     <li> {@link #MERGE}: merging the counts of two runs of ranges
+ *     <li> {@link #LOAD}: reading a snapshot
+ *     <li> {@link #BUILD}: applying counted words and bigrams to the graph
+ * </ul>
+ * This class is internal to GraphPoet.
+ */
+@Name("poet.Ingest")
+@Label("Corpus Ingest Phase")
+@Category("GraphPoet")
+@Description("A phase of reading a corpus into a GraphPoet's affinity graph")
+final class IngestEvent extends Event {
+
+    static final String SPLIT = "split";
+    static final String COUNT = "count";
+    static final String MERGE = "merge";
+    static final String LOAD = "load";
+    static final String BUILD = "build";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Source")
+    @Description("Corpus or snapshot file read in this phase, or null")
+    String source;
+
+    @Label("Start")
+    @Description("First byte of the range read, or -1 if not a range")
+    long start = -1;
+
+    @Label("End")
+    @Description("Byte after the range read, or -1 if not a range")
+    long end = -1;
+
+    @Label("Words")
+    @Description("Words read, or -1 if none were read in this phase")
+    long words = -1;
+
+    @Label("Vertices")
+    @Description("Distinct words staged after the phase")
+    int vertices;
+
+    @Label("Edges")
+    @Description("Distinct bigrams staged after the phase")
+    int edges;
+}
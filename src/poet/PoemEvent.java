@@ -0,0 +1,44 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for generating one poem. For a poem made from a
+ * String, its duration is the time taken to make the poem while holding the
+ * corpus, not counting waiting for a corpus extension. For a streamed poem,
+ * it runs from the call to its return, so it also counts reading the input,
+ * writing the output, and waiting for the corpus before each part.
+ * This class is internal to GraphPoet.
+ */
+@Name("poet.Poem")
+@Label("Poem")
+@Category("GraphPoet")
+@Description("Generation of one poem by GraphPoet")
+final class PoemEvent extends Event {
+
+    @Label("Input Words")
+    int inputWords;
+
+    @Label("Bridges")
+    @Description("Bridge words inserted")
+    int bridges;
+
+    @Label("Streamed")
+    @Description("Whether the poem was read from a Reader")
+    boolean streamed;
+
+    @Label("Indexed")
+    @Description("Whether a bridge index was in use")
+    boolean indexed;
+
+    @Label("Cached")
+    @Description("Whether a bridge cache was in use")
+    boolean cached;
+}
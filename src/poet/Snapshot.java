@@ -0,0 +1,390 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import graph.Graph;
+import graph.GraphLoader;
+
+/**
+ * Binary snapshot of the affinity graph of a GraphPoet, so that a poet can be
+ * reloaded without reading its corpus again.
+ *
+ * <p>A snapshot file is a fixed header followed by a payload:
+ * <pre>
+ *   header:  magic "GPSN" (4 bytes), format version (4 bytes),
+ *            payload length (8 bytes), CRC-32 of the payload (4 bytes)
+ *   payload: n = number of words
+ *            n times: byte length, UTF-8 bytes of a word
+ *            1 + index of the last word of the corpus, or 0 if none
+ *            n times, for the word with each index in turn:
+ *              number of edges out of it
+ *              that many times: index of the target, weight
+ * </pre>
+ * Fixed-size fields are big-endian. Every number in the payload is an
+ * unsigned LEB128 varint: 7 bits per byte, least significant first, high bit
+ * set on every byte but the last. Words are indexed in the order they appear
+ * in the payload.
+ *
+ * <p>Snapshots are read and written as streams through a small buffer, so
+ * memory use is that of the graph, not of the file.
+ * This class is internal to GraphPoet.
+ */
+final class Snapshot {
+
+    /** "GPSN" in ASCII. */
+    private static final int MAGIC = 0x4750534E;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Longest varint encoding of an int, in bytes
+    private static final int MAX_VARINT = 5;
+
+    private final GraphLoader<String> loader;
+    private final String lastWord;
+
+    // Abstraction function:
+    //   Represents the snapshot of a poet whose graph has the vertices and
+    //   edges staged by loader, and whose corpus ends with lastWord, or has
+    //   no words if lastWord is null
+    // Representation invariant:
+    //   - lastWord is null iff loader stages no vertices
+    // Safety from rep exposure:
+    //   - loader is handed to GraphPoet, which commits and discards it
+
+    private Snapshot(GraphLoader<String> loader, String lastWord) {
+        this.loader = loader;
+        this.lastWord = lastWord;
+        checkRep();
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        assert (lastWord == null) == (loader.stagedVertices() == 0) : "last word out of date";
+    }
+
+    /**
+     * @return a loader staging the words and edges of the snapshot
+     */
+    GraphLoader<String> loader() {
+        return loader;
+    }
+
+    /**
+     * @return last word of the corpus, or null if it has no words
+     */
+    String lastWord() {
+        return lastWord;
+    }
+
+    /**
+     * Write a snapshot, replacing the file if it exists. The snapshot is
+     * written to a temporary file in the same directory, forced to the
+     * storage device, and then moved over file atomically, so if writing
+     * fails, file is left as it was.
+     *
+     * @param graph affinity graph, not modified while writing
+     * @param lastWord last word of the corpus, a vertex of graph, or null if
+     *        graph has no vertices
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Graph<String> graph, String lastWord, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            writeFile(graph, lastWord, temp);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Write a snapshot into an existing empty file and force it to the
+     * storage device.
+     */
+    private static void writeFile(Graph<String> graph, String lastWord, Path file)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            Map<String, Integer> ids = new HashMap<>();
+            out.varint(graph.vertices().size());
+            for (String word : graph.vertices()) {
+                ids.put(word, ids.size());
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                out.varint(bytes.length);
+                out.bytes(bytes);
+            }
+            out.varint(lastWord == null ? 0 : ids.get(lastWord) + 1);
+            for (String word : graph.vertices()) {
+                Map<String, Integer> targets = graph.targets(word);
+                out.varint(targets.size());
+                for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                    out.varint(ids.get(edge.getKey()));
+                    out.varint(edge.getValue());
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(out.length)
+                  .putInt((int) out.crc.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file snapshot file
+     * @return the snapshot in file
+     * @throws IOException if the file cannot be found or read, or is not a
+     *         snapshot in a known format, or is corrupt
+     */
+    static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("not a snapshot: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unknown snapshot format " + version + ": " + file);
+            }
+            long length = header.getLong();
+            int crc = header.getInt();
+            if (length != channel.size() - HEADER_SIZE) {
+                throw new IOException("snapshot length mismatch: " + file);
+            }
+
+            Input in = new Input(channel, length);
+            int count = in.varint();
+            // Each word takes at least two bytes
+            if (count > length / 2) {
+                throw new IOException("bad word count in snapshot: " + file);
+            }
+            String[] words = new String[count];
+            GraphLoader<String> loader = new GraphLoader<>();
+            for (int i = 0; i < count; i++) {
+                words[i] = in.string(in.varint());
+                if (!isWord(words[i])) {
+                    throw new IOException("bad word in snapshot: " + file);
+                }
+                loader.add(words[i]);
+            }
+            if (loader.stagedVertices() != count) {
+                throw new IOException("duplicate words in snapshot: " + file);
+            }
+            int last = in.varint();
+            if (last > count || (last == 0) != (count == 0)) {
+                throw new IOException("bad last word in snapshot: " + file);
+            }
+            for (String source : words) {
+                for (int edges = in.varint(); edges > 0; edges--) {
+                    int target = in.varint();
+                    int weight = in.varint();
+                    if (target >= count || weight == 0) {
+                        throw new IOException("bad edge in snapshot: " + file);
+                    }
+                    try {
+                        loader.add(source, words[target], weight);
+                    } catch (ArithmeticException ae) {
+                        throw new IOException("edge weight overflow in snapshot: " + file, ae);
+                    }
+                }
+            }
+            if (!in.atEnd()) {
+                throw new IOException("trailing bytes in snapshot: " + file);
+            }
+            if ((int) in.crc.getValue() != crc) {
+                throw new IOException("checksum mismatch in snapshot: " + file);
+            }
+            return new Snapshot(loader, last == 0 ? null : words[last - 1]);
+        }
+    }
+
+    /**
+     * @param word a string
+     * @return true iff word can be a vertex of a GraphPoet graph: non-empty,
+     *         lower case, and containing no whitespace
+     */
+    private static boolean isWord(String word) {
+        if (word.isEmpty() || !word.equals(word.toLowerCase(Locale.ROOT))) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == ' ' || (c >= '\t' && c <= '\r')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Buffered writer of the payload, after the header.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private long length = 0;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void varint(int value) throws IOException {
+            assert value >= 0 : "negative varint";
+            if (buffer.remaining() < MAX_VARINT) {
+                drain();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        /** Write out the buffer, leaving it empty. */
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                length += channel.write(buffer, HEADER_SIZE + length);
+            }
+            buffer.clear();
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+    }
+
+    /**
+     * Buffered reader of the payload, after the header.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        // Bytes of the payload not yet read into buffer
+        private long remaining;
+
+        Input(FileChannel channel, long length) {
+            this.channel = channel;
+            this.remaining = length;
+            buffer.flip();
+        }
+
+        /** Read more of the payload into the buffer, keeping unread bytes. */
+        private void fill() throws IOException {
+            buffer.compact();
+            int start = buffer.position();
+            while (buffer.hasRemaining() && remaining > 0) {
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    throw new EOFException("snapshot ended early");
+                }
+                remaining -= n;
+            }
+            if (remaining < 0) {
+                throw new IOException("snapshot grew while reading");
+            }
+            crc.update(buffer.array(), start, buffer.position() - start);
+            buffer.flip();
+        }
+
+        private byte next() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+                if (!buffer.hasRemaining()) {
+                    throw new EOFException("snapshot ended early");
+                }
+            }
+            return buffer.get();
+        }
+
+        int varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 7 * MAX_VARINT; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    if (value > Integer.MAX_VALUE) {
+                        break;
+                    }
+                    return (int) value;
+                }
+            }
+            throw new IOException("bad number in snapshot");
+        }
+
+        /** @return true iff the whole payload has been read */
+        boolean atEnd() {
+            return remaining == 0 && !buffer.hasRemaining();
+        }
+
+        String string(int length) throws IOException {
+            if (length > remaining + buffer.remaining()) {
+                throw new EOFException("snapshot ended early");
+            }
+            if (length > BUFFER_SIZE) {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = next();
+                }
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            if (buffer.remaining() < length) {
+                fill();
+                if (buffer.remaining() < length) {
+                    throw new EOFException("snapshot ended early");
+                }
+            }
+            String string = new String(buffer.array(), buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return string;
+        }
+    }
+}
@@ -5,6 +5,9 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -56,6 +59,132 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
                    result.contains("->") || result.contains("weight"));
     }
     
+    // Testing strategy for ConcreteEdgesGraph edge indexes
+    //   - update, remove and re-add edges so that edges move within the list
+    //   - remove vertices with self-loops, in-edges and out-edges
+    //   - observe with sources() and targets(); checkRep verifies the indexes
+    
+    @Test
+    public void testIndexesSurviveEdgeMoves() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "A", 3);
+        graph.set("A", "A", 4);
+        
+        assertEquals("previous weight", 1, graph.set("A", "B", 0));
+        assertEquals("previous weight", 3, graph.set("C", "A", 5));
+        graph.set("A", "B", 6);
+        
+        assertEquals(Map.of("A", 4, "B", 6), graph.targets("A"));
+        assertEquals(Map.of("A", 4, "C", 5), graph.sources("A"));
+        assertEquals(Map.of("C", 2), graph.targets("B"));
+        
+        assertTrue(graph.remove("A"));
+        assertEquals(Map.of(), graph.sources("B"));
+        assertEquals(Map.of(), graph.targets("C"));
+        assertEquals(Map.of("C", 2), graph.targets("B"));
+        assertEquals(Map.of("B", 2), graph.sources("C"));
+    }
+    
+    // Testing strategy for ConcreteEdgesGraph sources() and targets() views
+    //   - same view on every call; reflects later set() and remove of a
+    //     neighbour; unmodifiable; copyable for snapshot semantics
+    //   - vertex with no edges yet, later given edges
+    
+    @Test
+    public void testLiveViews() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        Map<String, Integer> targets = graph.targets("A");
+        Map<String, Integer> sources = graph.sources("A");
+        assertSame("view should be reused", targets, graph.targets("A"));
+        assertEquals(Map.of(), targets);
+        
+        graph.set("A", "B", 1);
+        graph.set("C", "A", 2);
+        graph.set("A", "D", 3);
+        Map<String, Integer> snapshot = Map.copyOf(targets);
+        assertEquals(Map.of("B", 1, "D", 3), targets);
+        assertEquals(Map.of("C", 2), sources);
+        
+        graph.set("A", "B", 4);
+        graph.remove("D");
+        graph.set("C", "A", 0);
+        assertEquals(Map.of("B", 4), targets);
+        assertEquals(Map.of(), sources);
+        assertEquals(Map.of("B", 1, "D", 3), snapshot);
+        assertEquals(Map.of("A", 4), graph.sources("B"));
+        
+        try {
+            targets.put("E", 1);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            targets.keySet().clear();
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(Map.of("B", 4), targets);
+    }
+    
+    // Testing strategy for ConcreteEdgesGraph(RepCheck)
+    //   - OFF, INCREMENTAL, SAMPLED every mutation, SAMPLED every few mutations
+    //   - number of full checks each level makes; set() adding new endpoints,
+    //     add() and remove() that change nothing
+    //   - add, update, remove edges and vertices; results match the spec
+    
+    @Test
+    public void testRepCheckLevels() {
+        for (RepCheck repCheck : new RepCheck[] {
+                RepCheck.OFF, RepCheck.INCREMENTAL, RepCheck.sampled(1), RepCheck.sampled(3) }) {
+            Graph<String> graph = new ConcreteEdgesGraph(repCheck);
+            graph.add("A");
+            graph.set("A", "B", 1);
+            graph.set("B", "C", 2);
+            graph.set("C", "C", 3);
+            graph.set("A", "B", 4);
+            graph.set("B", "C", 0);
+            assertTrue(graph.remove("C"));
+            assertEquals(repCheck.toString(), Set.of("A", "B"), graph.vertices());
+            assertEquals(repCheck.toString(), Map.of("B", 4), graph.targets("A"));
+            assertEquals(repCheck.toString(), Map.of(), graph.targets("B"));
+        }
+    }
+    
+    @Test
+    public void testRepCheckFrequency() {
+        // Ten mutations; set() counts once even when it adds both endpoints
+        Map<RepCheck, Long> expected = Map.of(
+                RepCheck.OFF, 0L, RepCheck.INCREMENTAL, 0L,
+                RepCheck.sampled(1), 10L, RepCheck.sampled(3), 3L, RepCheck.sampled(11), 0L);
+        for (Map.Entry<RepCheck, Long> entry : expected.entrySet()) {
+            ConcreteEdgesGraph graph = new ConcreteEdgesGraph(entry.getKey());
+            graph.set("A", "B", 1);
+            graph.set("C", "D", 2);
+            graph.add("E");
+            graph.add("E"); // not a mutation
+            graph.set("A", "B", 3);
+            graph.set("B", "C", 4);
+            graph.set("E", "F", 5);
+            graph.set("A", "B", 0);
+            graph.remove("F");
+            graph.remove("missing"); // not a mutation
+            graph.set("G", "G", 6);
+            graph.add("H");
+            assertEquals(entry.getKey().toString(),
+                    (long) entry.getValue(), graph.fullChecks());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRepCheckSampledNonPositiveInterval() {
+        RepCheck.sampled(0);
+    }
+    
     /*
      * Testing Edge...
      */
@@ -5,6 +5,9 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -56,6 +59,160 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
                    result.contains("incoming") || result.contains("outgoing"));
     }
     
+    // Testing strategy for ConcreteVerticesGraph label index
+    //   - remove a vertex from the middle, the end and the only position
+    //   - re-add removed labels; remove vertices with self-loops and neighbours
+    //   - observe with vertices(), sources() and targets(); checkRep verifies
+    //     the index
+    
+    @Test
+    public void testIndexSurvivesVertexMoves() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "A", 3);
+        graph.set("B", "B", 4);
+        
+        assertTrue(graph.remove("B"));
+        assertEquals(Set.of("A", "C"), graph.vertices());
+        assertEquals(Map.of(), graph.targets("A"));
+        assertEquals(Map.of(), graph.sources("C"));
+        assertEquals(Map.of("A", 3), graph.targets("C"));
+        
+        assertTrue(graph.add("B"));
+        assertFalse(graph.add("C"));
+        assertEquals(0, graph.set("B", "A", 5));
+        assertEquals(Map.of("B", 5, "C", 3), graph.sources("A"));
+        
+        assertTrue(graph.remove("B"));
+        assertTrue(graph.remove("A"));
+        assertTrue(graph.remove("C"));
+        assertEquals(Set.of(), graph.vertices());
+    }
+    
+    // Testing strategy for ConcreteVerticesGraph sources() and targets() views
+    //   - same view on every call; reflects later set() and remove of a
+    //     neighbour; unmodifiable; copyable for snapshot semantics
+    //   - vertex with no edges yet, later given edges
+    
+    @Test
+    public void testLiveViews() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        Map<String, Integer> targets = graph.targets("A");
+        Map<String, Integer> sources = graph.sources("A");
+        assertSame("view should be reused", targets, graph.targets("A"));
+        assertEquals(Map.of(), targets);
+        
+        graph.set("A", "B", 1);
+        graph.set("C", "A", 2);
+        graph.set("A", "D", 3);
+        Map<String, Integer> snapshot = Map.copyOf(targets);
+        assertEquals(Map.of("B", 1, "D", 3), targets);
+        assertEquals(Map.of("C", 2), sources);
+        
+        graph.set("A", "B", 4);
+        graph.remove("D");
+        graph.set("C", "A", 0);
+        assertEquals(Map.of("B", 4), targets);
+        assertEquals(Map.of(), sources);
+        assertEquals(Map.of("B", 1, "D", 3), snapshot);
+        assertEquals(Map.of("A", 4), graph.sources("B"));
+        
+        try {
+            targets.put("E", 1);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            targets.keySet().clear();
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(Map.of("B", 4), targets);
+    }
+    
+    // Testing strategy for ConcreteVerticesGraph vertices() view
+    //   - same set on every call; reflects later add, set and remove,
+    //     including removal of a vertex that is not last in the list;
+    //     unmodifiable
+    
+    @Test
+    public void testLiveVertexSet() {
+        Graph<String> graph = emptyInstance();
+        Set<String> vertices = graph.vertices();
+        assertSame("set should be reused", vertices, graph.vertices());
+        assertEquals(Set.of(), vertices);
+        
+        graph.add("A");
+        graph.set("B", "C", 1);
+        graph.add("D");
+        assertEquals(Set.of("A", "B", "C", "D"), vertices);
+        graph.remove("A");
+        assertTrue(vertices.contains("D"));
+        assertFalse(vertices.contains("A"));
+        assertEquals(3, vertices.size());
+        
+        try {
+            vertices.remove("B");
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(Set.of("B", "C", "D"), vertices);
+    }
+    
+    // Testing strategy for ConcreteVerticesGraph(RepCheck)
+    //   - OFF, INCREMENTAL, SAMPLED every mutation, SAMPLED every few mutations
+    //   - number of full checks each level makes; set() adding new endpoints,
+    //     add() and remove() that change nothing
+    //   - add, update, remove edges and vertices; results match the spec
+    
+    @Test
+    public void testRepCheckLevels() {
+        for (RepCheck repCheck : new RepCheck[] {
+                RepCheck.OFF, RepCheck.INCREMENTAL, RepCheck.sampled(1), RepCheck.sampled(3) }) {
+            Graph<String> graph = new ConcreteVerticesGraph(repCheck);
+            graph.add("A");
+            graph.set("A", "B", 1);
+            graph.set("B", "C", 2);
+            graph.set("C", "C", 3);
+            graph.set("A", "B", 4);
+            graph.set("B", "C", 0);
+            assertTrue(graph.remove("C"));
+            assertEquals(repCheck.toString(), Set.of("A", "B"), graph.vertices());
+            assertEquals(repCheck.toString(), Map.of("B", 4), graph.targets("A"));
+            assertEquals(repCheck.toString(), Map.of(), graph.targets("B"));
+        }
+    }
+    
+    @Test
+    public void testRepCheckFrequency() {
+        // Ten mutations; set() counts once even when it adds both endpoints
+        Map<RepCheck, Long> expected = Map.of(
+                RepCheck.OFF, 0L, RepCheck.INCREMENTAL, 0L,
+                RepCheck.sampled(1), 10L, RepCheck.sampled(3), 3L, RepCheck.sampled(11), 0L);
+        for (Map.Entry<RepCheck, Long> entry : expected.entrySet()) {
+            ConcreteVerticesGraph graph = new ConcreteVerticesGraph(entry.getKey());
+            graph.set("A", "B", 1);
+            graph.set("C", "D", 2);
+            graph.add("E");
+            graph.add("E"); // not a mutation
+            graph.set("A", "B", 3);
+            graph.set("B", "C", 4);
+            graph.set("E", "F", 5);
+            graph.set("A", "B", 0);
+            graph.remove("F");
+            graph.remove("missing"); // not a mutation
+            graph.set("G", "G", 6);
+            graph.add("H");
+            assertEquals(entry.getKey().toString(),
+                    (long) entry.getValue(), graph.fullChecks());
+        }
+    }
+    
     /*
      * Testing Vertex...
      */
@@ -0,0 +1,158 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ *
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as tests for that particular implementation.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<>();
+    }
+
+    /*
+     * Testing ConcurrentGraph...
+     */
+
+    // Testing strategy
+    //   constructor: one stripe (maximum contention), many stripes; bad
+    //                concurrency
+    //   stress: writer threads set and remove edges on a small shared vertex
+    //           set while reader threads iterate over views; afterwards
+    //           - every edge is seen the same from both endpoints
+    //           - every edge endpoint is a vertex
+    //           - no thread saw an exception; no deadlock (timeout)
+    //   disjoint writers: threads on disjoint vertices all take effect
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveConcurrency() {
+        new ConcurrentGraph<String>(0);
+    }
+
+    @Test(timeout = 60000)
+    public void testStressOneStripe() throws InterruptedException {
+        stress(new ConcurrentGraph<>(1));
+    }
+
+    @Test(timeout = 60000)
+    public void testStressManyStripes() throws InterruptedException {
+        stress(new ConcurrentGraph<>(64));
+    }
+
+    private static void stress(Graph<String> graph) throws InterruptedException {
+        final int writers = 6;
+        final int readers = 2;
+        final int operations = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            final long seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        String source = "v" + random.nextInt(40);
+                        String target = "v" + random.nextInt(40);
+                        if (random.nextInt(20) == 0) {
+                            graph.remove(source);
+                        } else {
+                            graph.set(source, target, random.nextInt(4));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operations / 10; i++) {
+                        for (String vertex : graph.vertices()) {
+                            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                                assertTrue("weight must be positive", edge.getValue() > 0);
+                            }
+                            graph.sources(vertex).size();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("thread failed", failure.get());
+        }
+
+        for (String vertex : graph.vertices()) {
+            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                assertTrue("target must be a vertex", graph.vertices().contains(edge.getKey()));
+                assertEquals("edge seen differently from target",
+                        edge.getValue(), graph.sources(edge.getKey()).get(vertex));
+            }
+            for (Map.Entry<String, Integer> edge : graph.sources(vertex).entrySet()) {
+                assertTrue("source must be a vertex", graph.vertices().contains(edge.getKey()));
+                assertEquals("edge seen differently from source",
+                        edge.getValue(), graph.targets(edge.getKey()).get(vertex));
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDisjointWritersAllTakeEffect() throws InterruptedException {
+        Graph<String> graph = new ConcurrentGraph<>(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final String prefix = "t" + t + ":";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    graph.set(prefix + i, prefix + (i + 1), i + 1);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8 * 1001, graph.vertices().size());
+        for (int t = 0; t < 8; t++) {
+            assertEquals(Map.of("t" + t + ":500", 500), graph.targets("t" + t + ":499"));
+        }
+    }
+}
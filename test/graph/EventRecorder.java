@@ -0,0 +1,59 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records Java Flight Recorder events for tests of the events this project
+ * emits.
+ */
+public final class EventRecorder {
+
+    /** Code that may throw IOException. */
+    public interface Action {
+        void run() throws IOException;
+    }
+
+    private EventRecorder() {
+        throw new AssertionError("uninstantiable");
+    }
+
+    /**
+     * Run action while recording the named Flight Recorder events.
+     *
+     * @param eventName name of the events to record
+     * @param action code to run
+     * @return the events of that name recorded, in the order they were
+     *         recorded, leaving out those the recorder adds itself
+     * @throws IOException if action throws it, or the recording cannot be
+     *         written or read
+     */
+    public static List<RecordedEvent> record(String eventName, Action action)
+            throws IOException {
+        Path file = Files.createTempFile("events", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(eventName);
+                recording.start();
+                action.run();
+                recording.stop();
+                recording.dump(file);
+            }
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
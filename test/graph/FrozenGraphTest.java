@@ -0,0 +1,123 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for FrozenGraph.
+ *
+ * FrozenGraph is immutable, so it cannot run the GraphInstanceTest tests;
+ * instead these tests freeze mutable graphs and compare observations.
+ */
+public class FrozenGraphTest {
+
+    // Testing strategy
+    //   of(): empty graph, vertices without edges, self-loops, many random
+    //         edges, an already frozen graph
+    //   observers: labels in and not in the graph; compare vertices(),
+    //              sources() and targets() with the original graph
+    //   mutators: add(), set(), remove() throw
+    //   int accessors: id(), label(), rows sorted by neighbour ID, weight()
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testFreezeEmpty() {
+        FrozenGraph<String> frozen = FrozenGraph.of(new ConcreteEdgesGraph());
+        assertEquals(Set.of(), frozen.vertices());
+        assertEquals(0, frozen.vertexCount());
+        assertEquals(0, frozen.edgeCount());
+        assertEquals(Map.of(), frozen.targets("A"));
+        assertEquals(Map.of(), frozen.sources("A"));
+    }
+
+    @Test
+    public void testFreezeSmallGraph() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        graph.add("lonely");
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 2);
+        graph.set("C", "A", 3);
+        graph.set("B", "B", 4);
+
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        assertEquals(Set.of("lonely", "A", "B", "C"), frozen.vertices());
+        assertTrue(frozen.vertices().contains("lonely"));
+        assertFalse(frozen.vertices().contains("D"));
+        assertEquals(Map.of("B", 1, "C", 2), frozen.targets("A"));
+        assertEquals(Map.of("C", 3), frozen.sources("A"));
+        assertEquals(Map.of("A", 1, "B", 4), frozen.sources("B"));
+        assertEquals(Map.of(), frozen.targets("lonely"));
+        assertEquals(Integer.valueOf(2), frozen.targets("A").get("C"));
+        assertNull(frozen.targets("A").get("lonely"));
+        assertEquals(4, frozen.vertexCount());
+        assertEquals(4, frozen.edgeCount());
+
+        int a = frozen.id("A");
+        assertEquals("A", frozen.label(a));
+        assertEquals(-1, frozen.id("D"));
+        assertEquals(2, frozen.weight(a, frozen.id("C")));
+        assertEquals(0, frozen.weight(a, frozen.id("lonely")));
+
+        assertSame(frozen, FrozenGraph.of(frozen));
+    }
+
+    @Test
+    public void testFreezeMatchesRandomGraph() {
+        Random random = new Random(6005);
+        Graph<String> graph = new ConcreteEdgesGraph(RepCheck.OFF);
+        for (int i = 0; i < 2000; i++) {
+            graph.set("v" + random.nextInt(100), "v" + random.nextInt(100), random.nextInt(5));
+        }
+
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        assertEquals(graph.vertices(), frozen.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.targets(vertex), frozen.targets(vertex));
+            assertEquals(graph.sources(vertex), frozen.sources(vertex));
+
+            int id = frozen.id(vertex);
+            for (int i = frozen.outStart(id) + 1; i < frozen.outEnd(id); i++) {
+                assertTrue("row sorted", frozen.outNeighbour(i - 1) < frozen.outNeighbour(i));
+            }
+            for (int i = frozen.inStart(id); i < frozen.inEnd(id); i++) {
+                assertEquals(frozen.inWeight(i), frozen.weight(frozen.inNeighbour(i), id));
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddUnsupported() {
+        FrozenGraph.of(new ConcreteEdgesGraph()).add("A");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetUnsupported() {
+        FrozenGraph.of(new ConcreteEdgesGraph()).set("A", "B", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemoveUnsupported() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.add("A");
+        FrozenGraph.of(graph).remove("A");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTargetsUnmodifiable() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("A", "B", 1);
+        FrozenGraph.of(graph).targets("A").put("C", 1);
+    }
+}
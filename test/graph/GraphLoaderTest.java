@@ -0,0 +1,311 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * Tests for GraphLoader.
+ */
+public class GraphLoaderTest {
+
+    // Testing strategy
+    //   add(vertex): new vertex, vertex already staged, vertex already in graph
+    //   add(source, target, delta): new edge, edge staged again (totals add
+    //                               up), edge already in graph (weights add
+    //                               up), self-loop; delta 0 or negative;
+    //                               total overflows; weight in graph
+    //                               overflows on commit, after other
+    //                               edges were staged
+    //   addPath(): empty, one label, repeated bigrams; null label
+    //   commit(): into ConcreteEdgesGraph, ConcreteVerticesGraph, a
+    //             VersionedGraph (one new version) and a graph without a
+    //             bulk hook; reads each source's row once from a graph
+    //             whose targets() copies; clears the loader; loader reusable; graph
+    //             checks rep as usual afterwards; whole-rep checks at the
+    //             end of a commit only at a sampled level
+    //   clear(): discards everything staged
+    //   addAll(): empty other, overlapping labels and edges (totals add up),
+    //             other unchanged; this loader
+    //   randomized: same graph as repeated set() calls
+    //   events: commit() records a graph.MutationBatch event with its counts
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyCommit() {
+        Graph<String> graph = new GraphLoader<String>().commit(Graph.empty());
+        assertEquals(Set.of(), graph.vertices());
+    }
+
+    @Test
+    public void testAddVertex() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        loader.add("A").add("B").add("A");
+        assertEquals(2, loader.stagedVertices());
+        assertEquals(0, loader.stagedEdges());
+
+        Graph<String> graph = Graph.empty();
+        graph.add("A");
+        loader.commit(graph);
+        assertEquals(Set.of("A", "B"), graph.vertices());
+    }
+
+    @Test
+    public void testAccumulate() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        loader.add("A", "B", 2).add("A", "B", 3).add("B", "A", 1).add("C", "C", 4);
+        assertEquals(3, loader.stagedVertices());
+        assertEquals(3, loader.stagedEdges());
+        assertEquals(5, loader.staged("A", "B"));
+        assertEquals(0, loader.staged("A", "C"));
+        assertEquals(0, loader.staged("A", "Z"));
+
+        Graph<String> graph = loader.commit(new ConcreteVerticesGraph());
+        assertEquals(Set.of("A", "B", "C"), graph.vertices());
+        assertEquals(Map.of("B", 5), graph.targets("A"));
+        assertEquals(Map.of("B", 1), graph.sources("A"));
+        assertEquals(Map.of("C", 4), graph.targets("C"));
+    }
+
+    @Test
+    public void testAccumulateOntoExistingWeights() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("A", "B", 10);
+        new GraphLoader<String>().add("A", "B", 5).add("B", "C", 1).commit(graph);
+        assertEquals(Map.of("B", 15), graph.targets("A"));
+        assertEquals(Map.of("C", 1), graph.targets("B"));
+    }
+
+    @Test
+    public void testAddPath() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        loader.addPath(List.of());
+        loader.addPath(List.of("alone"));
+        loader.addPath(List.of("hello,", "hello,", "hello,", "goodbye!"));
+        Graph<String> graph = loader.commit(Graph.empty());
+        assertEquals(Set.of("alone", "hello,", "goodbye!"), graph.vertices());
+        assertEquals(Map.of("hello,", 2, "goodbye!", 1), graph.targets("hello,"));
+        assertEquals(Map.of(), graph.targets("alone"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPathNullLabel() {
+        List<String> path = new ArrayList<>();
+        path.add("A");
+        path.add(null);
+        new GraphLoader<String>().addPath(path);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroDelta() {
+        new GraphLoader<String>().add("A", "B", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDelta() {
+        new GraphLoader<String>().add("A", "B", -1);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testTotalOverflows() {
+        new GraphLoader<String>().add("A", "B", Integer.MAX_VALUE).add("A", "B", 1);
+    }
+
+    @Test
+    public void testCommitOverflowKeepsOldWeight() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", Integer.MAX_VALUE - 1);
+        GraphLoader<String> loader = new GraphLoader<String>().add("A", "B", 2);
+        try {
+            loader.commit(graph);
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+            // expected
+        }
+        assertEquals(Map.of("B", Integer.MAX_VALUE - 1), graph.targets("A"));
+        assertEquals(2, loader.staged("A", "B"));
+    }
+
+    @Test
+    public void testCommitOverflowLeavesGraphUnchanged() {
+        Graph<String> graph = Graph.empty();
+        graph.set("C", "D", Integer.MAX_VALUE);
+        GraphLoader<String> loader = new GraphLoader<String>()
+                .add("A", "B", 1).add("E").add("C", "D", 1);
+        try {
+            loader.commit(graph);
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+            // expected
+        }
+        assertEquals(Set.of("C", "D"), graph.vertices());
+        assertEquals(Map.of("D", Integer.MAX_VALUE), graph.targets("C"));
+        assertEquals(1, loader.staged("A", "B"));
+    }
+
+    @Test
+    public void testCommitIntoVersionedGraphIsOneVersion() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.set("A", "B", 2);
+        long before = graph.version();
+        new GraphLoader<String>().add("A", "B", 3).add("B", "C", 1).add("D").commit(graph);
+        assertEquals(before + 1, graph.version());
+        assertEquals(Map.of("B", 5), graph.targets("A"));
+        assertEquals(Set.of("A", "B", "C", "D"), graph.vertices());
+    }
+
+    @Test
+    public void testCommitClearsLoader() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        Graph<String> first = loader.add("A", "B", 1).commit(Graph.empty());
+        assertEquals(0, loader.stagedVertices());
+        assertEquals(0, loader.stagedEdges());
+
+        Graph<String> second = loader.add("C", "D", 2).commit(Graph.empty());
+        assertEquals(Set.of("A", "B"), first.vertices());
+        assertEquals(Set.of("C", "D"), second.vertices());
+        assertEquals(Map.of("D", 2), second.targets("C"));
+    }
+
+    @Test
+    public void testClear() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        loader.add("A", "B", 1).clear();
+        assertEquals(0, loader.staged("A", "B"));
+        Graph<String> graph = loader.add("C").commit(Graph.empty());
+        assertEquals(Set.of("C"), graph.vertices());
+    }
+
+    @Test
+    public void testAddAll() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        GraphLoader<String> other = new GraphLoader<>();
+        loader.add("A", "B", 1).addAll(other);
+        other.add("C").add("B", "C", 2).add("A", "B", 3);
+        loader.addAll(other);
+        assertEquals(4, loader.staged("A", "B"));
+        assertEquals(2, loader.staged("B", "C"));
+        assertEquals(3, loader.stagedVertices());
+        assertEquals(3, other.staged("A", "B"));
+
+        Graph<String> graph = loader.commit(Graph.empty());
+        assertEquals(Set.of("A", "B", "C"), graph.vertices());
+        assertEquals(Map.of("A", 4), graph.sources("B"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddAllSelf() {
+        GraphLoader<String> loader = new GraphLoader<>();
+        loader.addAll(loader);
+    }
+
+    @Test
+    public void testGraphChecksRepAfterCommit() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph(RepCheck.sampled(1));
+        new GraphLoader<String>().add("A", "B", 1).commit(graph);
+        graph.set("B", "C", 2);
+        graph.remove("A");
+        assertEquals(Set.of("B", "C"), graph.vertices());
+    }
+
+    @Test
+    public void testCommitChecksRepPerLevel() {
+        for (RepCheck level : List.of(RepCheck.OFF, RepCheck.INCREMENTAL, RepCheck.sampled(1000))) {
+            ConcreteEdgesGraph edgesGraph = new ConcreteEdgesGraph(level);
+            ConcreteVerticesGraph verticesGraph = new ConcreteVerticesGraph(level);
+            List<String> path = new ArrayList<>();
+            for (int i = 0; i < 100000; i++) {
+                path.add("v" + i);
+            }
+            new GraphLoader<String>().addPath(path).commit(edgesGraph);
+            new GraphLoader<String>().addPath(path).commit(verticesGraph);
+            new GraphLoader<String>().add("v0", "new", 1).commit(edgesGraph);
+            new GraphLoader<String>().add("v0", "new", 1).commit(verticesGraph);
+            long expected = level.level() == RepCheck.Level.SAMPLED ? 2 : 0;
+            assertEquals(level.toString(), expected, edgesGraph.fullChecks());
+            assertEquals(level.toString(), expected, verticesGraph.fullChecks());
+        }
+    }
+
+    @Test
+    public void testCommitFetchesEachRowOnce() {
+        Map<String, Integer> fetches = new HashMap<>();
+        Graph<String> copying = new ConcreteEdgesGraph() {
+            @Override public Map<String, Integer> targets(String source) {
+                fetches.merge(source, 1, Integer::sum);
+                return Map.copyOf(super.targets(source));
+            }
+        };
+        copying.set("hub", "v0", 1);
+        GraphLoader<String> loader = new GraphLoader<>();
+        for (int i = 0; i < 1000; i++) {
+            loader.add("hub", "v" + i, 1).add("v" + i, "hub", 1);
+        }
+        loader.commit(copying);
+        assertEquals(Integer.valueOf(1), fetches.get("hub"));
+        assertEquals(Integer.valueOf(1), fetches.get("v999"));
+        assertEquals(Map.of("hub", 1), copying.targets("v999"));
+        assertEquals(Integer.valueOf(2), copying.targets("hub").get("v0"));
+    }
+
+    @Test
+    public void testRandomizedMatchesSet() {
+        Graph<String> expected = new ConcreteEdgesGraph();
+        expected.set("v0", "v1", 7);
+        Random random = new Random(6005);
+        for (int i = 0; i < 20000; i++) {
+            String source = "v" + random.nextInt(200);
+            String target = "v" + random.nextInt(200);
+            int delta = 1 + random.nextInt(3);
+            expected.set(source, target, expected.targets(source).getOrDefault(target, 0) + delta);
+        }
+
+        for (Graph<String> graph : List.<Graph<String>>of(new ConcreteEdgesGraph(),
+                new ConcreteVerticesGraph(), new ConcurrentGraph<>())) {
+            graph.set("v0", "v1", 7);
+            GraphLoader<String> loader = new GraphLoader<>();
+            random = new Random(6005);
+            for (int i = 0; i < 20000; i++) {
+                loader.add("v" + random.nextInt(200), "v" + random.nextInt(200), 1 + random.nextInt(3));
+            }
+            loader.commit(graph);
+            assertEquals(expected.vertices(), graph.vertices());
+            for (String vertex : expected.vertices()) {
+                assertEquals(expected.targets(vertex), graph.targets(vertex));
+                assertEquals(expected.sources(vertex), graph.sources(vertex));
+            }
+        }
+    }
+
+    @Test
+    public void testCommitEvent() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b", 1);
+        List<RecordedEvent> events = EventRecorder.record("graph.MutationBatch", () -> new GraphLoader<String>()
+                .add("c").add("a", "b", 2).add("b", "c", 1).add("b", "c", 1).commit(graph));
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("GraphLoader.commit", event.getString("operation"));
+        assertEquals(ConcreteEdgesGraph.class.getName(), event.getString("graphClass"));
+        // three vertices and one set() per edge
+        assertEquals(5, event.getLong("mutations"));
+        assertEquals(3, event.getInt("vertices"));
+    }
+}
@@ -0,0 +1,214 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import graph.InstrumentedGraph.Operation;
+import graph.InstrumentedGraph.OperationStats;
+
+/**
+ * Tests for InstrumentedGraph.
+ *
+ * This class runs the GraphInstanceTest tests against InstrumentedGraph, as
+ * well as tests for that particular implementation.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class InstrumentedGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an InstrumentedGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new InstrumentedGraph<>(Graph.empty());
+    }
+
+    /*
+     * Testing InstrumentedGraph...
+     */
+
+    // Testing strategy
+    //   constructor: enabled, disabled; null delegate; nonempty delegate
+    //   stats(): each operation; calls, result sizes; after reset()
+    //   edge count: set adding, changing and removing edges; remove of a
+    //               vertex with in, out and self-loop edges; -1 while disabled;
+    //               recounted when enabled
+    //   histogram: exact below 128 ns, within 1/64 above, clamped at the top;
+    //              percentiles ordered and bounded by the maximum; no calls;
+    //              percentile out of range
+    //   JMX: register, read attributes, set enabled, unregister; register twice
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullDelegate() {
+        new InstrumentedGraph<String>(null);
+    }
+
+    @Test
+    public void testCountsCalls() {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        graph.add("a");
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        assertEquals(Map.of("b", 1, "c", 2), graph.targets("a"));
+        assertEquals(Map.of(), graph.targets("b"));
+        assertEquals(Map.of("a", 2), graph.sources("c"));
+        graph.vertices();
+        graph.remove("b");
+
+        assertEquals(1, graph.stats(Operation.ADD).getCalls());
+        assertEquals(3, graph.stats(Operation.SET).getCalls());
+        assertEquals(1, graph.stats(Operation.REMOVE).getCalls());
+        assertEquals(1, graph.stats(Operation.VERTICES).getCalls());
+        assertEquals(1, graph.stats(Operation.SOURCES).getCalls());
+        assertEquals(2, graph.stats(Operation.TARGETS).getCalls());
+        assertEquals(2, graph.stats(Operation.TARGETS).getMaxResultSize());
+        assertEquals(1.0, graph.stats(Operation.TARGETS).getMeanResultSize(), 1e-9);
+        assertEquals(3, graph.stats(Operation.VERTICES).getMaxResultSize());
+        assertEquals(0, graph.stats(Operation.ADD).getMaxResultSize());
+        assertEquals(6, graph.stats().size());
+        assertEquals(graph.stats().keySet().size(), graph.getOperations().size());
+
+        graph.reset();
+        for (OperationStats stats : graph.stats().values()) {
+            assertEquals(0, stats.getCalls());
+            assertEquals(0, stats.getP99Nanos());
+            assertEquals(0.0, stats.getMeanNanos(), 0);
+        }
+    }
+
+    @Test
+    public void testEdgeCount() {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        assertEquals(0, graph.getEdgeCount());
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("a", "b", 5);
+        assertEquals(2, graph.getEdgeCount());
+        graph.set("a", "b", 0);
+        graph.set("a", "b", 0);
+        assertEquals(1, graph.getEdgeCount());
+        graph.set("a", "b", 1);
+        graph.set("b", "b", 1);
+        graph.set("c", "b", 1);
+        assertEquals(4, graph.getEdgeCount());
+        graph.remove("b");
+        assertEquals(0, graph.getEdgeCount());
+        assertEquals(2, graph.getVertexCount());
+        graph.remove("missing");
+        assertEquals(0, graph.getEdgeCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        Graph<String> delegate = Graph.empty();
+        delegate.set("a", "b", 1);
+        delegate.set("b", "b", 1);
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(delegate, false);
+        assertFalse(graph.isEnabled());
+        graph.set("b", "c", 1);
+        graph.targets("a");
+        assertEquals(-1, graph.getEdgeCount());
+        assertEquals(3, graph.getVertexCount());
+        for (OperationStats stats : graph.stats().values()) {
+            assertEquals(0, stats.getCalls());
+        }
+        graph.setEnabled(true);
+        assertEquals(3, graph.getEdgeCount());
+        graph.targets("a");
+        assertEquals(1, graph.stats(Operation.TARGETS).getCalls());
+        graph.setEnabled(false);
+        graph.targets("a");
+        assertEquals(1, graph.stats(Operation.TARGETS).getCalls());
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 128; value++) {
+            int bucket = InstrumentedGraph.bucket(value);
+            assertEquals(value, bucket);
+            assertEquals(value, InstrumentedGraph.highestInBucket(bucket));
+        }
+        int previous = InstrumentedGraph.bucket(127);
+        for (long value = 128; value < 1L << 20; value += 1 + value / 1000) {
+            int bucket = InstrumentedGraph.bucket(value);
+            assertTrue(bucket >= previous);
+            previous = bucket;
+            long highest = InstrumentedGraph.highestInBucket(bucket);
+            assertTrue(highest >= value);
+            assertTrue("bucket of " + value + " too wide", highest - value <= value / 64);
+        }
+        assertEquals(InstrumentedGraph.bucket((1L << 40) - 1),
+                InstrumentedGraph.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        OperationStats none = graph.stats(Operation.ADD);
+        assertEquals(0, none.percentileNanos(50));
+        for (int i = 0; i < 1000; i++) {
+            graph.add("v" + i);
+        }
+        OperationStats stats = graph.stats(Operation.ADD);
+        assertEquals(1000, stats.getCalls());
+        assertTrue(stats.percentileNanos(0) <= stats.getP50Nanos());
+        assertTrue(stats.getP50Nanos() <= stats.getP99Nanos());
+        assertTrue(stats.getP99Nanos() <= stats.getP999Nanos());
+        assertTrue(stats.getP999Nanos() <= stats.getMaxNanos());
+        assertEquals(stats.getMaxNanos(), stats.percentileNanos(100));
+        assertTrue(stats.getTotalNanos() >= stats.getMaxNanos());
+        assertTrue(stats.toString().startsWith("1000 calls"));
+        try {
+            stats.percentileNanos(101);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testJmx() throws JMException {
+        InstrumentedGraph<String> graph = new InstrumentedGraph<>(Graph.empty());
+        graph.set("a", "b", 1);
+        graph.targets("a");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = graph.register("testJmx");
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(2, server.getAttribute(name, "VertexCount"));
+            assertEquals(1L, server.getAttribute(name, "EdgeCount"));
+            assertEquals(true, server.getAttribute(name, "Enabled"));
+            TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+            CompositeData targets = (CompositeData) operations.get(new Object[] { "TARGETS" })
+                    .get("value");
+            assertEquals(1L, targets.get("calls"));
+            assertEquals(1L, targets.get("maxResultSize"));
+
+            server.setAttribute(name, new Attribute("Enabled", false));
+            assertFalse(graph.isEnabled());
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0, graph.stats(Operation.TARGETS).getCalls());
+
+            assertEquals(name, graph.register("testJmx"));
+        } finally {
+            graph.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+        graph.unregister();
+    }
+}
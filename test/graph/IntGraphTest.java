@@ -0,0 +1,186 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for IntGraph.
+ *
+ * This class runs the GraphInstanceTest tests against the Graph view of
+ * IntGraph, as well as tests for the int API.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class IntGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an IntGraph view for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new IntGraph<String>().asGraph();
+    }
+
+    /*
+     * Testing the IntGraph int API...
+     */
+
+    // Testing strategy
+    //   intern(): new label, existing label, label of a removed vertex
+    //   id(), label(): present and absent labels, free IDs
+    //   set(), weight(): add, update, remove edges, self-loops; bad IDs
+    //   remove(): vertex with in-edges, out-edges and a self-loop; ID reuse;
+    //             views of the removed vertex's edges taken before removal
+    //   slot iteration: visits exactly the edges of a vertex
+    //   degree: small, and 2^18 in-edges and out-edges at one vertex
+    //   edgeCount(), vertexCount(): after every kind of mutation
+
+    @Test
+    public void testInternAndIds() {
+        IntGraph<String> graph = new IntGraph<>();
+        int a = graph.intern("A");
+        int b = graph.intern("B");
+        assertEquals(a, graph.intern("A"));
+        assertNotEquals(a, b);
+        assertEquals(a, graph.id("A"));
+        assertEquals(-1, graph.id("C"));
+        assertEquals("B", graph.label(b));
+        assertEquals(2, graph.vertexCount());
+        assertEquals(2, graph.idLimit());
+    }
+
+    @Test
+    public void testSetWeightAndRemove() {
+        IntGraph<String> graph = new IntGraph<>();
+        int a = graph.intern("A");
+        int b = graph.intern("B");
+        int c = graph.intern("C");
+        assertEquals(0, graph.set(a, b, 2));
+        assertEquals(0, graph.set(b, c, 3));
+        assertEquals(0, graph.set(c, c, 4));
+        assertEquals(0, graph.set(c, a, 5));
+        assertEquals(2, graph.set(a, b, 6));
+        assertEquals(6, graph.weight(a, b));
+        assertEquals(0, graph.weight(b, a));
+        assertEquals(4, graph.edgeCount());
+        assertEquals(2, graph.inDegree(c));
+        assertEquals(2, graph.outDegree(c));
+
+        graph.remove(c);
+        assertEquals(1, graph.edgeCount());
+        assertEquals(2, graph.vertexCount());
+        assertNull(graph.label(c));
+        assertEquals(-1, graph.id("C"));
+        assertEquals(Map.of(), graph.asGraph().sources("A"));
+        assertEquals(Map.of(), graph.asGraph().targets("B"));
+
+        int d = graph.intern("D");
+        assertEquals("freed ID is reused", c, d);
+        assertEquals(0, graph.inDegree(d));
+        assertEquals(Set.of("A", "B", "D"), graph.asGraph().vertices());
+    }
+
+    @Test
+    public void testViewsOfRemovedVertexStayEmpty() {
+        IntGraph<String> graph = new IntGraph<>();
+        graph.asGraph().set("A", "B", 1);
+        graph.asGraph().set("C", "A", 2);
+        Map<String, Integer> targets = graph.asGraph().targets("A");
+        Map<String, Integer> sources = graph.asGraph().sources("A");
+        graph.asGraph().remove("A");
+        graph.asGraph().remove("B");
+        graph.asGraph().set("D", "E", 3);
+        graph.asGraph().set("C", "D", 4);
+        assertEquals(Map.of(), targets);
+        assertEquals(Map.of(), sources);
+
+        graph.asGraph().set("A", "C", 5);
+        assertEquals(Map.of(), targets);
+        assertEquals(Map.of("C", 5), graph.asGraph().targets("A"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetBadId() {
+        IntGraph<String> graph = new IntGraph<>();
+        graph.set(graph.intern("A"), 7, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoveFreedId() {
+        IntGraph<String> graph = new IntGraph<>();
+        int a = graph.intern("A");
+        graph.remove(a);
+        graph.remove(a);
+    }
+
+    @Test(timeout = 10000)
+    public void testHighDegreeVertex() {
+        // Every home slot of a large edge table must be in use, or probing
+        // degrades to quadratic time long before the timeout
+        int degree = 1 << 18;
+        IntGraph<Integer> graph = new IntGraph<>();
+        int hub = graph.intern(-1);
+        for (int i = 0; i < degree; i++) {
+            int leaf = graph.intern(i);
+            assertEquals(0, graph.set(hub, leaf, 1 + i % 7));
+            assertEquals(0, graph.set(leaf, hub, 1 + i % 5));
+        }
+        assertEquals(degree, graph.outDegree(hub));
+        assertEquals(degree, graph.inDegree(hub));
+        for (int i = 0; i < degree; i++) {
+            int leaf = graph.id(i);
+            assertEquals(1 + i % 7, graph.weight(hub, leaf));
+            assertEquals(1 + i % 5, graph.weight(leaf, hub));
+        }
+        for (int i = 0; i < degree; i += 2) {
+            assertEquals(1 + i % 7, graph.set(hub, graph.id(i), 0));
+        }
+        assertEquals(degree / 2, graph.outDegree(hub));
+        assertEquals(0, graph.weight(hub, graph.id(0)));
+        assertEquals(1 + 1 % 7, graph.weight(hub, graph.id(1)));
+    }
+
+    @Test
+    public void testSlotIterationMatchesRandomGraph() {
+        Random random = new Random(6005);
+        IntGraph<String> graph = new IntGraph<>();
+        Graph<String> reference = new ConcreteEdgesGraph(RepCheck.OFF);
+        for (int i = 0; i < 3000; i++) {
+            String source = "v" + random.nextInt(60);
+            String target = "v" + random.nextInt(60);
+            int weight = random.nextInt(4);
+            if (random.nextInt(50) == 0) {
+                reference.remove(source);
+                graph.asGraph().remove(source);
+            } else {
+                assertEquals(reference.set(source, target, weight),
+                        graph.asGraph().set(source, target, weight));
+            }
+        }
+
+        assertEquals(reference.vertices(), graph.asGraph().vertices());
+        int edges = 0;
+        for (String vertex : reference.vertices()) {
+            int id = graph.id(vertex);
+            Map<String, Integer> targets = new HashMap<>();
+            for (int slot = 0; slot < graph.outSlots(id); slot++) {
+                int target = graph.outTarget(id, slot);
+                if (target >= 0) {
+                    targets.put(graph.label(target), graph.outWeight(id, slot));
+                }
+            }
+            assertEquals(reference.targets(vertex), targets);
+            assertEquals(reference.sources(vertex), graph.asGraph().sources(vertex));
+            edges += targets.size();
+        }
+        assertEquals(edges, graph.edgeCount());
+    }
+}
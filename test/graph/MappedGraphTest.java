@@ -0,0 +1,185 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for MappedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against MappedGraph, as well as
+ * tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class MappedGraphTest extends GraphInstanceTest {
+    
+    // Small segments, so that tests exercise growth across segments
+    private static final int SEGMENT_SHIFT = 12;
+    
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private final List<MappedGraph> opened = new ArrayList<>();
+    
+    @After
+    public void closeGraphs() throws IOException {
+        for (MappedGraph graph : opened) {
+            graph.close();
+        }
+    }
+    
+    private MappedGraph open(Path directory) throws IOException {
+        MappedGraph graph = MappedGraph.open(directory, SEGMENT_SHIFT);
+        opened.add(graph);
+        return graph;
+    }
+    
+    /*
+     * Provide a MappedGraph in a fresh directory for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        try {
+            return open(folder.newFolder().toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /*
+     * Testing MappedGraph...
+     */
+    
+    // Testing strategy
+    //   open(): new directory, directory of a closed graph, directory holding
+    //           other files; a file that cannot be mapped
+    //   growth: enough vertices to grow the label table several times, enough
+    //           edges and label bytes to span many segments; table grown
+    //           after reopening, in place
+    //   labels: ASCII and non-ASCII
+    //   close(): observers fail after close, closing twice
+    //   reuse: vertex and edge records freed by remove() and set(..., 0)
+    
+    @Test
+    public void testReopenSeesSameGraph() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedGraph graph = open(directory);
+        graph.add("lonely");
+        graph.set("A", "B", 1);
+        graph.set("B", "\u00fcn\u00efc\u00f6d\u00e9", 2);
+        graph.set("\u00fcn\u00efc\u00f6d\u00e9", "\u00fcn\u00efc\u00f6d\u00e9", 3);
+        graph.close();
+        
+        MappedGraph reopened = open(directory);
+        assertEquals(Set.of("lonely", "A", "B", "\u00fcn\u00efc\u00f6d\u00e9"), reopened.vertices());
+        assertEquals(Map.of("\u00fcn\u00efc\u00f6d\u00e9", 2), reopened.targets("B"));
+        assertEquals(Map.of("B", 2, "\u00fcn\u00efc\u00f6d\u00e9", 3), reopened.sources("\u00fcn\u00efc\u00f6d\u00e9"));
+        assertEquals(3, reopened.edgeCount());
+        
+        assertEquals(1, reopened.set("A", "B", 4));
+        assertTrue(reopened.remove("lonely"));
+        reopened.close();
+        
+        MappedGraph again = open(directory);
+        assertEquals(Set.of("A", "B", "\u00fcn\u00efc\u00f6d\u00e9"), again.vertices());
+        assertEquals(Map.of("B", 4), again.targets("A"));
+    }
+    
+    @Test
+    public void testGrowthMatchesReference() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedGraph graph = open(directory);
+        Graph<String> reference = new ConcreteEdgesGraph(RepCheck.OFF);
+        Random random = new Random(6005);
+        for (int i = 0; i < 5000; i++) {
+            String source = "vertex-" + random.nextInt(400);
+            String target = "vertex-" + random.nextInt(400);
+            if (random.nextInt(40) == 0) {
+                assertEquals(reference.remove(source), graph.remove(source));
+            } else {
+                int weight = random.nextInt(4);
+                assertEquals(reference.set(source, target, weight),
+                        graph.set(source, target, weight));
+            }
+        }
+        graph.close();
+        
+        MappedGraph reopened = open(directory);
+        assertEquals(reference.vertices(), reopened.vertices());
+        for (String vertex : reference.vertices()) {
+            assertEquals(reference.targets(vertex), reopened.targets(vertex));
+            assertEquals(reference.sources(vertex), reopened.sources(vertex));
+        }
+    }
+    
+    @Test
+    public void testGrowthAfterReopenKeepsFiles() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedGraph graph = open(directory);
+        graph.add("first");
+        graph.close();
+        
+        MappedGraph reopened = open(directory);
+        for (int i = 0; i < 1000; i++) {
+            reopened.add("vertex-" + i);
+        }
+        assertTrue(reopened.vertices().contains("first"));
+        assertTrue(reopened.vertices().contains("vertex-999"));
+        assertEquals(1001, reopened.vertices().size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.of("vertices.dat", "edges.dat", "labels.dat", "index.dat"),
+                    files.map(file -> file.getFileName().toString()).collect(Collectors.toSet()));
+        }
+    }
+    
+    @Test
+    public void testOpenFailsPartWay() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        // A directory where the edge file belongs cannot be mapped, after
+        // the vertex file has been
+        Files.createDirectory(directory.resolve("edges.dat"));
+        try {
+            open(directory);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertEquals(0, expected.getSuppressed().length);
+        }
+        MappedGraph graph = open(folder.newFolder().toPath());
+        graph.set("A", "B", 1);
+        assertEquals(Map.of("B", 1), graph.targets("A"));
+    }
+    
+    @Test(expected = IOException.class)
+    public void testOpenForeignDirectory() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Files.write(directory.resolve("vertices.dat"), new byte[] { 1, 2, 3, 4 });
+        open(directory);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testClosedGraphUnusable() throws IOException {
+        MappedGraph graph = open(folder.newFolder().toPath());
+        graph.add("A");
+        graph.close();
+        graph.close();
+        graph.targets("A");
+    }
+}
@@ -0,0 +1,240 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests for PageRank.
+ */
+public class PageRankTest {
+
+    // Testing strategy
+    //   graph: empty, one vertex, cycle, star, dangling vertices, self-loops,
+    //          unequal weights, large random graph
+    //   run(): defaults; damping 0; iteration cap reached or not; tolerance;
+    //          one thread and many give the same ranks; damping, tolerance,
+    //          maxIterations or pool invalid
+    //   Ranks: rank() of a vertex and a non-vertex, ranks sum to 1, asMap(),
+    //          top() with k 0, less than and more than the vertex count, ties
+
+    private static final double EPSILON = 1e-9;
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * @return ranks of graph by straightforward power iteration over maps
+     */
+    private static Map<String, Double> reference(Graph<String> graph, double damping,
+            int iterations) {
+        int n = graph.vertices().size();
+        Map<String, Double> rank = new HashMap<>();
+        for (String v : graph.vertices()) {
+            rank.put(v, 1.0 / n);
+        }
+        for (int i = 0; i < iterations; i++) {
+            Map<String, Double> next = new HashMap<>();
+            double dangling = 0;
+            for (String v : graph.vertices()) {
+                next.put(v, 0.0);
+                if (graph.targets(v).isEmpty()) {
+                    dangling += rank.get(v);
+                }
+            }
+            for (String u : graph.vertices()) {
+                Map<String, Integer> targets = graph.targets(u);
+                long total = 0;
+                for (int weight : targets.values()) {
+                    total += weight;
+                }
+                for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                    next.merge(edge.getKey(), rank.get(u) * edge.getValue() / total, Double::sum);
+                }
+            }
+            for (String v : graph.vertices()) {
+                next.put(v, (1 - damping) / n + damping * (next.get(v) + dangling / n));
+            }
+            rank = next;
+        }
+        return rank;
+    }
+
+    private static double total(PageRank.Ranks<String> ranks) {
+        return ranks.asMap().values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullGraph() {
+        new PageRank<String>(null);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        PageRank<String> pageRank = new PageRank<>(Graph.empty());
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (Runnable bad : List.<Runnable>of(
+                () -> pageRank.run(1, 0, 10, pool),
+                () -> pageRank.run(-0.1, 0, 10, pool),
+                () -> pageRank.run(Double.NaN, 0, 10, pool),
+                () -> pageRank.run(0.85, -1, 10, pool),
+                () -> pageRank.run(0.85, 0, 0, pool),
+                () -> pageRank.run(0.85, 0, 10, null))) {
+            try {
+                bad.run();
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        PageRank.Ranks<String> ranks = new PageRank<>(Graph.<String>empty()).run();
+        assertEquals(Map.of(), ranks.asMap());
+        assertEquals(List.of(), ranks.top(3));
+        assertEquals(0.0, ranks.rank("a"), 0);
+        assertTrue(ranks.converged());
+    }
+
+    @Test
+    public void testOneVertex() {
+        Graph<String> graph = Graph.empty();
+        graph.add("a");
+        PageRank.Ranks<String> ranks = new PageRank<>(graph).run();
+        assertEquals(1.0, ranks.rank("a"), EPSILON);
+        assertEquals(0.0, ranks.rank("b"), 0);
+        assertTrue(ranks.converged());
+    }
+
+    @Test
+    public void testCycle() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 3);
+        graph.set("b", "c", 1);
+        graph.set("c", "a", 7);
+        PageRank.Ranks<String> ranks = new PageRank<>(graph).run();
+        for (String v : List.of("a", "b", "c")) {
+            assertEquals(1.0 / 3, ranks.rank(v), EPSILON);
+        }
+        assertEquals(List.of("a", "b"), ranks.top(2));
+    }
+
+    @Test
+    public void testStarWithDangling() {
+        Graph<String> graph = Graph.empty();
+        for (String leaf : List.of("a", "b", "c", "d")) {
+            graph.set(leaf, "hub", 1);
+        }
+        graph.add("lonely");
+        PageRank.Ranks<String> ranks = new PageRank<>(graph).run();
+        assertEquals(1.0, total(ranks), EPSILON);
+        assertEquals("hub", ranks.top(1).get(0));
+        assertEquals(ranks.rank("a"), ranks.rank("lonely"), EPSILON);
+        assertEquals(List.of("hub", "a", "b", "c", "d", "lonely"), ranks.top(10));
+        assertEquals(List.of(), ranks.top(0));
+        Map<String, Double> expected = reference(graph, PageRank.DEFAULT_DAMPING, ranks.iterations());
+        for (String v : graph.vertices()) {
+            assertEquals(expected.get(v), ranks.rank(v), EPSILON);
+        }
+    }
+
+    @Test
+    public void testWeights() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 9);
+        graph.set("a", "c", 1);
+        graph.set("b", "a", 1);
+        graph.set("c", "a", 1);
+        graph.set("d", "d", 2);
+        graph.set("d", "a", 1);
+        PageRank.Ranks<String> ranks = new PageRank<>(graph).run();
+        assertTrue(ranks.rank("b") > 2 * ranks.rank("c"));
+        Map<String, Double> expected = reference(graph, PageRank.DEFAULT_DAMPING, ranks.iterations());
+        for (String v : graph.vertices()) {
+            assertEquals(expected.get(v), ranks.rank(v), EPSILON);
+        }
+        assertEquals(1.0, total(ranks), EPSILON);
+    }
+
+    @Test
+    public void testNoDamping() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 1);
+        graph.set("a", "a", 2);
+        // Always jumping, so every vertex ranks the same after one iteration
+        PageRank.Ranks<String> ranks = new PageRank<>(graph).run(0, 0, 5,
+                ForkJoinPool.commonPool());
+        assertEquals(0.5, ranks.rank("a"), EPSILON);
+        assertEquals(0.5, ranks.rank("b"), EPSILON);
+        assertEquals(1, ranks.iterations());
+        assertTrue(ranks.converged());
+    }
+
+    @Test
+    public void testIterationCap() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("c", "a", 1);
+        graph.set("a", "c", 5);
+        PageRank<String> pageRank = new PageRank<>(graph);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        PageRank.Ranks<String> capped = pageRank.run(0.85, 0, 2, pool);
+        assertEquals(2, capped.iterations());
+        assertFalse(capped.converged());
+        assertTrue(capped.change() > 0);
+        Map<String, Double> expected = reference(graph, 0.85, 2);
+        assertEquals(expected.get("c"), capped.rank("c"), EPSILON);
+
+        PageRank.Ranks<String> loose = pageRank.run(0.85, 0.1, 100, pool);
+        assertTrue(loose.converged());
+        assertTrue(loose.change() <= 0.1);
+        assertTrue(loose.iterations() < pageRank.run().iterations());
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        Random random = new Random(6005);
+        Graph<String> graph = new ConcreteEdgesGraph();
+        GraphLoader<String> loader = new GraphLoader<>();
+        int n = 5000;
+        for (int i = 0; i < 200000; i++) {
+            // Skewed targets, so that in-degrees are uneven
+            int target = (int) (n * Math.pow(random.nextDouble(), 3));
+            loader.add("v" + random.nextInt(n), "v" + target, 1 + random.nextInt(5));
+        }
+        for (int i = 0; i < 100; i++) {
+            loader.add("dangling" + i);
+        }
+        FrozenGraph<String> frozen = FrozenGraph.of(loader.commit(graph));
+        PageRank<String> pageRank = new PageRank<>(frozen);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(8);
+        try {
+            PageRank.Ranks<String> sequential = pageRank.run(0.85, 1e-10, 200, one);
+            PageRank.Ranks<String> parallel = pageRank.run(0.85, 1e-10, 200, many);
+            assertTrue(sequential.converged());
+            assertEquals(sequential.iterations(), parallel.iterations());
+            assertEquals(sequential.asMap(), parallel.asMap());
+            assertEquals(1.0, total(parallel), 1e-6);
+            assertEquals("v0", parallel.top(1).get(0));
+        } finally {
+            one.shutdown();
+            many.shutdown();
+        }
+    }
+}
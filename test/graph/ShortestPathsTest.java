@@ -0,0 +1,329 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.ShortestPaths.Workspace;
+
+/**
+ * Tests for ShortestPaths and the IndexedHeap it uses.
+ */
+public class ShortestPathsTest {
+
+    // Testing strategy
+    //   constructor: Graph, FrozenGraph, IntGraph; null graph or transform
+    //   transforms: WEIGHT, INVERSE_WEIGHT (heaviest path is shortest),
+    //               infinite cost skips the edge, negative or NaN cost throws
+    //   distance(), path(): source == target, adjacent, several hops, ties,
+    //                       unreachable, labels not in the graph, bad IDs
+    //   search(): distances and parents; Workspace accessors before a
+    //             search, after a bidirectional query, bad IDs
+    //   randomized: bidirectional distance equals single-source distance and
+    //               Floyd-Warshall's, paths are real and that long; one
+    //               workspace reused for many queries
+    //   IntGraph: queries see later mutations; workspace grows with the graph
+    //   IndexedHeap: offer, decrease-key, poll in key order, clear, grow
+
+    private static final double EPSILON = 1e-9;
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static Graph<String> diamond() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "d", 1);
+        graph.set("a", "c", 5);
+        graph.set("c", "d", 5);
+        graph.set("d", "e", 2);
+        graph.add("lonely");
+        return graph;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullGraph() {
+        new ShortestPaths<String>((Graph<String>) null, ShortestPaths.WEIGHT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullTransform() {
+        new ShortestPaths<>(diamond(), null);
+    }
+
+    @Test
+    public void testWeight() {
+        ShortestPaths<String> paths = new ShortestPaths<>(diamond(), ShortestPaths.WEIGHT);
+        assertEquals(List.of("a", "b", "d", "e"), paths.path("a", "e"));
+        assertEquals(4.0, paths.distance("a", "e"), 0);
+        assertEquals(List.of("a", "b"), paths.path("a", "b"));
+        assertEquals(List.of("c"), paths.path("c", "c"));
+        assertEquals(0.0, paths.distance("c", "c"), 0);
+        assertEquals(Map.of("a", 0.0, "b", 1.0, "c", 5.0, "d", 2.0, "e", 4.0),
+                paths.distances("a"));
+    }
+
+    @Test
+    public void testInverseWeight() {
+        ShortestPaths<String> paths = new ShortestPaths<>(diamond(), ShortestPaths.INVERSE_WEIGHT);
+        assertEquals(List.of("a", "c", "d", "e"), paths.path("a", "e"));
+        assertEquals(0.2 + 0.2 + 0.5, paths.distance("a", "e"), EPSILON);
+    }
+
+    @Test
+    public void testUnreachable() {
+        ShortestPaths<String> paths = new ShortestPaths<>(diamond(), ShortestPaths.WEIGHT);
+        assertEquals(List.of(), paths.path("e", "a"));
+        assertEquals(Double.POSITIVE_INFINITY, paths.distance("e", "a"), 0);
+        assertEquals(List.of(), paths.path("a", "lonely"));
+        assertEquals(List.of(), paths.path("a", "missing"));
+        assertEquals(List.of(), paths.path("missing", "a"));
+        assertEquals(Double.POSITIVE_INFINITY, paths.distance("missing", "missing"), 0);
+        assertEquals(Map.of("lonely", 0.0), paths.distances("lonely"));
+        assertEquals(Map.of(), paths.distances("missing"));
+    }
+
+    @Test
+    public void testInfiniteCostSkipsEdge() {
+        ShortestPaths<String> paths = new ShortestPaths<>(diamond(),
+                weight -> weight == 1 ? Double.POSITIVE_INFINITY : weight);
+        assertEquals(List.of("a", "c", "d", "e"), paths.path("a", "e"));
+        assertEquals(Double.POSITIVE_INFINITY, paths.distance("a", "b"), 0);
+        assertFalse(paths.distances("a").containsKey("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCost() {
+        new ShortestPaths<>(diamond(), weight -> -weight).distance("a", "e");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNCost() {
+        new ShortestPaths<>(diamond(), weight -> Double.NaN).distances("a");
+    }
+
+    @Test
+    public void testTies() {
+        Graph<String> graph = Graph.empty();
+        graph.set("s", "x", 1);
+        graph.set("s", "y", 1);
+        graph.set("x", "t", 1);
+        graph.set("y", "t", 1);
+        ShortestPaths<String> paths = new ShortestPaths<>(graph, ShortestPaths.WEIGHT);
+        List<String> path = paths.path("s", "t");
+        assertEquals(3, path.size());
+        assertTrue(path.equals(List.of("s", "x", "t")) || path.equals(List.of("s", "y", "t")));
+    }
+
+    @Test
+    public void testSearchAndWorkspace() {
+        FrozenGraph<String> frozen = FrozenGraph.of(diamond());
+        ShortestPaths<String> paths = new ShortestPaths<>(frozen, ShortestPaths.WEIGHT);
+        Workspace ws = paths.newWorkspace();
+        try {
+            ws.distance(0);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // no search yet
+        }
+        assertEquals(0, ws.pathSize());
+
+        int a = paths.id("a");
+        int d = paths.id("d");
+        paths.search(a, ws);
+        assertEquals(2.0, ws.distance(d), 0);
+        assertEquals("b", paths.label(ws.parent(d)));
+        assertEquals(-1, ws.parent(a));
+        assertEquals(Double.POSITIVE_INFINITY, ws.distance(paths.id("lonely")), 0);
+        assertEquals(-1, ws.parent(paths.id("lonely")));
+
+        assertEquals(2.0, paths.distance(a, d, ws), 0);
+        assertEquals(3, ws.pathSize());
+        assertEquals(a, ws.pathVertex(0));
+        assertEquals("b", paths.label(ws.pathVertex(1)));
+        assertEquals(d, ws.pathVertex(2));
+        try {
+            ws.pathVertex(3);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // past the end of the path
+        }
+        try {
+            ws.parent(d);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // last query was not a search
+        }
+        assertEquals(-1, paths.id("missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadId() {
+        ShortestPaths<String> paths = new ShortestPaths<>(diamond(), ShortestPaths.WEIGHT);
+        paths.distance(0, 6, paths.newWorkspace());
+    }
+
+    /**
+     * @return dist[s][t] for every pair of vertex IDs of graph, by
+     *         Floyd-Warshall
+     */
+    private static double[][] allPairs(FrozenGraph<String> graph) {
+        int n = graph.vertexCount();
+        double[][] dist = new double[n][n];
+        for (int s = 0; s < n; s++) {
+            Arrays.fill(dist[s], Double.POSITIVE_INFINITY);
+            dist[s][s] = 0;
+            for (int i = graph.outStart(s); i < graph.outEnd(s); i++) {
+                int t = graph.outNeighbour(i);
+                dist[s][t] = Math.min(dist[s][t], s == t ? 0 : graph.outWeight(i));
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    dist[s][t] = Math.min(dist[s][t], dist[s][k] + dist[k][t]);
+                }
+            }
+        }
+        return dist;
+    }
+
+    @Test
+    public void testRandomized() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 5 + random.nextInt(60);
+            Graph<String> graph = Graph.empty();
+            for (int v = 0; v < n; v++) {
+                graph.add("v" + v);
+            }
+            int edges = random.nextInt(4 * n);
+            for (int i = 0; i < edges; i++) {
+                graph.set("v" + random.nextInt(n), "v" + random.nextInt(n), 1 + random.nextInt(20));
+            }
+            FrozenGraph<String> frozen = FrozenGraph.of(graph);
+            double[][] expected = allPairs(frozen);
+            ShortestPaths<String> paths = new ShortestPaths<>(frozen, ShortestPaths.WEIGHT);
+            Workspace search = paths.newWorkspace();
+            Workspace query = paths.newWorkspace();
+            for (int s = 0; s < n; s++) {
+                paths.search(s, search);
+                for (int t = 0; t < n; t++) {
+                    assertEquals(expected[s][t], search.distance(t), 0);
+                    double distance = paths.distance(s, t, query);
+                    assertEquals(expected[s][t], distance, 0);
+                    if (distance == Double.POSITIVE_INFINITY) {
+                        assertEquals(0, query.pathSize());
+                        continue;
+                    }
+                    assertEquals(s, query.pathVertex(0));
+                    assertEquals(t, query.pathVertex(query.pathSize() - 1));
+                    double length = 0;
+                    for (int i = 1; i < query.pathSize(); i++) {
+                        int weight = frozen.weight(query.pathVertex(i - 1), query.pathVertex(i));
+                        assertTrue("path uses a missing edge", weight > 0);
+                        length += weight;
+                    }
+                    assertEquals(distance, length, 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIntGraph() {
+        IntGraph<String> graph = new IntGraph<>();
+        int a = graph.intern("a");
+        int b = graph.intern("b");
+        int c = graph.intern("c");
+        graph.set(a, b, 3);
+        graph.set(b, c, 3);
+        graph.set(a, c, 10);
+        ShortestPaths<String> paths = new ShortestPaths<>(graph, ShortestPaths.WEIGHT);
+        Workspace ws = paths.newWorkspace();
+        assertEquals(6.0, paths.distance(a, c, ws), 0);
+        assertEquals(List.of("a", "b", "c"), paths.path("a", "c"));
+
+        graph.remove(b);
+        assertEquals(10.0, paths.distance(a, c, ws), 0);
+        try {
+            paths.distance(a, b, ws);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // b was removed
+        }
+
+        for (int i = 0; i < 100; i++) {
+            graph.intern("x" + i);
+        }
+        int previous = c;
+        for (int i = 0; i < 100; i++) {
+            int next = graph.id("x" + i);
+            graph.set(previous, next, 1);
+            previous = next;
+        }
+        assertEquals(110.0, paths.distance(a, previous, ws), 0);
+        assertEquals(102, ws.pathSize());
+        paths.search(a, ws);
+        assertEquals(110.0, ws.distance(previous), 0);
+        Map<String, Double> distances = paths.distances("a");
+        assertEquals(102, distances.size());
+        assertEquals(10.0, distances.get("c"), 0);
+        assertFalse(distances.containsKey("b"));
+    }
+
+    @Test
+    public void testIndexedHeap() {
+        IndexedHeap heap = new IndexedHeap(4);
+        assertTrue(heap.isEmpty());
+        assertTrue(heap.offer(2, 5.0));
+        assertTrue(heap.offer(0, 3.0));
+        assertTrue(heap.offer(3, 4.0));
+        assertFalse(heap.offer(2, 6.0));
+        assertTrue(heap.offer(2, 1.0));
+        assertTrue(heap.contains(2));
+        assertFalse(heap.contains(1));
+        assertEquals(3, heap.size());
+        assertEquals(1.0, heap.minKey(), 0);
+        assertEquals(2, heap.poll());
+        assertFalse(heap.contains(2));
+        assertEquals(0, heap.poll());
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(3));
+
+        heap.ensureCapacity(1000);
+        assertEquals(1000, heap.capacity());
+        Random random = new Random(6005);
+        double[] best = new double[1000];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < 5000; i++) {
+            int item = random.nextInt(1000);
+            double key = random.nextInt(100000);
+            heap.offer(item, key);
+            best[item] = Math.min(best[item], key);
+        }
+        double previous = Double.NEGATIVE_INFINITY;
+        int polled = 0;
+        while (!heap.isEmpty()) {
+            double key = heap.minKey();
+            int item = heap.poll();
+            assertEquals(best[item], key, 0);
+            assertTrue(key >= previous);
+            previous = key;
+            polled++;
+        }
+        assertEquals(Arrays.stream(best).filter(key -> key < Double.POSITIVE_INFINITY).count(),
+                polled);
+    }
+}
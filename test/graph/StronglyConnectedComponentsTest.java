@@ -0,0 +1,177 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for StronglyConnectedComponents.
+ */
+public class StronglyConnectedComponentsTest {
+
+    // Testing strategy
+    //   graph: empty, one vertex, self-loop, isolated vertices, one cycle,
+    //          cycles joined by edges, chain of 10^6 vertices, random graphs
+    //   component(): vertex, non-vertex; numbered in topological order
+    //   members(), componentOf(): sizes, contains(), bad component number
+    //   condensation(): no edges inside components, weights of parallel
+    //                   edges between components add up, acyclic
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullGraph() {
+        new StronglyConnectedComponents<String>(null);
+    }
+
+    @Test
+    public void testEmpty() {
+        StronglyConnectedComponents<String> sccs = new StronglyConnectedComponents<>(Graph.empty());
+        assertEquals(0, sccs.componentCount());
+        assertEquals(-1, sccs.component("a"));
+        assertEquals(Set.of(), sccs.componentOf("a"));
+        assertEquals(Set.of(), sccs.condensation().vertices());
+    }
+
+    @Test
+    public void testSingletons() {
+        Graph<String> graph = Graph.empty();
+        graph.add("a");
+        graph.set("b", "b", 4);
+        StronglyConnectedComponents<String> sccs = new StronglyConnectedComponents<>(graph);
+        assertEquals(2, sccs.componentCount());
+        assertEquals(Set.of("b"), sccs.componentOf("b"));
+        assertEquals(Set.of("a"), sccs.componentOf("a"));
+        Graph<Integer> condensation = sccs.condensation();
+        assertEquals(Set.of(0, 1), condensation.vertices());
+        assertEquals(Map.of(), condensation.targets(sccs.component("b")));
+    }
+
+    @Test
+    public void testCyclesJoined() {
+        Graph<String> graph = Graph.empty();
+        // {a, b, c} -> {d, e} -> {f}, and {a, b, c} -> {f}
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("c", "a", 1);
+        graph.set("c", "d", 2);
+        graph.set("b", "e", 3);
+        graph.set("d", "e", 1);
+        graph.set("e", "d", 1);
+        graph.set("e", "f", 5);
+        graph.set("a", "f", 7);
+        StronglyConnectedComponents<String> sccs = new StronglyConnectedComponents<>(graph);
+        assertEquals(3, sccs.componentCount());
+        assertEquals(0, sccs.component("a"));
+        assertEquals(1, sccs.component("d"));
+        assertEquals(2, sccs.component("f"));
+        assertEquals(-1, sccs.component("missing"));
+        assertEquals(Set.of("a", "b", "c"), sccs.members(0));
+        assertEquals(Set.of("d", "e"), sccs.componentOf("e"));
+        assertTrue(sccs.members(1).contains("d"));
+        assertFalse(sccs.members(1).contains("a"));
+        assertFalse(sccs.members(1).contains("missing"));
+        assertEquals(2, sccs.members(1).size());
+
+        Graph<Integer> condensation = sccs.condensation();
+        assertEquals(Set.of(0, 1, 2), condensation.vertices());
+        assertEquals(Map.of(1, 5, 2, 7), condensation.targets(0));
+        assertEquals(Map.of(2, 5), condensation.targets(1));
+        assertEquals(Map.of(), condensation.targets(2));
+        assertTrue(sccs.toString().startsWith("3 strongly connected components"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadComponent() {
+        Graph<String> graph = Graph.empty();
+        graph.add("a");
+        new StronglyConnectedComponents<>(graph).members(1);
+    }
+
+    @Test
+    public void testLongChain() {
+        // Recursive Tarjan overflows the default stack long before this
+        int n = 1_000_000;
+        GraphLoader<Integer> loader = new GraphLoader<>();
+        for (int v = 0; v + 1 < n; v++) {
+            loader.add(v, v + 1, 1);
+        }
+        loader.add(n - 1, n / 2, 1); // the second half is one cycle
+        Graph<Integer> chain = loader.commit(new IntGraph<Integer>().asGraph());
+        StronglyConnectedComponents<Integer> sccs = new StronglyConnectedComponents<>(chain);
+        assertEquals(n / 2 + 1, sccs.componentCount());
+        assertEquals(0, sccs.component(0));
+        assertEquals(n / 2 - 1, sccs.component(n / 2 - 1));
+        assertEquals(n / 2, sccs.component(n - 1));
+        assertEquals(n / 2, sccs.componentOf(n / 2).size());
+        assertEquals(Map.of(n / 2, 1), sccs.condensation().targets(n / 2 - 1));
+    }
+
+    /**
+     * @return reach[s] = set of vertices reachable from s, including s
+     */
+    private static List<Set<Integer>> reachability(Graph<Integer> graph, int n) {
+        List<Set<Integer>> reach = new ArrayList<>();
+        for (int s = 0; s < n; s++) {
+            Set<Integer> seen = new HashSet<>(List.of(s));
+            List<Integer> frontier = new ArrayList<>(List.of(s));
+            while (!frontier.isEmpty()) {
+                int v = frontier.remove(frontier.size() - 1);
+                for (int t : graph.targets(v).keySet()) {
+                    if (seen.add(t)) {
+                        frontier.add(t);
+                    }
+                }
+            }
+            reach.add(seen);
+        }
+        return reach;
+    }
+
+    @Test
+    public void testRandomized() {
+        Random random = new Random(6005);
+        for (int trial = 0; trial < 30; trial++) {
+            int n = 1 + random.nextInt(40);
+            Graph<Integer> graph = new IntGraph<Integer>().asGraph();
+            for (int v = 0; v < n; v++) {
+                graph.add(v);
+            }
+            int edges = random.nextInt(2 * n);
+            for (int i = 0; i < edges; i++) {
+                graph.set(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(3));
+            }
+            List<Set<Integer>> reach = reachability(graph, n);
+            StronglyConnectedComponents<Integer> sccs = new StronglyConnectedComponents<>(graph);
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    boolean mutual = reach.get(s).contains(t) && reach.get(t).contains(s);
+                    assertEquals(mutual, sccs.component(s) == sccs.component(t));
+                    if (reach.get(s).contains(t)) {
+                        assertTrue(sccs.component(s) <= sccs.component(t));
+                    }
+                }
+            }
+            Graph<Integer> condensation = sccs.condensation();
+            assertEquals(sccs.componentCount(), condensation.vertices().size());
+            for (int c : condensation.vertices()) {
+                for (int d : condensation.targets(c).keySet()) {
+                    assertTrue("condensation must be acyclic", c < d);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * Tests for VersionedGraph.
+ *
+ * This class runs the GraphInstanceTest tests against VersionedGraph, as well
+ * as tests for that particular implementation and its PersistentMap rep.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class VersionedGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a VersionedGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new VersionedGraph<>();
+    }
+
+    /*
+     * Testing VersionedGraph...
+     */
+
+    // Testing strategy
+    //   snapshot(): of empty graph, taken before and after add, set, remove;
+    //               later mutations do not change it; its mutators throw
+    //   version(): increases once per effective mutation or update, not for
+    //              mutations that change nothing
+    //   update(): several mutations published together; draft unusable after;
+    //             records a graph.MutationBatch event with its counts
+    //   concurrency: a writer adds edges in pairs with update() while a reader
+    //                takes snapshots; every snapshot holds whole pairs
+    //   PersistentMap: random plus and minus against HashMap, including keys
+    //                  with colliding hash codes; older maps are unchanged
+
+    @Test
+    public void testSnapshotUnchangedByLaterMutations() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        Graph<String> empty = graph.snapshot();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        Graph<String> before = graph.snapshot();
+
+        graph.set("A", "B", 5);
+        graph.remove("C");
+        graph.add("D");
+
+        assertEquals(Set.of(), empty.vertices());
+        assertEquals(Set.of("A", "B", "C"), before.vertices());
+        assertEquals(Map.of("B", 1), before.targets("A"));
+        assertEquals(Map.of("B", 2), before.sources("C"));
+        assertEquals(Set.of("A", "B", "D"), graph.vertices());
+        assertEquals(Map.of("B", 5), graph.targets("A"));
+        assertEquals(Map.of(), graph.targets("B"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotImmutable() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.snapshot().add("A");
+    }
+
+    @Test
+    public void testVersionCountsEffectiveChanges() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        assertEquals(0, graph.version());
+        graph.add("A");
+        assertEquals(1, graph.version());
+        graph.add("A");
+        graph.remove("Z");
+        assertEquals(1, graph.version());
+        graph.update(g -> {
+            g.set("A", "B", 1);
+            g.set("B", "C", 1);
+        });
+        assertEquals(2, graph.version());
+        assertEquals(Set.of("A", "B", "C"), graph.vertices());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDraftUnusableAfterUpdate() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        AtomicReference<Graph<String>> draft = new AtomicReference<>();
+        graph.update(draft::set);
+        draft.get().add("A");
+    }
+
+    @Test(timeout = 60000)
+    public void testReadersSeeWholeUpdates() throws InterruptedException {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                final int n = i;
+                graph.update(g -> {
+                    g.set("left", "v" + n, n + 1);
+                    g.set("v" + n, "right", n + 1);
+                });
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (writer.isAlive()) {
+                    Graph<String> snapshot = graph.snapshot();
+                    assertEquals(snapshot.targets("left").keySet(),
+                            snapshot.sources("right").keySet());
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        if (failure.get() != null) {
+            throw new AssertionError("reader saw a partial update", failure.get());
+        }
+        assertEquals(2000, graph.targets("left").size());
+        assertEquals(2000, graph.version());
+    }
+
+    @Test
+    public void testPersistentMapMatchesHashMap() {
+        Random random = new Random(6005);
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        Map<String, Integer> reference = new HashMap<>();
+        // "Aa" and "BB" have equal hash codes, so keys built from them collide
+        String[] parts = { "Aa", "BB" };
+        for (int i = 0; i < 20000; i++) {
+            String key = parts[random.nextInt(2)] + parts[random.nextInt(2)] + random.nextInt(300);
+            PersistentMap<String, Integer> before = map;
+            Map<String, Integer> beforeReference = new HashMap<>(reference);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                reference.remove(key);
+            } else {
+                map = map.plus(key, i);
+                reference.put(key, i);
+            }
+            assertEquals(reference.size(), map.size());
+            assertEquals(reference.get(key), map.get(key));
+            if (i % 1000 == 0) {
+                assertEquals(reference, map);
+                assertEquals("older map unchanged", beforeReference, before);
+            }
+        }
+        assertEquals(reference, map);
+        assertEquals(reference.keySet(), map.keySet());
+    }
+
+    @Test
+    public void testUpdateEvent() throws IOException {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.add("a");
+        List<RecordedEvent> events = EventRecorder.record("graph.MutationBatch", () -> graph.update(draft -> {
+            draft.set("a", "b", 1);
+            draft.set("b", "c", 2);
+            draft.remove("a");
+        }));
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("VersionedGraph.update", event.getString("operation"));
+        assertEquals(3, event.getLong("mutations"));
+        assertEquals(2, event.getInt("vertices"));
+    }
+}
@@ -0,0 +1,199 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import poet.GraphPoet.Eviction;
+
+/**
+ * Tests for BridgeCache.
+ */
+public class BridgeCacheTest {
+
+    // Testing strategy
+    //   eviction: LRU, W_TINY_LFU
+    //   maximumSize: 1, small (one segment), large (several segments);
+    //                0, negative; null eviction
+    //   get(): absent pair, pair with a bridge, pair cached as having none;
+    //          pair reversed
+    //   put(): new pair, pair already cached; cache full
+    //   clear(): empties, keeps counters, sets version
+    //   stats(): hits, misses, evictions, size after each operation
+    //   concurrency: several threads getting and putting overlapping pairs
+
+    @Test
+    public void testGetPut() {
+        for (Eviction eviction : Eviction.values()) {
+            BridgeCache cache = new BridgeCache(10, eviction, 3);
+            assertEquals(3, cache.version());
+            assertNull(cache.get("a", "b"));
+            cache.put("a", "b", "x");
+            cache.put("b", "a", null);
+            assertEquals(Optional.of("x"), cache.get("a", "b"));
+            assertEquals(Optional.empty(), cache.get("b", "a"));
+            assertNull(cache.get("a", "c"));
+            GraphPoet.CacheStats stats = cache.stats();
+            assertEquals(2, stats.hits());
+            assertEquals(2, stats.misses());
+            assertEquals(0, stats.evictions());
+            assertEquals(2, stats.size());
+            assertEquals(10, stats.maximumSize());
+            assertEquals(eviction, stats.eviction());
+        }
+    }
+
+    @Test
+    public void testPutAgainReplaces() {
+        for (Eviction eviction : Eviction.values()) {
+            BridgeCache cache = new BridgeCache(4, eviction, 0);
+            cache.put("a", "b", "x");
+            cache.put("a", "b", "y");
+            assertEquals(Optional.of("y"), cache.get("a", "b"));
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        BridgeCache cache = new BridgeCache(2, Eviction.LRU, 0);
+        cache.put("a", "b", "x");
+        cache.put("c", "d", "y");
+        cache.get("a", "b");
+        cache.put("e", "f", "z");
+        assertEquals(Optional.of("x"), cache.get("a", "b"));
+        assertNull(cache.get("c", "d"));
+        assertEquals(Optional.of("z"), cache.get("e", "f"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void testSizeOne() {
+        for (Eviction eviction : Eviction.values()) {
+            BridgeCache cache = new BridgeCache(1, eviction, 0);
+            cache.put("a", "b", "x");
+            cache.put("c", "d", "y");
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.stats().evictions());
+        }
+    }
+
+    @Test
+    public void testBounded() {
+        for (Eviction eviction : Eviction.values()) {
+            for (int maximumSize : new int[] { 3, 100, 1000 }) {
+                BridgeCache cache = new BridgeCache(maximumSize, eviction, 0);
+                for (int i = 0; i < 5000; i++) {
+                    String from = "w" + (i % 1777);
+                    if (cache.get(from, "v") == null) {
+                        cache.put(from, "v", "b");
+                    }
+                    assertTrue(cache.size() <= maximumSize);
+                }
+                GraphPoet.CacheStats stats = cache.stats();
+                assertEquals(5000, stats.hits() + stats.misses());
+                assertEquals(stats.misses() - stats.size(), stats.evictions());
+            }
+        }
+    }
+
+    @Test
+    public void testTinyLfuKeepsFrequentPairs() {
+        BridgeCache cache = new BridgeCache(100, Eviction.W_TINY_LFU, 0);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.get("hot" + i, "v") == null) {
+                    cache.put("hot" + i, "v", "b");
+                }
+            }
+        }
+        // A scan of one-off pairs larger than the cache
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold" + i, "v", "b");
+        }
+        int kept = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i, "v") != null) {
+                kept++;
+            }
+        }
+        assertTrue("only " + kept + " frequent pairs kept", kept >= 40);
+
+        BridgeCache lru = new BridgeCache(100, Eviction.LRU, 0);
+        for (int i = 0; i < 50; i++) {
+            lru.put("hot" + i, "v", "b");
+        }
+        for (int i = 0; i < 1000; i++) {
+            lru.put("cold" + i, "v", "b");
+        }
+        assertNull(lru.get("hot0", "v"));
+    }
+
+    @Test
+    public void testClear() {
+        for (Eviction eviction : Eviction.values()) {
+            BridgeCache cache = new BridgeCache(10, eviction, 0);
+            cache.put("a", "b", "x");
+            cache.get("a", "b");
+            cache.clear(5);
+            assertEquals(5, cache.version());
+            assertEquals(0, cache.size());
+            assertNull(cache.get("a", "b"));
+            assertEquals(1, cache.stats().hits());
+            assertEquals(1, cache.stats().misses());
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException, ExecutionException {
+        for (Eviction eviction : Eviction.values()) {
+            BridgeCache cache = new BridgeCache(64, eviction, 0);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int seed = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 20000; i++) {
+                            int n = (i * 31 + seed * 7) % 200;
+                            Optional<String> cached = cache.get("w" + n, "v");
+                            if (cached == null) {
+                                cache.put("w" + n, "v", "b" + n);
+                            } else {
+                                assertEquals(Optional.of("b" + n), cached);
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertTrue(cache.size() <= 64);
+            assertEquals(80000, cache.stats().hits() + cache.stats().misses());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSize() {
+        new BridgeCache(0, Eviction.LRU, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullEviction() {
+        new BridgeCache(10, null, 0);
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for BridgeIndex.
+ */
+public class BridgeIndexTest {
+
+    // Testing strategy
+    //   graph: empty, pairs with no bridge, one bridge, several bridges of
+    //          different and equal weight, self-loop bridges
+    //   minWeight: at most 2 (every pair), above some best weights
+    //   maxEntries: 0, fewer than the pairs (heaviest kept, ties to least
+    //               pairs), more than the pairs; negative
+    //   exhaustive(): true only if no pair was left out
+    //   version(): as given
+
+    private static Graph<String> graph() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "x", 1);
+        graph.set("x", "b", 1);
+        graph.set("a", "y", 2);
+        graph.set("y", "b", 2);
+        graph.set("a", "k", 1);
+        graph.set("k", "c", 1);
+        graph.set("a", "j", 1);
+        graph.set("j", "c", 1);
+        graph.set("c", "c", 5);
+        return graph;
+    }
+
+    @Test
+    public void testEmpty() {
+        BridgeIndex index = BridgeIndex.build(Graph.empty(), 2, 10, 7);
+        assertEquals(0, index.size());
+        assertTrue(index.exhaustive());
+        assertEquals(7, index.version());
+        assertNull(index.bridge("a", "b"));
+    }
+
+    @Test
+    public void testEveryPair() {
+        BridgeIndex index = BridgeIndex.build(graph(), 2, 100, 0);
+        assertTrue(index.exhaustive());
+        assertEquals("y", index.bridge("a", "b"));
+        assertEquals("j", index.bridge("a", "c"));
+        assertEquals("c", index.bridge("c", "c"));
+        assertEquals("c", index.bridge("k", "c"));
+        assertNull(index.bridge("a", "x"));
+        assertNull(index.bridge("b", "a"));
+    }
+
+    @Test
+    public void testMinWeight() {
+        BridgeIndex index = BridgeIndex.build(graph(), 4, 100, 0);
+        assertFalse(index.exhaustive());
+        assertEquals("y", index.bridge("a", "b"));
+        assertNull("weight 2 is below the minimum", index.bridge("a", "c"));
+        assertEquals("c", index.bridge("c", "c"));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        BridgeIndex none = BridgeIndex.build(graph(), 2, 0, 0);
+        assertEquals(0, none.size());
+        assertFalse(none.exhaustive());
+
+        BridgeIndex some = BridgeIndex.build(graph(), 2, 2, 0);
+        assertEquals(2, some.size());
+        assertFalse(some.exhaustive());
+        // Best paths: c-c 10, j-c 6, k-c 6, a-b 4, a-c 2
+        assertEquals("c", some.bridge("c", "c"));
+        assertEquals("c", some.bridge("j", "c"));
+        assertNull(some.bridge("k", "c"));
+        assertNull(some.bridge("a", "b"));
+
+        BridgeIndex heavy = BridgeIndex.build(graph(), 5, 3, 0);
+        assertEquals(3, heavy.size());
+        assertEquals("c", heavy.bridge("k", "c"));
+        assertNull(heavy.bridge("a", "b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxEntries() {
+        BridgeIndex.build(graph(), 2, -1, 0);
+    }
+}
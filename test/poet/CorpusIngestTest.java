@@ -0,0 +1,118 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import graph.Graph;
+import graph.GraphLoader;
+
+/**
+ * Tests for CorpusIngest.
+ */
+public class CorpusIngestTest {
+
+    // Testing strategy
+    //   file: empty, whitespace only, one word longer than a range, many
+    //         words; missing
+    //   ranges: one range, many small ranges; split points inside words,
+    //           inside whitespace runs, inside multi-byte characters; ranges
+    //           with no words between ranges with words
+    //   pool: one thread, several threads
+    //   result: same graph, edge for edge and in the same order, as one
+    //           sequential pass; bigram across each split point counted once
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path corpus(String text) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static Graph<String> sequential(Path corpus) throws IOException {
+        CorpusReader words = new CorpusReader(corpus);
+        return new GraphLoader<String>().addPath(() -> words).commit(Graph.empty());
+    }
+
+    private static Graph<String> parallel(Path corpus, ForkJoinPool pool, long minRange)
+            throws IOException {
+        return CorpusIngest.read(corpus, pool, minRange).commit(Graph.empty());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(Set.of(), parallel(corpus(""), POOL, 1).vertices());
+        assertEquals(Set.of(), parallel(corpus(" \n\t  \n  "), POOL, 1).vertices());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissing() throws IOException {
+        CorpusIngest.read(folder.getRoot().toPath().resolve("missing.txt"), POOL, 1);
+    }
+
+    @Test
+    public void testOneLongWord() throws IOException {
+        Graph<String> graph = parallel(corpus("Supercalifragilisticexpialidocious"), POOL, 1);
+        assertEquals(Set.of("supercalifragilisticexpialidocious"), graph.vertices());
+    }
+
+    @Test
+    public void testBigramAcrossSplits() throws IOException {
+        Graph<String> graph = parallel(corpus("a b    \n\n     a b a   b"), POOL, 1);
+        assertEquals(Map.of("b", 3), graph.targets("a"));
+        assertEquals(Map.of("a", 2), graph.targets("b"));
+    }
+
+    @Test
+    public void testMatchesSequential() throws IOException {
+        Random random = new Random(6005);
+        String[] pieces = { "the", "The", "cat", "sat", "on", "mat.", "\u00e9t\u00e9",
+            "\u4e2d\u6587", " ", " ", "  ", "\n", "\t \r\n" };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append(pieces[random.nextInt(pieces.length)]);
+        }
+        Path path = corpus(text.toString());
+        String expected = sequential(path).toString();
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            assertEquals(expected, parallel(path, single, 1).toString());
+        } finally {
+            single.shutdown();
+        }
+        for (long minRange : new long[] { 1, 7, 100, 1 << 20 }) {
+            assertEquals("minimum range " + minRange, expected,
+                    parallel(path, POOL, minRange).toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveMinRange() throws IOException {
+        CorpusIngest.read(corpus("a"), POOL, 0);
+    }
+}
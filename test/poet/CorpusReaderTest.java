@@ -0,0 +1,145 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for CorpusReader.
+ */
+public class CorpusReaderTest {
+
+    // Testing strategy
+    //   file: empty, whitespace only, one word, many words; missing
+    //   whitespace: space, tab, newline, CR, form feed, vertical tab; runs of
+    //               it at start, middle, end
+    //   words: ASCII lower, upper, mixed case, punctuation; non-ASCII upper
+    //          and lower case; malformed UTF-8
+    //   interning: repeated word, same word in different case -> same String
+    //   chunks: one chunk, words crossing chunk boundaries, one-byte chunks
+    //   next() after the last word throws
+    //   randomized: same words as splitting the decoded text
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path corpus(byte[] bytes) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, bytes);
+        return path;
+    }
+
+    private Path corpus(String text) throws IOException {
+        return corpus(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> read(CorpusReader reader) {
+        List<String> words = new ArrayList<>();
+        while (reader.hasNext()) {
+            words.add(reader.next());
+        }
+        return words;
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(List.of(), read(new CorpusReader(corpus(""))));
+        assertEquals(List.of(), read(new CorpusReader(corpus(" \n\t\r\f\u000B "))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissing() throws IOException {
+        new CorpusReader(folder.getRoot().toPath().resolve("missing.txt"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextAfterEnd() throws IOException {
+        CorpusReader reader = new CorpusReader(corpus("one "));
+        assertEquals("one", reader.next());
+        reader.next();
+    }
+
+    @Test
+    public void testWhitespaceAndCase() throws IOException {
+        CorpusReader reader = new CorpusReader(corpus(
+                "  Hello,\tHELLO,\nhello,\r\ngoodbye!\f\u000BEnd"));
+        assertEquals(List.of("hello,", "hello,", "hello,", "goodbye!", "end"), read(reader));
+        assertEquals(3, reader.distinctWords());
+    }
+
+    @Test
+    public void testRepeatedWordsShareString() throws IOException {
+        CorpusReader reader = new CorpusReader(corpus("Word word WORD"));
+        String first = reader.next();
+        assertSame(first, reader.next());
+        assertSame(first, reader.next());
+    }
+
+    @Test
+    public void testNonAscii() throws IOException {
+        CorpusReader reader = new CorpusReader(corpus(
+                "\u00dcN\u00cfC\u00d6D\u00c9 \u00fcn\u00efc\u00f6d\u00e9 caf\u00e9 \u4e2d\u6587"));
+        String first = reader.next();
+        assertEquals("\u00fcn\u00efc\u00f6d\u00e9", first);
+        assertSame(first, reader.next());
+        assertEquals("caf\u00e9", reader.next());
+        assertEquals("\u4e2d\u6587", reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testMalformedUtf8() throws IOException {
+        byte[] bytes = { 'a', (byte) 0xFF, 'B', ' ', 'c' };
+        assertEquals(List.of("a\ufffdb", "c"), read(new CorpusReader(corpus(bytes))));
+    }
+
+    @Test
+    public void testWordsCrossChunks() throws IOException {
+        Path path = corpus("alpha  Beta gamma\u00e9 delta");
+        for (int chunkSize : new int[] { 1, 2, 3, 5, 7, 64 }) {
+            assertEquals("chunk size " + chunkSize,
+                    List.of("alpha", "beta", "gamma\u00e9", "delta"),
+                    read(new CorpusReader(path, chunkSize)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveChunkSize() throws IOException {
+        new CorpusReader(corpus("a"), 0);
+    }
+
+    @Test
+    public void testRandomizedMatchesSplit() throws IOException {
+        Random random = new Random(6005);
+        String[] pieces = { "a", "B", "see", "Dee,", "\u00c9t\u00e9", "\u00fc", " ", "  ", "\n", "\t", "x" };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(pieces[random.nextInt(pieces.length)]);
+        }
+        List<String> expected = new ArrayList<>();
+        for (String word : text.toString().toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!word.isEmpty()) {
+                expected.add(word);
+            }
+        }
+        Path path = corpus(text.toString());
+        assertEquals(expected, read(new CorpusReader(path)));
+        assertEquals(expected, read(new CorpusReader(path, 13)));
+        assertEquals(expected, read(new CorpusReader(path, 1)));
+    }
+}
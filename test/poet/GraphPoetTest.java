@@ -5,21 +5,675 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import graph.EventRecorder;
+import graph.PageRank;
+
+import jdk.jfr.consumer.RecordedEvent;
 
 /**
  * Tests for GraphPoet.
  */
 public class GraphPoetTest {
-    
+
     // Testing strategy
-    //   TODO
-    
+    //   corpus: empty, one word, many words; words repeated with different
+    //           case; words separated by several spaces, tabs and newlines;
+    //           missing file
+    //   poem(): input empty or whitespace only, one word, many words;
+    //           pair of input words with no bridge, one bridge, several
+    //           bridges of different weight, several of equal weight; input
+    //           word not in corpus; input case kept, bridge lower case;
+    //           extra whitespace in input
+    //   toString(): mentions the number of words
+    //   parallel constructor: same poems as the sequential one
+    //   indexBridges(): lazy, eager; every pair, minimum weight, entry cap;
+    //                   same poems as without an index; dropBridgeIndex();
+    //                   rebuilt while the corpus is extended concurrently
+    //   cacheBridges(): each eviction policy, with and without an index;
+    //                   same poems as without a cache; hits on repeated
+    //                   pairs; concurrent poem() calls; dropBridgeCache()
+    //   poems(): no inputs, one, many; collection on the common pool, on a
+    //            given pool, from inside that pool; sequential and parallel
+    //            stream; same poems and order as poem(); very long input
+    //   poem(Reader, Appendable): empty input, whitespace only; words and
+    //            whitespace runs split across reads; input longer than a
+    //            read buffer; same output as poem(String); read error;
+    //            extend() not blocked while input is read or output written
+    //   extend(): file, Reader, String; empty or whitespace-only text; into
+    //             an empty corpus; joined and not; same graph as one corpus
+    //             of both texts; bridge index and cache invalidated; missing
+    //             file; concurrent with poem(); time proportional to the
+    //             text, not to the corpus
+    //   save(), load(): empty corpus, many words; same poems and words after
+    //                   loading; loaded poet extended joined; not a snapshot
+    //   rankWords(): empty corpus; most frequent successor ranks first;
+    //                unchanged by a later extend()
+    //   events: poet.Poem per poem from a String and a Reader, with input
+    //           words and bridges; poet.Ingest for each phase of a
+    //           sequential read, a parallel read, a load and an extend
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GraphPoet poet(String corpus) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), corpus.getBytes(StandardCharsets.UTF_8));
+        return new GraphPoet(file);
+    }
+
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
         assert false; // make sure assertions are enabled with VM argument: -ea
     }
-    
-    // TODO tests
-    
+
+    @Test
+    public void testSpecExample() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingCorpus() throws IOException {
+        new GraphPoet(new File(folder.getRoot(), "missing.txt"));
+    }
+
+    @Test
+    public void testEmptyCorpus() throws IOException {
+        GraphPoet poet = poet("");
+        assertEquals("a b", poet.poem("a b"));
+        assertEquals("", poet.poem(""));
+        assertEquals("", poet.poem("  \n "));
+    }
+
+    @Test
+    public void testOneWordCorpus() throws IOException {
+        GraphPoet poet = poet("alone");
+        assertEquals("alone alone", poet.poem("alone alone"));
+        assertTrue(poet.toString().contains("1 words"));
+    }
+
+    @Test
+    public void testOneBridgeKeepsInputCase() throws IOException {
+        GraphPoet poet = poet("To EXPLORE strange new worlds");
+        assertEquals("Seek To explore out NEW Worlds",
+                poet.poem("Seek To explore out NEW Worlds"));
+        assertEquals("Explore strange NEW", poet.poem("Explore NEW"));
+    }
+
+    @Test
+    public void testHeaviestBridgeWins() throws IOException {
+        GraphPoet poet = poet("a x b\ta y b a y b\n\na z z b");
+        assertEquals("A y B", poet.poem("A B"));
+    }
+
+    @Test
+    public void testEqualBridgesBreakTiesLexicographically() throws IOException {
+        GraphPoet poet = poet("a m b a k b a q b");
+        assertEquals("a k b", poet.poem("a b"));
+    }
+
+    @Test
+    public void testWhitespaceCollapsed() throws IOException {
+        GraphPoet poet = poet("the quick brown fox");
+        assertEquals("the quick brown fox", poet.poem("  the \t brown\n\nfox  "));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        File file = folder.newFile();
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            corpus.append("to explore strange new worlds to seek out new life ")
+                  .append(i % 7).append(" and new civilizations\n");
+        }
+        Files.write(file.toPath(), corpus.toString().getBytes(StandardCharsets.UTF_8));
+        GraphPoet sequential = new GraphPoet(file);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GraphPoet parallel = new GraphPoet(file, pool, 64);
+            for (String input : new String[] { "Seek to explore new and exciting synergies!",
+                    "to strange life and", "3 new" }) {
+                assertEquals(sequential.poem(input), parallel.poem(input));
+            }
+            assertEquals(sequential.toString(), parallel.toString());
+            assertEquals(sequential.toString(), new GraphPoet(file, pool).toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBridgeIndexKeepsPoems() throws IOException {
+        GraphPoet poet = poet("a x b a y b a y b a z z b a k c a j c c c c q "
+                + "to explore strange new worlds to seek out new life and new civilizations");
+        String[] inputs = { "A B", "a c", "C C", "b a", "Explore NEW worlds", "to new life",
+            "seek strange civilizations out to" };
+        String[] expected = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = poet.poem(inputs[i]);
+        }
+        assertEquals("A y B", expected[0]);
+
+        int[][] settings = { { 2, 1000 }, { 3, 1000 }, { 2, 3 }, { 2, 0 } };
+        for (int[] setting : settings) {
+            for (boolean eager : new boolean[] { true, false }) {
+                poet.indexBridges(setting[0], setting[1], eager);
+                for (int i = 0; i < inputs.length; i++) {
+                    assertEquals(expected[i], poet.poem(inputs[i]));
+                }
+                assertTrue(poet.bridgeIndexSize() <= setting[1]);
+            }
+        }
+        poet.indexBridges(2, 1000, true);
+        assertTrue(poet.bridgeIndexSize() > 0);
+        poet.dropBridgeIndex();
+        assertEquals(0, poet.bridgeIndexSize());
+        assertEquals(expected[0], poet.poem(inputs[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBridgeIndexNegativeMaxEntries() throws IOException {
+        poet("a b").indexBridges(2, -1, false);
+    }
+
+    @Test
+    public void testBridgeCacheKeepsPoems() throws IOException {
+        GraphPoet poet = poet("a x b a y b a y b a z z b a k c a j c c c c q "
+                + "to explore strange new worlds to seek out new life and new civilizations");
+        String[] inputs = { "A B", "a c", "C C", "b a", "Explore NEW worlds", "to new life",
+            "seek strange civilizations out to" };
+        String[] expected = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = poet.poem(inputs[i]);
+        }
+        assertNull(poet.bridgeCacheStats());
+
+        for (GraphPoet.Eviction eviction : GraphPoet.Eviction.values()) {
+            for (int maximumSize : new int[] { 1, 3, 1000 }) {
+                poet.cacheBridges(maximumSize, eviction);
+                for (int round = 0; round < 2; round++) {
+                    for (int i = 0; i < inputs.length; i++) {
+                        assertEquals(expected[i], poet.poem(inputs[i]));
+                    }
+                }
+                GraphPoet.CacheStats stats = poet.bridgeCacheStats();
+                assertEquals(eviction, stats.eviction());
+                assertTrue(stats.size() <= maximumSize);
+                assertEquals(2 * 12, stats.hits() + stats.misses());
+            }
+        }
+        assertEquals("second round hits every pair", 12, poet.bridgeCacheStats().hits());
+
+        poet.indexBridges(2, 3, true);
+        poet.cacheBridges(5, GraphPoet.Eviction.W_TINY_LFU);
+        for (int i = 0; i < inputs.length; i++) {
+            assertEquals(expected[i], poet.poem(inputs[i]));
+        }
+        poet.dropBridgeCache();
+        assertNull(poet.bridgeCacheStats());
+        assertEquals(expected[0], poet.poem(inputs[0]));
+    }
+
+    @Test
+    public void testBridgeCacheConcurrentPoems() throws Exception {
+        GraphPoet poet = poet("to explore strange new worlds to seek out new life "
+                + "and new civilizations to boldly go where no one has gone before");
+        String[] inputs = { "Explore NEW worlds", "to new life", "seek go where gone",
+            "to explore to boldly go to seek" };
+        String[] expected = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            expected[i] = poet.poem(inputs[i]);
+        }
+        poet.cacheBridges(4, GraphPoet.Eviction.LRU);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.submit(() -> IntStream.range(0, 4000).parallel().forEach(
+                    n -> assertEquals(expected[n % inputs.length],
+                            poet.poem(inputs[n % inputs.length])))).get();
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(poet.bridgeCacheStats().size() <= 4);
+        assertTrue(poet.bridgeCacheStats().evictions() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBridgeCacheZeroSize() throws IOException {
+        poet("a b").cacheBridges(0, GraphPoet.Eviction.LRU);
+    }
+
+    @Test
+    public void testPoemsMatchPoem() throws IOException {
+        GraphPoet poet = poet("to explore strange new worlds to seek out new life "
+                + "and new civilizations to boldly go where no one has gone before");
+        String[] words = { "To", "explore", "NEW", "worlds", "seek", "life", "go", "gone",
+            "before", "\t", " ", "\n " };
+        Random random = new Random(6005);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int j = random.nextInt(12); j > 0; j--) {
+                input.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            inputs.add(input.toString());
+        }
+        List<String> expected = new ArrayList<>();
+        for (String input : inputs) {
+            expected.add(poet.poem(input));
+        }
+
+        assertEquals(List.of(), poet.poems(List.of()));
+        assertEquals(List.of("To explore strange NEW"), poet.poems(List.of("To explore NEW")));
+        assertEquals(expected, poet.poems(inputs));
+        assertEquals(expected, poet.poems(inputs.stream()).collect(Collectors.toList()));
+        assertEquals(expected,
+                poet.poems(inputs.parallelStream()).collect(Collectors.toList()));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(expected, poet.poems(inputs, pool));
+            assertEquals(expected, pool.submit(() -> poet.poems(inputs, pool)).get());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new AssertionError(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLongPoem() throws IOException {
+        GraphPoet poet = poet("a x b");
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder("a");
+        for (int i = 0; i < 50000; i++) {
+            input.append("a b ");
+            expected.append(i == 0 ? " x b" : " a x b");
+        }
+        assertEquals(expected.toString(), poet.poem(input.toString()));
+        assertEquals("a x b", poet.poem("a b"));
+    }
+
+    /** Reader returning at most one character per read. */
+    private static Reader trickle(String text) {
+        return new FilterReader(new StringReader(text)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+
+    private static String streamed(GraphPoet poet, Reader input) throws IOException {
+        StringWriter output = new StringWriter();
+        poet.poem(input, output);
+        return output.toString();
+    }
+
+    @Test
+    public void testStreamingMatchesPoem() throws IOException {
+        GraphPoet poet = poet("to explore strange new worlds to seek out new life "
+                + "and new civilizations to boldly go where no one has gone before");
+        String[] inputs = { "", "  \n\t ", "NEW", "  Explore\tNEW \n worlds  ",
+            "To explore to boldly go to seek", "seek go where gone\r\n" };
+        for (String input : inputs) {
+            String expected = poet.poem(input);
+            assertEquals(expected, streamed(poet, new StringReader(input)));
+            assertEquals(expected, streamed(poet, trickle(input)));
+        }
+
+        StringBuilder huge = new StringBuilder();
+        Random random = new Random(6005);
+        String[] words = { "To", "explore", "NEW", "worlds", "seek", "life", "go", "gone",
+            "supercalifragilisticexpialidocious", "  ", "\n" };
+        while (huge.length() < 100000) {
+            huge.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        assertEquals(poet.poem(huge.toString()),
+                streamed(poet, new StringReader(huge.toString())));
+    }
+
+    /**
+     * Extend poet on another thread, and wait at most a few seconds for it.
+     * 
+     * @return true iff the extension finished in time
+     */
+    private static boolean extendElsewhere(GraphPoet poet, String more) throws IOException {
+        Thread writer = new Thread(() -> poet.extend(more, false));
+        writer.setDaemon(true);
+        writer.start();
+        try {
+            writer.join(5000);
+        } catch (InterruptedException ie) {
+            throw new IOException(ie);
+        }
+        return !writer.isAlive();
+    }
+
+    @Test(timeout = 60000)
+    public void testStreamingDoesNotBlockExtendDuringIo() throws IOException {
+        GraphPoet poet = poet("a x b");
+        boolean[] extended = new boolean[2];
+        Reader input = new FilterReader(new StringReader("a b a b")) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                if (!extended[0]) {
+                    extended[0] = extendElsewhere(poet, "a y b a y b");
+                }
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        StringBuilder written = new StringBuilder();
+        Appendable output = new Appendable() {
+            @Override
+            public Appendable append(CharSequence text) throws IOException {
+                if (!extended[1]) {
+                    extended[1] = extendElsewhere(poet, "a z b");
+                }
+                written.append(text);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence text, int start, int end) throws IOException {
+                return append(text.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                return append(String.valueOf(c));
+            }
+        };
+        poet.poem(input, output);
+        assertTrue("extend() blocked while reading", extended[0]);
+        assertTrue("extend() blocked while writing", extended[1]);
+        assertEquals("a y b a y b", written.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamingReadError() throws IOException {
+        Reader broken = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        poet("a b").poem(broken, new StringBuilder());
+    }
+
+    @Test
+    public void testExtendMatchesWholeCorpus() throws IOException {
+        String first = "to explore strange new worlds\nto seek out NEW life";
+        String second = "  and new civilizations to boldly go\twhere no one has gone before";
+        GraphPoet whole = poet(first + " " + second);
+        GraphPoet separate = poet(first + "\n");
+
+        GraphPoet joined = poet(first);
+        joined.extend(second, true);
+        assertEquals(whole.toString(), joined.toString());
+
+        GraphPoet fromFile = poet(first);
+        File file = folder.newFile();
+        Files.write(file.toPath(), second.getBytes(StandardCharsets.UTF_8));
+        fromFile.extend(file, true);
+        assertEquals(whole.toString(), fromFile.toString());
+
+        GraphPoet fromReader = poet(first);
+        fromReader.extend(trickle(second), true);
+        assertEquals(whole.toString(), fromReader.toString());
+
+        separate.extend(second, false);
+        assertFalse(separate.toString().equals(whole.toString()));
+        assertEquals("New life AND", whole.poem("New AND"));
+        assertEquals("New AND", separate.poem("New AND"));
+        assertEquals("seek out new civilizations", separate.poem("seek out civilizations"));
+    }
+
+    @Test
+    public void testExtendEmpty() throws IOException {
+        GraphPoet poet = poet("");
+        poet.extend(" \n\t", true);
+        assertEquals("a b", poet.poem("a b"));
+        poet.extend("a x", true);
+        poet.extend("", true);
+        poet.extend("b", true);
+        assertEquals("a x b", poet.poem("a b"));
+        assertTrue(poet.toString().contains("3 words"));
+    }
+
+    /**
+     * @return nanoseconds taken by extending poet with a short text many times
+     */
+    private static long timeExtends(GraphPoet poet) {
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            poet.extend("the quick brown fox " + i, true);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void testExtendCostsTimeOfText() throws IOException {
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            corpus.append("word").append(i).append(' ');
+        }
+        GraphPoet small = poet("a b c");
+        GraphPoet large = poet(corpus.toString());
+        // Warm up, so both are timed with compiled code
+        timeExtends(small);
+        timeExtends(large);
+        long smallTime = timeExtends(small);
+        long largeTime = timeExtends(large);
+        // Checking or walking the whole graph on each extend would take
+        // seconds here; an extend proportional to its text, milliseconds
+        assertTrue("extend took " + largeTime / 1000000 + " ms on a large corpus, "
+                + smallTime / 1000000 + " ms on a small one",
+                largeTime < 20 * smallTime + 1000000000L);
+    }
+
+    @Test(expected = IOException.class)
+    public void testExtendMissingFile() throws IOException {
+        poet("a b").extend(new File(folder.getRoot(), "missing.txt"), true);
+    }
+
+    @Test
+    public void testExtendInvalidatesIndexAndCache() throws IOException {
+        GraphPoet poet = poet("a x b a y b");
+        poet.indexBridges(2, 100, true);
+        poet.cacheBridges(10, GraphPoet.Eviction.LRU);
+        assertEquals("a x b", poet.poem("a b"));
+        poet.extend("a y b", false);
+        assertEquals("a y b", poet.poem("a b"));
+        assertEquals(2, poet.bridgeCacheStats().misses());
+        assertEquals("a y b c", poet.poem("a b c"));
+        poet.extend("b z c", true);
+        assertEquals("a y b z c", poet.poem("a b c"));
+    }
+
+    @Test
+    public void testExtendConcurrentWithPoems() throws Exception {
+        GraphPoet poet = poet("a x b");
+        poet.cacheBridges(16, GraphPoet.Eviction.W_TINY_LFU);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Future<?> poems = pool.submit(() -> IntStream.range(0, 20000).parallel().forEach(n -> {
+                String poem = poet.poem("A B");
+                assertTrue(poem, poem.equals("A x B") || poem.equals("A y B"));
+            }));
+            for (int i = 0; i < 50; i++) {
+                poet.extend("a y b", false);
+            }
+            poems.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("A y B", poet.poem("A B"));
+    }
+
+    @Test
+    public void testIndexRebuiltConcurrentWithExtend() throws Exception {
+        GraphPoet poet = poet("a x b");
+        poet.indexBridges(2, 100, false);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Future<?> poems = pool.submit(() -> IntStream.range(0, 20000).parallel().forEach(n -> {
+                String poem = poet.poem("A B");
+                assertTrue(poem, poem.equals("A x B") || poem.equals("A y B"));
+            }));
+            for (int i = 0; i < 50; i++) {
+                poet.extend("a y b", false);
+            }
+            poems.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("A y B", poet.poem("A B"));
+        assertEquals(1, poet.bridgeIndexSize());
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        GraphPoet poet = poet("to explore strange new worlds\nto seek out NEW life "
+                + "and new civilizations to boldly go where no one has gone before");
+        File snapshot = folder.newFile();
+        poet.save(snapshot);
+        GraphPoet loaded = GraphPoet.load(snapshot);
+        for (String input : new String[] { "Seek to explore new and exciting synergies!",
+                "to strange life and", "Explore NEW worlds", "gone" }) {
+            assertEquals(poet.poem(input), loaded.poem(input));
+        }
+        assertTrue(loaded.toString().contains("18 words"));
+
+        poet.extend("Again", true);
+        loaded.extend("Again", true);
+        assertEquals("before again", loaded.poem("before again"));
+        assertEquals("gone before again", loaded.poem("gone again"));
+        assertEquals(poet.poem("gone again"), loaded.poem("gone again"));
+
+        GraphPoet empty = poet("");
+        empty.save(snapshot);
+        assertEquals("a b", GraphPoet.load(snapshot).poem("a b"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadNotSnapshot() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "to explore strange new worlds".getBytes(StandardCharsets.UTF_8));
+        GraphPoet.load(file);
+    }
+
+    @Test
+    public void testRankWords() throws IOException {
+        assertEquals(List.of(), poet("").rankWords().top(1));
+        GraphPoet poet = poet("the cat and the dog and the bird saw the end");
+        PageRank.Ranks<String> ranks = poet.rankWords();
+        assertEquals(List.of("the"), ranks.top(1));
+        assertTrue(ranks.rank("and") > ranks.rank("cat"));
+        assertEquals(0.0, ranks.rank("missing"), 0);
+        poet.extend("missing missing missing", true);
+        assertEquals(0.0, ranks.rank("missing"), 0);
+        assertTrue(poet.rankWords().rank("missing") > 0);
+    }
+
+    @Test
+    public void testHelloExample() throws IOException {
+        GraphPoet poet = poet("Hello, HELLO, hello, goodbye!");
+        assertEquals("Hello, hello, goodbye!", poet.poem("Hello, goodbye!"));
+        assertTrue(poet.toString().contains("2 words"));
+    }
+
+    @Test
+    public void testPoemEvents() throws IOException {
+        GraphPoet poet = poet("This is a test of the Mugar Omni Theater sound system.");
+        List<RecordedEvent> events = EventRecorder.record("poet.Poem", () -> {
+            poet.poem("Test the system.");
+            poet.poem(new StringReader("Test the system. again"), new StringWriter());
+        });
+        assertEquals(2, events.size());
+        RecordedEvent string = events.get(0);
+        assertEquals(3, string.getInt("inputWords"));
+        assertEquals(1, string.getInt("bridges"));
+        assertFalse(string.getBoolean("streamed"));
+        assertFalse(string.getBoolean("indexed"));
+        RecordedEvent streamed = events.get(1);
+        assertEquals(4, streamed.getInt("inputWords"));
+        assertEquals(1, streamed.getInt("bridges"));
+        assertTrue(streamed.getBoolean("streamed"));
+    }
+
+    @Test
+    public void testIngestEvents() throws IOException {
+        File corpus = folder.newFile();
+        Files.write(corpus.toPath(), "to explore strange new worlds to seek out new life"
+                .getBytes(StandardCharsets.UTF_8));
+        File snapshot = folder.newFile();
+        List<RecordedEvent> events = EventRecorder.record("poet.Ingest", () -> {
+            GraphPoet poet = new GraphPoet(corpus);
+            poet.save(snapshot);
+            GraphPoet.load(snapshot).extend("and new civilizations", true);
+            ForkJoinPool pool = new ForkJoinPool(2);
+            try {
+                new GraphPoet(corpus, pool, 8);
+            } finally {
+                pool.shutdown();
+            }
+        });
+        // Events from different threads are not recorded in time order
+        Map<String, List<RecordedEvent>> phases = events.stream()
+                .collect(Collectors.groupingBy(event -> event.getString("phase")));
+        assertEquals(Set.of("split", "count", "merge", "load", "build"), phases.keySet());
+        assertEquals(1, phases.get("split").size());
+        assertEquals(1, phases.get("load").size());
+        assertEquals(4, phases.get("build").size());
+
+        RecordedEvent load = phases.get("load").get(0);
+        assertEquals(snapshot.toString(), load.getString("source"));
+        assertEquals(8, load.getInt("vertices"));
+        assertEquals(9, load.getInt("edges"));
+        assertEquals(-1, load.getLong("words"));
+
+        int ranges = 0;
+        long words = 0;
+        for (RecordedEvent count : phases.get("count")) {
+            if (count.getLong("start") < 0) {
+                // the sequential read of the corpus, or the extension
+                assertTrue(count.getLong("words") == 10 || count.getLong("words") == 3);
+            } else {
+                assertEquals(corpus.toString(), count.getString("source"));
+                assertTrue(count.getLong("end") > count.getLong("start"));
+                ranges++;
+                words += count.getLong("words");
+            }
+        }
+        assertTrue(ranges > 1);
+        assertEquals(10, words);
+        assertEquals(ranges - 1, phases.get("merge").size());
+    }
 }
@@ -0,0 +1,178 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import graph.Graph;
+
+/**
+ * Tests for Snapshot.
+ */
+public class SnapshotTest {
+
+    // Testing strategy
+    //   graph: empty, one vertex, many vertices and edges; multi-byte words,
+    //          a word longer than the buffer; weights of 1 to 5 varint bytes;
+    //          enough data to span many buffers
+    //   lastWord: null, a vertex
+    //   file: replaced if it exists, kept if writing fails; missing, empty, bad magic, unknown
+    //         version, truncated, extra bytes, flipped payload byte
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+
+    private Snapshot roundTrip(Graph<String> graph, String lastWord) throws IOException {
+        Path file = folder.newFile().toPath();
+        Snapshot.write(graph, lastWord, file);
+        Snapshot snapshot = Snapshot.read(file);
+        assertEquals(lastWord, snapshot.lastWord());
+        assertSameGraph(graph, snapshot.loader().commit(Graph.empty()));
+        return snapshot;
+    }
+
+    private static Graph<String> sample() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 127);
+        graph.set("b", "\u00e9t\u00e9", 128);
+        graph.set("\u00e9t\u00e9", "\u4e2d\u6587", 16384);
+        graph.set("\u4e2d\u6587", "\u4e2d\u6587", 1 << 21);
+        graph.set("a", "a", Integer.MAX_VALUE);
+        graph.add("lonely");
+        return graph;
+    }
+
+    private Path saved() throws IOException {
+        Path file = folder.newFile().toPath();
+        Snapshot.write(sample(), "a", file);
+        return file;
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        roundTrip(Graph.empty(), null);
+    }
+
+    @Test
+    public void testOneVertex() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.add("alone");
+        roundTrip(graph, "alone");
+    }
+
+    @Test
+    public void testSample() throws IOException {
+        roundTrip(sample(), "lonely");
+    }
+
+    @Test
+    public void testLongWord() throws IOException {
+        char[] letters = new char[100000];
+        Arrays.fill(letters, 'w');
+        Graph<String> graph = Graph.empty();
+        graph.set("a", new String(letters), 3);
+        graph.set(new String(letters), "b", 4);
+        roundTrip(graph, "b");
+    }
+
+    @Test
+    public void testManyBuffers() throws IOException {
+        Random random = new Random(6005);
+        Graph<String> graph = Graph.empty();
+        for (int i = 0; i < 30000; i++) {
+            graph.set("w" + random.nextInt(5000), "w" + random.nextInt(5000),
+                    1 + random.nextInt(1 << random.nextInt(31)));
+        }
+        roundTrip(graph, "w0");
+    }
+
+    @Test
+    public void testReplacesFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[1 << 20]);
+        Snapshot.write(sample(), "a", file);
+        assertSameGraph(sample(), Snapshot.read(file).loader().commit(Graph.empty()));
+    }
+
+    @Test
+    public void testFailedWriteKeepsFile() throws IOException {
+        Path file = saved();
+        byte[] good = Files.readAllBytes(file);
+        try {
+            // lastWord is not a vertex, so writing fails after the words
+            Snapshot.write(sample(), "missing", file);
+            fail("expected write to fail");
+        } catch (NullPointerException expected) {
+            // expected
+        }
+        assertArrayEquals(good, Files.readAllBytes(file));
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissing() throws IOException {
+        Snapshot.read(folder.getRoot().toPath().resolve("missing.snap"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptyFile() throws IOException {
+        Snapshot.read(folder.newFile().toPath());
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        byte[] good = Files.readAllBytes(saved());
+        int[] positions = { 0, 5, 12, 19, 20, 25, good.length - 1 };
+        for (int position : positions) {
+            byte[] bad = good.clone();
+            bad[position] ^= 0x10;
+            Path file = folder.newFile().toPath();
+            Files.write(file, bad);
+            try {
+                Snapshot.read(file);
+                fail("expected corrupt byte " + position + " to be detected");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testWrongLength() throws IOException {
+        byte[] good = Files.readAllBytes(saved());
+        byte[][] bad = { Arrays.copyOf(good, good.length - 1), Arrays.copyOf(good, good.length + 1),
+            Arrays.copyOf(good, 10) };
+        for (byte[] bytes : bad) {
+            Path file = folder.newFile().toPath();
+            Files.write(file, bytes);
+            try {
+                Snapshot.read(file);
+                fail("expected length " + bytes.length + " to be detected");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+}